@@ -0,0 +1,251 @@
+package com.example.inventory_service.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.inventory_service.client.ProductBatchLoader;
+import com.example.inventory_service.client.ProductsClient;
+import com.example.inventory_service.dto.ProductDto;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * ProductCache - Caché local (en memoria) de metadatos de producto delante de ProductsClient.
+ * - Acotada por tamaño y con expiración por TTL.
+ * - Los 404 se guardan como resultado negativo con un TTL más corto.
+ * - Las consultas concurrentes de un mismo productId comparten una única llamada al Products Service,
+ *   y los fallos de distintos ids se agrupan en lotes mediante ProductBatchLoader.
+ * - Los errores (timeout, 5xx, fallback) no se cachean.
+ * - Pasado products.cache.revalidate-after, el siguiente acceso devuelve la copia cacheada y la
+ *   revalida en segundo plano con If-None-Match: un 304 renueva la entrada sin transferir el cuerpo.
+ *   Si la revalidación falla, se conserva la copia anterior (hasta su TTL).
+ * - Si ProductsClient rechaza la llamada sin intentarla (circuito abierto o bulkhead lleno), se sirve
+ *   la última copia conocida del producto (hasta products.cache.stale-ttl) marcada como stale, en
+ *   lugar de esperar o de tratar el producto como inexistente.
+ * - ProductChangeSubscriber invalida las entradas en cuanto el Products Service notifica un cambio
+ *   (y, si el producto se eliminó, también su última copia conocida).
+ * - Aciertos, fallos y expulsiones se exponen en Micrometer con el nombre de caché "products".
+ */
+@Component
+public class ProductCache {
+
+    private final AsyncLoadingCache<Long, Optional<ProductDto>> cache;
+    // Última versión obtenida de cada producto; sobrevive al TTL de la caché principal y a las invalidaciones
+    private final Cache<Long, ProductDto> lastKnown;
+
+    public ProductCache(ProductBatchLoader batchLoader,
+                        ProductsClient productsClient,
+                        @Value("${products.cache.max-size:10000}") long maxSize,
+                        @Value("${products.cache.ttl:5m}") Duration ttl,
+                        @Value("${products.cache.negative-ttl:30s}") Duration negativeTtl,
+                        @Value("${products.cache.revalidate-after:1m}") Duration revalidateAfter,
+                        @Value("${products.cache.stale-ttl:1h}") Duration staleTtl,
+                        ObjectProvider<MeterRegistry> meterRegistry) {
+
+        this.lastKnown = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(staleTtl)
+                .build();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ProductExpiry(ttl, negativeTtl))
+                .refreshAfterWrite(revalidateAfter)
+                .recordStats()
+                .buildAsync(new BatchingProductLoader(batchLoader, productsClient, lastKnown));
+
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "products"));
+    }
+
+    /**
+     * Obtiene el producto desde la caché o, si no está, desde el Products Service.
+     * @param productId ID del producto.
+     * @return Mono con el ProductDto, vacío si el producto no existe (404). Con el circuito abierto,
+     *         la última copia conocida marcada como stale, o el error si no hay ninguna.
+     */
+    public Mono<ProductDto> getProductById(Long productId) {
+        // La carga en curso se comparte entre suscriptores: cancelar uno no la cancela.
+        return Mono.defer(() -> Mono.fromFuture(cache.get(productId), true))
+                .mapNotNull(product -> product.orElse(null))
+                .onErrorResume(ProductCache::isRejected, ex -> {
+                    ProductDto stale = lastKnown.getIfPresent(productId);
+                    return stale != null ? Mono.just(stale.asStale()) : Mono.error(ex);
+                });
+    }
+
+    /**
+     * Obtiene varios productos; los que no están en caché se piden en lote.
+     * @param productIds IDs de los productos.
+     * @return Mono con un mapa productId -> ProductDto que solo contiene los productos existentes.
+     *         Con el circuito abierto, las copias stale si hay una de cada producto; si no, el error.
+     */
+    public Mono<Map<Long, ProductDto>> getProducts(Collection<Long> productIds) {
+        return Mono.defer(() -> Mono.fromFuture(cache.getAll(productIds), true))
+                .map(cached -> {
+                    Map<Long, ProductDto> products = new HashMap<>();
+                    cached.forEach((productId, product) -> product.ifPresent(dto -> products.put(productId, dto)));
+                    return products;
+                })
+                .onErrorResume(ProductCache::isRejected, ex -> {
+                    // Sin copia de algún producto no se puede distinguir "no existe" de "desconocido"
+                    Map<Long, ProductDto> stale = new HashMap<>();
+                    lastKnown.getAllPresent(productIds).forEach((productId, product) -> stale.put(productId, product.asStale()));
+                    return stale.keySet().containsAll(productIds) ? Mono.just(stale) : Mono.error(ex);
+                });
+    }
+
+    /**
+     * Existencia del producto según la caché local, sin llamar nunca al Products Service.
+     * @param productId ID del producto.
+     * @return true/false si la caché tiene un resultado para el producto; vacío si no está en caché,
+     *         su carga sigue en curso o falló.
+     */
+    public Optional<Boolean> cachedExistence(Long productId) {
+        CompletableFuture<Optional<ProductDto>> cached = cache.getIfPresent(productId);
+        if (cached == null || !cached.isDone() || cached.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.of(cached.join().isPresent());
+    }
+
+    /**
+     * Elimina la entrada de un producto (positiva o negativa) de la caché.
+     */
+    public void invalidate(Long productId) {
+        cache.synchronous().invalidate(productId);
+    }
+
+    /**
+     * Elimina un producto borrado en el Products Service: su entrada y también su última copia
+     * conocida, para no servirlo como stale con el circuito abierto.
+     */
+    public void evict(Long productId) {
+        lastKnown.invalidate(productId);
+        cache.synchronous().invalidate(productId);
+    }
+
+    /**
+     * Elimina todas las entradas de la caché.
+     */
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * Llamada rechazada por ProductsClient sin llegar al Products Service (fallo rápido).
+     */
+    private static boolean isRejected(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException;
+    }
+
+    /**
+     * Contadores de aciertos/fallos/expulsiones acumulados desde el arranque.
+     */
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    /**
+     * Cargador de la caché: tanto las cargas individuales como las múltiples pasan por ProductBatchLoader.
+     * Las revalidaciones de productos con ETag son peticiones condicionales individuales.
+     * Cada resultado actualiza la última copia conocida (un 404 la elimina).
+     */
+    private static final class BatchingProductLoader implements AsyncCacheLoader<Long, Optional<ProductDto>> {
+
+        private final ProductBatchLoader batchLoader;
+        private final ProductsClient productsClient;
+        private final Cache<Long, ProductDto> lastKnown;
+
+        private BatchingProductLoader(ProductBatchLoader batchLoader, ProductsClient productsClient, Cache<Long, ProductDto> lastKnown) {
+            this.batchLoader = batchLoader;
+            this.productsClient = productsClient;
+            this.lastKnown = lastKnown;
+        }
+
+        private Optional<ProductDto> remember(Long productId, Optional<ProductDto> product) {
+            product.ifPresentOrElse(dto -> lastKnown.put(productId, dto), () -> lastKnown.invalidate(productId));
+            return product;
+        }
+
+        @Override
+        public CompletableFuture<Optional<ProductDto>> asyncLoad(Long productId, Executor executor) {
+            return batchLoader.load(productId)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .map(product -> remember(productId, product))
+                    .toFuture();
+        }
+
+        @Override
+        public CompletableFuture<Map<Long, Optional<ProductDto>>> asyncLoadAll(Set<? extends Long> productIds, Executor executor) {
+            return batchLoader.loadAll(Set.copyOf(productIds))
+                    .map(products -> {
+                        Map<Long, Optional<ProductDto>> loaded = new HashMap<>();
+                        productIds.forEach(productId -> loaded.put(productId, remember(productId, Optional.ofNullable(products.get(productId)))));
+                        return loaded;
+                    })
+                    .toFuture();
+        }
+
+        @Override
+        public CompletableFuture<Optional<ProductDto>> asyncReload(Long productId, Optional<ProductDto> oldValue, Executor executor) {
+            if (oldValue.isEmpty() || oldValue.get().getEtag() == null) {
+                return asyncLoad(productId, executor);
+            }
+            // 304 -> el cliente devuelve la misma instancia cacheada; 404 -> el producto se eliminó
+            return productsClient.revalidate(oldValue.get())
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .map(product -> remember(productId, product))
+                    .toFuture();
+        }
+    }
+
+    /**
+     * Expiración por entrada: TTL normal para productos encontrados y TTL corto para los 404.
+     */
+    private static final class ProductExpiry implements Expiry<Long, Optional<ProductDto>> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        private ProductExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(Long productId, Optional<ProductDto> product, long currentTime) {
+            return product.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long productId, Optional<ProductDto> product, long currentTime, long currentDuration) {
+            return expireAfterCreate(productId, product, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long productId, Optional<ProductDto> product, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
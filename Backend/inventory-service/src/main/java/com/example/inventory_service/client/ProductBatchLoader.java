@@ -0,0 +1,133 @@
+package com.example.inventory_service.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.inventory_service.dto.ProductDto;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ProductBatchLoader - Agrupa consultas de producto al estilo DataLoader.
+ * Las peticiones individuales que llegan dentro de una ventana corta (products.batch.window)
+ * se envían juntas en una sola llamada a ProductsClient.getProductsByIds. El lote se envía
+ * antes si alcanza products.batch.max-size. Un ID ausente en la respuesta se resuelve como vacío (404).
+ * El planificador solo dispara el envío; la petición en sí es no bloqueante.
+ */
+@Component
+public class ProductBatchLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductBatchLoader.class);
+
+    private final ProductsClient productsClient;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object lock = new Object();
+    private Batch current;
+
+    public ProductBatchLoader(ProductsClient productsClient,
+                              @Value("${products.batch.window:5ms}") Duration window,
+                              @Value("${products.batch.max-size:100}") int maxBatchSize) {
+        this.productsClient = productsClient;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "products-batch-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Encola la consulta de un producto en el lote actual.
+     * @param productId ID del producto.
+     * @return Mono con el ProductDto, vacío si el producto no existe.
+     */
+    public Mono<ProductDto> load(Long productId) {
+        // El futuro es compartido por todas las consultas del mismo id: cancelar una no lo cancela.
+        return Mono.defer(() -> Mono.fromFuture(enqueue(productId), true));
+    }
+
+    /**
+     * Encola la consulta de varios productos y espera a todos ellos.
+     * @param productIds IDs de los productos.
+     * @return Mono con un mapa productId -> ProductDto que solo contiene los productos existentes.
+     */
+    public Mono<Map<Long, ProductDto>> loadAll(Collection<Long> productIds) {
+        return Flux.fromIterable(productIds)
+                .flatMap(productId -> load(productId).map(product -> Map.entry(productId, product)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
+    }
+
+    private CompletableFuture<ProductDto> enqueue(Long productId) {
+        CompletableFuture<ProductDto> future;
+        Batch full = null;
+
+        synchronized (lock) {
+            if (current == null) {
+                Batch batch = new Batch();
+                current = batch;
+                scheduler.schedule(() -> dispatch(batch), windowNanos, TimeUnit.NANOSECONDS);
+            }
+            future = current.futures.computeIfAbsent(productId, id -> new CompletableFuture<>());
+            if (current.futures.size() >= maxBatchSize) {
+                full = current;
+                current = null;
+            }
+        }
+
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    private void dispatch(Batch batch) {
+        synchronized (lock) {
+            if (current == batch) {
+                current = null;
+            }
+        }
+        if (!batch.dispatched.compareAndSet(false, true)) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(batch.futures.keySet());
+        log.debug("Enviando lote de {} productos al Products Service", ids.size());
+
+        productsClient.getProductsByIds(ids).subscribe(
+                products -> batch.futures.forEach((productId, future) -> future.complete(products.get(productId))),
+                ex -> batch.futures.values().forEach(future -> future.completeExceptionally(ex)));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Lote pendiente: productId -> futuro de cada consulta agrupada.
+     */
+    private static final class Batch {
+        private final Map<Long, CompletableFuture<ProductDto>> futures = new LinkedHashMap<>();
+        private final AtomicBoolean dispatched = new AtomicBoolean();
+    }
+}
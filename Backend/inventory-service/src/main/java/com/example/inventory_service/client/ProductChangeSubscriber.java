@@ -0,0 +1,123 @@
+package com.example.inventory_service.client;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.inventory_service.cache.ProductCache;
+import com.example.inventory_service.dto.ProductChangeDto;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.retry.Retry;
+
+/**
+ * ProductChangeSubscriber - Suscripción al flujo de cambios del Products Service
+ * (GET /api/products/changes, Server-Sent Events) para invalidar ProductCache en cuanto un
+ * producto cambia, en lugar de esperar a su TTL.
+ * - 'connected': se invalida toda la caché, porque pudieron perderse cambios sin conexión.
+ * - 'product-changed': se invalida el producto indicado, o toda la caché si no trae productId.
+ * - Si no llega nada (ni el heartbeat) en products.changes.idle-timeout, o la conexión se cae,
+ *   se reconecta con backoff exponencial.
+ */
+@Component
+@ConditionalOnProperty(name = "products.changes.enabled", havingValue = "true", matchIfMissing = true)
+public class ProductChangeSubscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeSubscriber.class);
+
+    private static final ParameterizedTypeReference<ServerSentEvent<ProductChangeDto>> CHANGE_EVENT =
+            new ParameterizedTypeReference<>() {};
+
+    private final WebClient webClient;
+    private final String apiKey;
+    private final ProductCache productCache;
+    private final Duration idleTimeout;
+    private final Duration maxBackoff;
+
+    private volatile Disposable subscription;
+
+    public ProductChangeSubscriber(WebClient webClient,
+                                   @Value("${products.base-url}") String baseUrl,
+                                   @Value("${products.api-key}") String apiKey,
+                                   ProductCache productCache,
+                                   @Value("${products.changes.idle-timeout:45s}") Duration idleTimeout,
+                                   @Value("${products.changes.max-backoff:30s}") Duration maxBackoff) {
+        this.webClient = webClient.mutate().baseUrl(baseUrl).build();
+        this.apiKey = apiKey;
+        this.productCache = productCache;
+        this.idleTimeout = idleTimeout;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = changes()
+                .timeout(idleTimeout)
+                // transientErrors: el backoff vuelve a empezar tras recibir eventos
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(maxBackoff)
+                        .transientErrors(true)
+                        .doBeforeRetry(signal -> log.warn("Flujo de cambios de producto interrumpido ({}); reconectando",
+                                signal.failure().getMessage())))
+                // El servidor cierra la suscripción al expirar: se vuelve a conectar
+                .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                .subscribe(this::apply);
+    }
+
+    /**
+     * Aplica un evento del flujo a la caché. Los comentarios (heartbeat) no tienen nombre y se ignoran.
+     */
+    void apply(ServerSentEvent<ProductChangeDto> event) {
+        if ("connected".equals(event.event())) {
+            log.info("Suscrito a los cambios de producto; se invalida la caché de productos");
+            productCache.invalidateAll();
+        } else if ("product-changed".equals(event.event()) && event.data() != null) {
+            Long productId = event.data().getProductId();
+            if (productId == null) {
+                productCache.invalidateAll();
+            } else if ("DELETED".equals(event.data().getType())) {
+                productCache.evict(productId);
+            } else {
+                productCache.invalidate(productId);
+            }
+            log.debug("Cambio de producto recibido: {} {}", event.data().getType(), productId);
+        }
+    }
+
+    private Flux<ServerSentEvent<ProductChangeDto>> changes() {
+        return webClient.get()
+                .uri("/api/products/changes")
+                .header("X-API-KEY", apiKey)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                // Flujo de larga duración: el timeout de respuesta del conector (pensado para consultas
+                // puntuales) se sustituye por el de inactividad del flujo
+                .httpRequest(request -> {
+                    if (request.getNativeRequest() instanceof HttpClientRequest nativeRequest) {
+                        nativeRequest.responseTimeout(idleTimeout);
+                    }
+                })
+                .retrieve()
+                .bodyToFlux(CHANGE_EVENT);
+    }
+
+    @PreDestroy
+    void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+}
@@ -1,85 +1,211 @@
 package com.example.inventory_service.client;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import com.example.inventory_service.dto.JsonApiDocument;
+import com.example.inventory_service.dto.JsonApiResource;
 import com.example.inventory_service.dto.ProductDto;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
-import io.github.resilience4j.retry.annotation.Retry;
-import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
 import reactor.core.publisher.Mono;
 
+/**
+ * ProductsClient - Cliente HTTP no bloqueante del Products Service.
+ * Cada llamada devuelve un Mono: la E/S se resuelve en el event loop de Reactor Netty,
+ * sin ocupar hilos del common pool mientras se espera la respuesta.
+ * Resilience4j (instancia "productsClient") se aplica con sus operadores de Reactor, en el orden
+ * por defecto de Resilience4j: Retry(CircuitBreaker(Bulkhead(TimeLimiter(llamada)))).
+ * - El TimeLimiter acota cada intento.
+ * - El Bulkhead limita las llamadas concurrentes al Products Service; si está lleno, la llamada
+ *   falla al instante con BulkheadFullException.
+ * - El CircuitBreaker se abre con una tasa alta de fallos o de llamadas lentas y, mientras está
+ *   abierto, falla al instante con CallNotPermittedException (ProductCache sirve entonces la
+ *   última copia conocida). Los 404 no cuentan como fallo.
+ * - El Retry no reintenta esos dos rechazos (ver resilience4j.retry en la configuración).
+ * Las respuestas JSON:API se decodifican una sola vez, en streaming, por el códec Jackson del
+ * WebClient directamente a JsonApiDocument<...ProductDto> (sin Map intermedio ni convertValue).
+ * Cada ProductDto lleva el ETag de su recurso (cabecera ETag o 'meta.etag' en las colecciones),
+ * con el que revalidate() hace una petición condicional (If-None-Match): un 304 no trae cuerpo.
+ */
 @Component
 public class ProductsClient {
 
     private static final Logger log = LoggerFactory.getLogger(ProductsClient.class);
 
+    private static final String RESILIENCE_INSTANCE = "productsClient";
+
+    private static final ParameterizedTypeReference<JsonApiDocument<JsonApiResource<ProductDto>>> PRODUCT_DOCUMENT =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<JsonApiDocument<List<JsonApiResource<ProductDto>>>> PRODUCT_COLLECTION =
+            new ParameterizedTypeReference<>() {};
+
     private final WebClient webClient;
     private final String apiKey;
-    private final ObjectMapper objectMapper;
+    private final Retry retry;
+    private final TimeLimiter timeLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
 
     public ProductsClient(WebClient webClient,
                             @Value("${products.base-url}") String baseUrl,
                             @Value("${products.api-key}") String apiKey,
-                            ObjectMapper objectMapper){
-                            
+                            RetryRegistry retryRegistry,
+                            TimeLimiterRegistry timeLimiterRegistry,
+                            CircuitBreakerRegistry circuitBreakerRegistry,
+                            BulkheadRegistry bulkheadRegistry){
+
         this.webClient = webClient.mutate().baseUrl(baseUrl).build();
         this.apiKey = apiKey;
-        this.objectMapper = objectMapper;
+        this.retry = retryRegistry.retry(RESILIENCE_INSTANCE);
+        this.timeLimiter = timeLimiterRegistry.timeLimiter(RESILIENCE_INSTANCE);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(RESILIENCE_INSTANCE);
+        this.bulkhead = bulkheadRegistry.bulkhead(RESILIENCE_INSTANCE);
     }
 
-    @Retry(name = "productsClient", fallbackMethod = "fallbackGetProduct")
-    @TimeLimiter(name = "productsClient")
-    public CompletableFuture<ProductDto> getProductById(Long id) {
-        return CompletableFuture.supplyAsync(() -> {
-            log.info("🔗 Consultando producto {} en Products Service", id);
-            
-            Map<String, Object> JsonApiWrapper = webClient.get()
-                    .uri("/api/products/{id}", id) 
-                    .header("X-API-KEY", apiKey)
-                    .retrieve()
-                    
-                    // Manejo del 404 (NOT_FOUND)
-                    .onStatus(status -> status.isSameCodeAs(HttpStatus.NOT_FOUND), 
-                        response -> Mono.empty() 
-                    )
-                    // Esperamos el Wrapper de JSON:API
-                    .bodyToMono(Map.class)
-                    .block();
-            
-            // Si la respuesta fue 404 o el cuerpo estaba vacío
-            if (jsonApiWrapper == null || !jsonApiWrapper.containsKey("data")) {
-                return null;
-            }
+    /**
+     * Consulta un producto por su ID.
+     * @param id ID del producto.
+     * @return Mono con el ProductDto; vacío si el Products Service responde 404.
+     *         Cualquier otro error (tras los reintentos) se propaga como error del Mono.
+     */
+    public Mono<ProductDto> getProductById(Long id) {
+        return getProductById(id, null);
+    }
+
+    /**
+     * Revalida una copia cacheada de un producto con una petición condicional (If-None-Match).
+     * @param cached Producto cacheado; si no tiene ETag la petición es incondicional.
+     * @return Mono con el mismo objeto 'cached' si el Products Service responde 304, con el producto
+     *         actualizado si responde 200, o vacío si responde 404 (el producto se eliminó).
+     */
+    public Mono<ProductDto> revalidate(ProductDto cached) {
+        return getProductById(cached.getProductId(), cached);
+    }
 
-            Map<String, Object> dataBlock = (Map<String, Object>) jsonApiWrapper.get("data");
+    private Mono<ProductDto> getProductById(Long id, ProductDto cached) {
+        String etag = cached != null ? cached.getEtag() : null;
 
-            if (dataBlock == null || !dataBlock.containsKey("attributes")) {
-                log.error("❌ Respuesta JSON:API inválida para producto {}: Falta el bloque 'attributes'.", id);
-                return null;
-            }
-            Map<String, Object> attributes = (Map<String, Object>) dataBlock.get("attributes");
+        return webClient.get()
+                .uri("/api/products/{id}", id)
+                .header("X-API-KEY", apiKey)
+                .headers(headers -> {
+                    if (etag != null) {
+                        headers.setIfNoneMatch(etag);
+                    }
+                })
+                .retrieve()
+                // Esperamos el Wrapper de JSON:API, ya tipado (sin cuerpo si la respuesta es 304)
+                .toEntity(PRODUCT_DOCUMENT)
+                // Manejo del 404 (NOT_FOUND): producto inexistente, no es un error a reintentar
+                .onErrorResume(WebClientResponseException.NotFound.class, ex -> {
+                    log.warn("Producto {} no encontrado (404).", id);
+                    return Mono.empty();
+                })
+                .mapNotNull(response -> {
+                    if (cached != null && response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                        return cached;
+                    }
+                    return toProduct(id, response);
+                })
+                .doOnSubscribe(subscription -> log.info(etag != null
+                        ? "🔗 Revalidando producto {} en Products Service" : "🔗 Consultando producto {} en Products Service", id))
+                .transform(this::withResilience)
+                .doOnError(ex -> log.error("❌ Error al consultar producto {} en Products Service: {}", id, ex.getMessage()));
+    }
+
+    /**
+     * Consulta varios productos en una sola petición (GET /api/products?ids=1,2,3).
+     * @param ids IDs de los productos (máximo el límite por lote del Products Service).
+     * @return Mono con un mapa productId -> ProductDto; los IDs inexistentes no aparecen en el mapa.
+     */
+    public Mono<Map<Long, ProductDto>> getProductsByIds(Collection<Long> ids) {
+        String idsParam = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/products").queryParam("ids", idsParam).build())
+                .header("X-API-KEY", apiKey)
+                .retrieve()
+                .bodyToMono(PRODUCT_COLLECTION)
+                .map(this::toProducts)
+                .defaultIfEmpty(Map.of())
+                .doOnSubscribe(subscription -> log.info("🔗 Consultando lote de {} productos en Products Service", ids.size()))
+                .transform(this::withResilience)
+                .doOnError(ex -> log.error("❌ Error al consultar lote de {} productos en Products Service: {}", ids.size(), ex.getMessage()));
+    }
 
-            return objectMapper.convertValue(attributes, ProductDto.class);
-        });
+    private <T> Mono<T> withResilience(Mono<T> call) {
+        return call
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry));
     }
 
-    @SuppressWarnings("unused")
-    private CompletableFuture<ProductDto> fallbackGetProduct(Long id, Throwable ex) {
-        if (ex instanceof WebClientResponseException wcre && wcre.getStatusCode() == HttpStatus.NOT_FOUND) {
-                log.warn("Producto {} no encontrado (404) y se devolvió null en fallback.", id);
-                return CompletableFuture.completedFuture(null);
+    private ProductDto toProduct(Long id, ResponseEntity<JsonApiDocument<JsonApiResource<ProductDto>>> response) {
+        JsonApiDocument<JsonApiResource<ProductDto>> document = response.getBody();
+        JsonApiResource<ProductDto> resource = document != null ? document.getData() : null;
+
+        if (resource == null || resource.getAttributes() == null) {
+            log.error("❌ Respuesta JSON:API inválida para producto {}: Falta el bloque 'attributes'.", id);
+            return null;
+        }
+        ProductDto product = withResourceId(resource);
+        product.setEtag(response.getHeaders().getETag());
+        return product;
+    }
+
+    private Map<Long, ProductDto> toProducts(JsonApiDocument<List<JsonApiResource<ProductDto>>> document) {
+        Map<Long, ProductDto> products = new HashMap<>();
+        if (document.getData() == null) {
+            return products;
+        }
+
+        for (JsonApiResource<ProductDto> resource : document.getData()) {
+            if (resource.getAttributes() != null) {
+                ProductDto product = withResourceId(resource);
+                products.put(product.getProductId(), product);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * El 'id' del recurso JSON:API es la fuente de verdad del productId.
+     * El ETag, si viene, está en el 'meta' del recurso (colecciones).
+     */
+    private ProductDto withResourceId(JsonApiResource<ProductDto> resource) {
+        ProductDto product = resource.getAttributes();
+        if (resource.getId() != null) {
+            product.setProductId(Long.valueOf(resource.getId()));
+        }
+        if (resource.getMeta() != null) {
+            product.setEtag(resource.getMeta().getEtag());
         }
-        
-        log.error("❌ Error al consultar producto {} en Products Service. Fallback activado: {}", id, ex.getMessage());
-        return CompletableFuture.completedFuture(null);
+        return product;
     }
-}
\ No newline at end of file
+}
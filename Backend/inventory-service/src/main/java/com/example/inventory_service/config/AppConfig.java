@@ -1,9 +1,18 @@
 package com.example.inventory_service.config;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
 // Importaciones necesarias para Swagger/OpenAPI
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeIn;
@@ -28,8 +37,54 @@ import io.swagger.v3.oas.annotations.security.SecurityScheme;
 @Configuration
 public class AppConfig {
 
+    /**
+     * Pool de conexiones hacia el Products Service (products.http.pool.*).
+     * - LIFO: se reutiliza primero la conexión usada más recientemente (caliente); las que sobran
+     *   tras un pico envejecen y el desalojo en segundo plano las cierra al superar max-idle-time.
+     * - Si el pool está lleno, la petición espera una conexión como mucho pending-acquire-timeout.
+     * - Métricas en Micrometer: reactor.netty.connection.provider.* (total, activas, ociosas y
+     *   pendientes de conexión, con el nombre de pool "products").
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider productsConnectionProvider(
+            @Value("${products.http.pool.max-connections:100}") int maxConnections,
+            @Value("${products.http.pool.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${products.http.pool.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${products.http.pool.max-life-time:10m}") Duration maxLifeTime) {
+        return ConnectionProvider.builder("products")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(maxIdleTime)
+                .lifo()
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * WebClient a partir del builder de Spring Boot: sus códecs Jackson usan el ObjectMapper
+     * de la aplicación para decodificar los documentos JSON:API tipados.
+     * El conector Reactor Netty usa el pool anterior, con timeouts de conexión y de respuesta,
+     * compresión gzip de las respuestas y los protocolos de products.http.protocols
+     * (HTTP11, H2C para HTTP/2 sin TLS; con ambos se negocia el upgrade y, si el servidor no lo
+     * acepta, se sigue en HTTP/1.1).
+     */
     @Bean
-    public WebClient webClient() {
-        return WebClient.create();
+    public WebClient webClient(WebClient.Builder webClientBuilder,
+                               ConnectionProvider productsConnectionProvider,
+                               @Value("${products.http.connect-timeout:1s}") Duration connectTimeout,
+                               @Value("${products.http.response-timeout:3s}") Duration responseTimeout,
+                               @Value("${products.http.protocols:HTTP11}") HttpProtocol[] protocols) {
+        HttpClient httpClient = HttpClient.create(productsConnectionProvider)
+                .protocol(protocols)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout)
+                .keepAlive(true)
+                .compress(true);
+
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
     }
 }
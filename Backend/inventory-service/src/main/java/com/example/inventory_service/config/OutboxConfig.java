@@ -0,0 +1,25 @@
+package com.example.inventory_service.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.example.inventory_service.event.LocalStockEventPublisher;
+import com.example.inventory_service.event.StockEventPublisher;
+
+/**
+ * OutboxConfig - Activa las tareas programadas (StockEventRelay) y registra el publicador
+ * local de eventos de stock si no se ha declarado otro.
+ */
+@Configuration
+@EnableScheduling
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(StockEventPublisher.class)
+    public StockEventPublisher stockEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        return new LocalStockEventPublisher(applicationEventPublisher);
+    }
+}
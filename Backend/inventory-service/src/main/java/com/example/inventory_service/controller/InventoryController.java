@@ -1,24 +1,53 @@
 package com.example.inventory_service.controller;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.inventory_service.dto.BulkInventoryUpdateDto;
 import com.example.inventory_service.dto.InventoryUpdateDto;
+import com.example.inventory_service.dto.ReservationRequestDto;
+import com.example.inventory_service.dto.ReservationResponseDto;
+import com.example.inventory_service.dto.StockAtDto;
+import com.example.inventory_service.dto.StockLevelDto;
 import com.example.inventory_service.dto.StockResponseDto;
+import com.example.inventory_service.event.StockChangedEvent;
+import com.example.inventory_service.event.StockLevelStream;
+import com.example.inventory_service.exception.BulkInsufficientStockException;
+import com.example.inventory_service.exception.IdempotencyKeyReusedException;
+import com.example.inventory_service.exception.IdempotentRequestInProgressException;
+import com.example.inventory_service.exception.IdempotentRequestOutcomeUnknownException;
 import com.example.inventory_service.exception.InsufficientStockException;
+import com.example.inventory_service.exception.InvalidRequestException;
 import com.example.inventory_service.exception.ProductNotFoundException;
+import com.example.inventory_service.exception.ProductsUnavailableException;
+import com.example.inventory_service.exception.ReservationNotFoundException;
+import com.example.inventory_service.exception.StockHistoryNotFoundException;
 import com.example.inventory_service.mapper.InventoryMapper;
+import com.example.inventory_service.service.IdempotencyStore;
 import com.example.inventory_service.service.InventoryService;
+import com.example.inventory_service.service.ReservationService;
+import com.example.inventory_service.service.StockHistoryService;
+import com.example.inventory_service.util.JsonApiCollection;
 import com.example.inventory_service.util.JsonApiUtil;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -26,6 +55,7 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import reactor.core.publisher.Flux;
 
 @RestController
 @RequestMapping("/api/inventory")
@@ -34,10 +64,20 @@ public class InventoryController {
     
     private final InventoryService inventoryService;
     private final InventoryMapper inventoryMapper; 
+    private final StockLevelStream stockLevelStream;
+    private final ReservationService reservationService;
+    private final IdempotencyStore idempotencyStore;
+    private final StockHistoryService stockHistoryService;
 
-    public InventoryController(InventoryService inventoryService, InventoryMapper inventoryMapper) {
+    public InventoryController(InventoryService inventoryService, InventoryMapper inventoryMapper,
+                               StockLevelStream stockLevelStream, ReservationService reservationService,
+                               IdempotencyStore idempotencyStore, StockHistoryService stockHistoryService) {
         this.inventoryService = inventoryService;
         this.inventoryMapper = inventoryMapper;
+        this.stockLevelStream = stockLevelStream;
+        this.reservationService = reservationService;
+        this.idempotencyStore = idempotencyStore;
+        this.stockHistoryService = stockHistoryService;
     }
 
     /**
@@ -46,41 +86,323 @@ public class InventoryController {
      */
     @Operation(
         summary = "Consultar Stock por ID de Producto",
-        description = "Verifica la existencia del producto en el servicio de Productos y retorna el stock disponible localmente."
+        description = "Verifica la existencia del producto en el servicio de Productos y retorna el stock disponible localmente. "
+            + "Con fields[inventory]=quantity solo se consulta el inventario local."
     )
     @ApiResponse(responseCode = "200", description = "Stock encontrado y producto existe.")
     @GetMapping("/{productId}")
     public ResponseEntity<Map<String, Object>> getStockByProductId(
         @Parameter(description = "ID único del producto a consultar") 
-        @PathVariable Long productId) {
+        @PathVariable Long productId,
+        @Parameter(description = "JSON:API sparse fieldsets. Con solo productId, quantity y/o productExists (ej: fields[inventory]=quantity) "
+            + "se responde sin consultar el servicio de Productos y sin los metadatos del producto.")
+        @RequestParam(name = "fields[inventory]", required = false) Set<String> fields) {
         
-        StockResponseDto stock = inventoryService.checkStock(productId);
+        StockResponseDto stock = inventoryService.checkStock(productId, fields);
         
         return ResponseEntity.ok(JsonApiUtil.single(productId, "inventory", stock));
     }
     
     
+    /**
+     * GET /api/inventory?productIds=1,2,3
+     * Consultar el stock de varios productos en una sola petición (ej: una página del catálogo). Respuesta JSON:API.
+     */
+    @Operation(
+        summary = "Consultar Stock de Varios Productos",
+        description = "Retorna el stock de hasta " + InventoryService.MAX_BATCH_IDS + " productos con una sola consulta al inventario y una sola consulta en lote al servicio de Productos. Los productos inexistentes se devuelven con productExists = false."
+    )
+    @ApiResponse(responseCode = "200", description = "Stock de los productos solicitados, en el mismo orden.")
+    @ApiResponse(responseCode = "400", description = "Sin ids, con ids vacíos o con más productos de los permitidos por petición.")
+    @GetMapping(params = "productIds")
+    public ResponseEntity<JsonApiCollection<StockResponseDto>> getStockByProductIds(
+        @Parameter(description = "IDs de los productos a consultar, separados por comas")
+        @RequestParam List<Long> productIds) {
+
+        List<StockResponseDto> stocks = inventoryService.checkStocks(productIds);
+
+        return ResponseEntity.ok(JsonApiUtil.collection(stocks, StockResponseDto::getProductId, "inventory"));
+    }
+
+    /**
+     * GET /api/inventory/stream?productIds=1,2,3
+     * Flujo Server-Sent Events con el stock de los productos suscritos cada vez que cambia.
+     * Cada evento 'stock' lleva como id el id del evento de stock (creciente por producto) y como
+     * datos { productId, quantity, productExists }. Las ráfagas se agrupan en el último valor.
+     */
+    @Operation(
+        summary = "Suscribirse a Cambios de Stock (SSE)",
+        description = "Envía el stock de los productos indicados (hasta " + InventoryService.MAX_BATCH_IDS + ") cada vez que cambia, "
+            + "en lugar de consultarlo periódicamente. Solo se envían cambios: el valor inicial se obtiene con GET /api/inventory?productIds=..."
+    )
+    @ApiResponse(responseCode = "200", description = "Flujo de eventos abierto.")
+    @ApiResponse(responseCode = "400", description = "Sin ids, con ids vacíos o con más productos de los permitidos por suscripción.")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<StockResponseDto>> streamStock(
+        @Parameter(description = "IDs de los productos a seguir, separados por comas")
+        @RequestParam List<Long> productIds) {
+
+        // Set.copyOf no admite nulos (ej: "1,,2") y sin ids el flujo no tendría qué seguir
+        if (productIds.isEmpty() || productIds.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidRequestException("Se debe indicar al menos un id de producto, sin ids vacíos.");
+        }
+        Set<Long> ids = Set.copyOf(productIds);
+        if (ids.size() > InventoryService.MAX_BATCH_IDS) {
+            throw new InvalidRequestException("No se pueden seguir más de " + InventoryService.MAX_BATCH_IDS + " productos por suscripción.");
+        }
+
+        Flux<ServerSentEvent<StockResponseDto>> changes = stockLevelStream.subscribe(ids).map(this::toStockEvent);
+        Flux<ServerSentEvent<StockResponseDto>> heartbeats = stockLevelStream.heartbeats()
+            .map(tick -> ServerSentEvent.<StockResponseDto>builder().comment("heartbeat").build());
+        return Flux.merge(changes, heartbeats);
+    }
+
+    private ServerSentEvent<StockResponseDto> toStockEvent(StockChangedEvent event) {
+        return ServerSentEvent.<StockResponseDto>builder()
+            .id(String.valueOf(event.getEventId()))
+            .event("stock")
+            .data(StockResponseDto.builder()
+                .productId(event.getProductId())
+                .quantity(event.getNewQuantity())
+                .productExists(true)
+                .build())
+            .build();
+    }
+
+    /**
+     * GET /api/inventory/{productId}/history?from=...&to=...&resolution=hour
+     * Nivel de stock de un producto por hora o por día (apertura, mínimo, máximo, cierre y cambios). Respuesta JSON:API.
+     */
+    @Operation(
+        summary = "Consultar Historial de Stock",
+        description = "Devuelve el nivel de stock en cada hora o día (UTC) del rango, calculado a partir de los resúmenes horarios. "
+            + "Los intervalos sin cambios repiten el cierre anterior. Rango máximo: 31 días por hora, 366 días por día."
+    )
+    @ApiResponse(responseCode = "200", description = "Niveles de stock del rango, en orden")
+    @ApiResponse(responseCode = "400", description = "Rango inválido o superior al máximo de la resolución")
+    @GetMapping("/{productId}/history")
+    public ResponseEntity<JsonApiCollection<StockLevelDto>> getStockHistory(
+        @Parameter(description = "ID único del producto")
+        @PathVariable Long productId,
+        @Parameter(description = "Inicio del rango (ISO-8601, ej: 2025-01-01T00:00:00Z)")
+        @RequestParam Instant from,
+        @Parameter(description = "Fin del rango, excluido (ISO-8601)")
+        @RequestParam Instant to,
+        @Parameter(description = "Resolución: hour o day")
+        @RequestParam(defaultValue = "hour") StockHistoryService.Resolution resolution) {
+
+        List<StockLevelDto> levels = stockHistoryService.levels(productId, from, to, resolution);
+
+        return ResponseEntity.ok(JsonApiUtil.collection(levels, StockLevelDto::getFrom, "stock-levels"));
+    }
+
+    /**
+     * GET /api/inventory/{productId}/history/at?time=...
+     * Cantidad en stock de un producto en un instante pasado. Respuesta JSON:API.
+     */
+    @Operation(
+        summary = "Consultar Stock en un Instante",
+        description = "Devuelve la cantidad en stock del producto en el instante indicado, según el historial de cambios."
+    )
+    @ApiResponse(responseCode = "200", description = "Cantidad en el instante indicado")
+    @ApiResponse(responseCode = "404", description = "No hay historial del producto en ese instante (anterior a su primer cambio registrado)")
+    @GetMapping("/{productId}/history/at")
+    public ResponseEntity<Map<String, Object>> getStockAt(
+        @Parameter(description = "ID único del producto")
+        @PathVariable Long productId,
+        @Parameter(description = "Instante a consultar (ISO-8601, ej: 2025-01-01T12:30:00Z)")
+        @RequestParam Instant time) {
+
+        StockAtDto stock = stockHistoryService.levelAt(productId, time);
+
+        return ResponseEntity.ok(JsonApiUtil.single(productId, "inventory", stock));
+    }
+
     /**
      * POST /api/inventory/{productId}/update
      * Actualizar la cantidad disponible. Respuesta JSON:API.
+     * Con Idempotency-Key, los reintentos de la misma petición devuelven la respuesta original sin
+     * volver a aplicar el cambio (cabecera Idempotent-Replayed: true).
      */
     @Operation(
         summary = "Actualizar Stock (Compra/Reposición)",
-        description = "Modifica la cantidad de stock para un producto. Usar valores negativos para compras y positivos para reposición."
+        description = "Modifica la cantidad de stock para un producto. Usar valores negativos para compras y positivos para reposición. "
+            + "Con la cabecera Idempotency-Key el cambio se aplica una sola vez aunque la petición se reintente."
     )
-    @ApiResponse(responseCode = "200", description = "Stock actualizado correctamente")
+    @ApiResponse(responseCode = "200", description = "Stock actualizado correctamente (o respuesta original de un reintento)")
+    @ApiResponse(responseCode = "409", description = "La petición original con el mismo Idempotency-Key sigue en curso, o falló con el cambio posiblemente aplicado")
+    @ApiResponse(responseCode = "422", description = "El Idempotency-Key ya se usó con otro producto u otra cantidad")
     @PostMapping("/{productId}/update")
     public ResponseEntity<Map<String, Object>> updateStock(
             @Parameter(description = "ID único del producto a actualizar")
             @PathVariable Long productId,
+            @Parameter(description = "Clave única de la compra o reposición (ej: un UUID por intento lógico), reutilizada en sus reintentos")
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
             @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Cantidad a modificar (negativo para compra)")
             @Valid @RequestBody InventoryUpdateDto updateDto) {
-        
-        StockResponseDto stockResponse = inventoryService.updateInventory(productId, updateDto.getChangeQuantity());
-        
-        return ResponseEntity.status(HttpStatus.OK).body(JsonApiUtil.single(productId, "inventory", stockResponse));
+
+        if (idempotencyKey == null) {
+            StockResponseDto stockResponse = inventoryService.updateInventory(productId, updateDto.getChangeQuantity());
+            return ResponseEntity.status(HttpStatus.OK).body(JsonApiUtil.single(productId, "inventory", stockResponse));
+        }
+
+        IdempotencyStore.Result result = idempotencyStore.execute(idempotencyKey, productId, updateDto.getChangeQuantity(),
+            () -> inventoryService.updateInventory(productId, updateDto.getChangeQuantity()));
+
+        return ResponseEntity.status(HttpStatus.OK)
+            .header("Idempotent-Replayed", String.valueOf(result.replayed()))
+            .body(JsonApiUtil.single(productId, "inventory", result.response()));
     }
     
+    /**
+     * POST /api/inventory/bulk-update
+     * Actualizar el stock de todas las líneas de un pedido en una sola transacción. Respuesta JSON:API.
+     */
+    @Operation(
+        summary = "Actualizar Stock en Lote (Pedido)",
+        description = "Aplica todas las líneas de un pedido de forma atómica: o se aplican todas o ninguna. Las líneas del mismo producto se suman."
+    )
+    @ApiResponse(responseCode = "200", description = "Stock de todas las líneas actualizado correctamente")
+    @ApiResponse(responseCode = "400", description = "Una o varias líneas sin stock suficiente (un error por línea); no se aplica ninguna")
+    @PostMapping("/bulk-update")
+    public ResponseEntity<JsonApiCollection<StockResponseDto>> updateStockBulk(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Líneas del pedido (productId y cantidad a modificar)")
+            @Valid @RequestBody BulkInventoryUpdateDto bulkUpdateDto) {
+
+        List<StockResponseDto> stocks = inventoryService.updateInventoryBulk(bulkUpdateDto.getItems());
+
+        return ResponseEntity.ok(JsonApiUtil.collection(stocks, StockResponseDto::getProductId, "inventory"));
+    }
+
+    /**
+     * POST /api/inventory/{productId}/reservations
+     * Reservar unidades de un producto durante un tiempo, sin descontarlas todavía. Respuesta JSON:API.
+     */
+    @Operation(
+        summary = "Reservar Stock",
+        description = "Retiene unidades del stock disponible hasta que la reserva se confirme, se libere o expire. "
+            + "Mientras tanto no se pueden comprar ni reservar de nuevo."
+    )
+    @ApiResponse(responseCode = "201", description = "Reserva creada; incluye su id y su expiración")
+    @ApiResponse(responseCode = "400", description = "Stock disponible insuficiente o duración superior a la máxima")
+    @PostMapping("/{productId}/reservations")
+    public ResponseEntity<Map<String, Object>> reserveStock(
+            @Parameter(description = "ID único del producto a reservar")
+            @PathVariable Long productId,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Unidades a reservar y duración opcional en segundos")
+            @Valid @RequestBody ReservationRequestDto reservationDto) {
+
+        ReservationResponseDto reservation = reservationService.reserve(productId, reservationDto.getQuantity(), reservationDto.getTtlSeconds());
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .body(JsonApiUtil.single(reservation.getReservationId(), "reservations", reservation));
+    }
+
+    /**
+     * POST /api/inventory/reservations/{reservationId}/confirm
+     * Confirmar una reserva: sus unidades se descuentan del stock. Respuesta JSON:API.
+     */
+    @Operation(
+        summary = "Confirmar Reserva",
+        description = "Descuenta del stock las unidades reservadas (ej: al completar el pago)."
+    )
+    @ApiResponse(responseCode = "200", description = "Reserva confirmada; devuelve el stock resultante")
+    @ApiResponse(responseCode = "404", description = "La reserva no existe, ya se confirmó o liberó, o expiró")
+    @PostMapping("/reservations/{reservationId}/confirm")
+    public ResponseEntity<Map<String, Object>> confirmReservation(
+            @Parameter(description = "ID de la reserva")
+            @PathVariable UUID reservationId) {
+
+        StockResponseDto stock = reservationService.confirm(reservationId);
+
+        return ResponseEntity.ok(JsonApiUtil.single(stock.getProductId(), "inventory", stock));
+    }
+
+    /**
+     * DELETE /api/inventory/reservations/{reservationId}
+     * Liberar una reserva antes de que expire (ej: carrito abandonado o vaciado).
+     */
+    @Operation(
+        summary = "Liberar Reserva",
+        description = "Devuelve al stock disponible las unidades reservadas."
+    )
+    @ApiResponse(responseCode = "204", description = "Reserva liberada")
+    @ApiResponse(responseCode = "404", description = "La reserva no existe, ya se confirmó o liberó, o expiró")
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(
+            @Parameter(description = "ID de la reserva")
+            @PathVariable UUID reservationId) {
+
+        reservationService.release(reservationId);
+
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Manejador de excepción para Reserva No Encontrada (404). Devuelve JSON:API de error.
+     */
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ExceptionHandler(ReservationNotFoundException.class)
+    public Map<String, Object> handleReservationNotFound(ReservationNotFoundException ex) {
+        return JsonApiUtil.error(
+            String.valueOf(HttpStatus.NOT_FOUND.value()), // status
+            "Recurso no encontrado", // title
+            ex.getMessage() // detail
+        );
+    }
+
+    /**
+     * Manejador de excepción para Idempotency-Key reutilizado con otra petición (422). Devuelve JSON:API de error.
+     */
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public Map<String, Object> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+        return JsonApiUtil.error(
+            String.valueOf(HttpStatus.UNPROCESSABLE_ENTITY.value()), // status
+            "Idempotency-Key reutilizado", // title
+            ex.getMessage() // detail
+        );
+    }
+
+    /**
+     * Manejador de excepción para petición idempotente aún en curso (409). Devuelve JSON:API de error.
+     */
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(IdempotentRequestInProgressException.class)
+    public Map<String, Object> handleIdempotentRequestInProgress(IdempotentRequestInProgressException ex) {
+        return JsonApiUtil.error(
+            String.valueOf(HttpStatus.CONFLICT.value()), // status
+            "Petición en curso", // title
+            ex.getMessage() // detail
+        );
+    }
+
+    /**
+     * Manejador de excepción para petición idempotente con resultado desconocido (409). Devuelve JSON:API de error.
+     */
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(IdempotentRequestOutcomeUnknownException.class)
+    public Map<String, Object> handleIdempotentRequestOutcomeUnknown(IdempotentRequestOutcomeUnknownException ex) {
+        return JsonApiUtil.error(
+            String.valueOf(HttpStatus.CONFLICT.value()), // status
+            "Resultado desconocido", // title
+            ex.getMessage() // detail
+        );
+    }
+
+    /**
+     * Manejador de excepción para Historial de Stock No Encontrado (404). Devuelve JSON:API de error.
+     */
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ExceptionHandler(StockHistoryNotFoundException.class)
+    public Map<String, Object> handleStockHistoryNotFound(StockHistoryNotFoundException ex) {
+        return JsonApiUtil.error(
+            String.valueOf(HttpStatus.NOT_FOUND.value()), // status
+            "Recurso no encontrado", // title
+            ex.getMessage() // detail
+        );
+    }
+
     /**
      * Manejador de excepción para Producto No Encontrado (404). Devuelve JSON:API de error.
      */
@@ -94,6 +416,20 @@ public class InventoryController {
         );
     }
     
+    /**
+     * Manejador de excepción para Products Service no disponible (503). Devuelve JSON:API de error.
+     * No se sabe si el producto existe: el cliente puede reintentar más tarde.
+     */
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(ProductsUnavailableException.class)
+    public Map<String, Object> handleProductsUnavailable(ProductsUnavailableException ex) {
+        return JsonApiUtil.error(
+            String.valueOf(HttpStatus.SERVICE_UNAVAILABLE.value()), // status
+            "Servicio no disponible", // title
+            ex.getMessage() // detail
+        );
+    }
+
     /**
      * Manejador de excepción para Stock Insuficiente (400 Bad Request). Devuelve JSON:API de error.
      */
@@ -106,4 +442,31 @@ public class InventoryController {
             ex.getMessage() // detail
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Manejador de excepción para Stock Insuficiente en una actualización masiva (400 Bad Request).
+     * Devuelve un error JSON:API por cada línea rechazada.
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(BulkInsufficientStockException.class)
+    public Map<String, Object> handleBulkInsufficientStock(BulkInsufficientStockException ex) {
+        return JsonApiUtil.errors(
+            String.valueOf(HttpStatus.BAD_REQUEST.value()), // status
+            "Solicitud inválida", // title
+            ex.getLineErrors() // detail por línea
+        );
+    }
+
+    /**
+     * Manejador de excepción para peticiones inválidas (400 Bad Request), ej: demasiados productos.
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidRequestException.class)
+    public Map<String, Object> handleInvalidRequest(InvalidRequestException ex) {
+        return JsonApiUtil.error(
+            String.valueOf(HttpStatus.BAD_REQUEST.value()), // status
+            "Solicitud inválida", // title
+            ex.getMessage() // detail
+        );
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.inventory_service.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * BulkInventoryUpdateDto - Cambios de stock de un pedido completo (una línea por producto).
+ */
+@Data
+public class BulkInventoryUpdateDto {
+
+    public static final int MAX_ITEMS = 500;
+
+    @NotEmpty(message = "El pedido debe incluir al menos una línea")
+    @Size(max = MAX_ITEMS, message = "El pedido no puede superar " + MAX_ITEMS + " líneas")
+    private List<@Valid @NotNull Item> items;
+
+    @Data
+    public static class Item {
+        @NotNull(message = "El ID del producto no puede ser nulo")
+        private Long productId;
+
+        @NotNull(message = "La cantidad a modificar no puede ser nula")
+        private Integer changeQuantity; // Puede ser positivo (restock) o negativo (compra)
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.inventory_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * JsonApiDocument - Documento JSON:API tipado ({ "data": ... }).
+ * 'data' es un JsonApiResource para un recurso único o una lista de ellos para colecciones.
+ * Los bloques 'meta', 'links' o 'errors' se ignoran al deserializar.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class JsonApiDocument<D> {
+    private D data;
+}
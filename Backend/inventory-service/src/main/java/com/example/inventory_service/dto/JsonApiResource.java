@@ -0,0 +1,34 @@
+package com.example.inventory_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * JsonApiResource - Objeto de recurso JSON:API tipado ({ "id", "type", "attributes", "meta" }).
+ * Jackson enlaza 'attributes' directamente al DTO indicado, sin pasar por un Map intermedio.
+ * 'meta' es opcional; el Products Service incluye en él el ETag de cada recurso de una colección.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class JsonApiResource<T> {
+    private String id;
+    private String type;
+    private T attributes;
+    private Meta meta;
+
+    /**
+     * Bloque 'meta' de un recurso.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Meta {
+        private String etag;
+    }
+}
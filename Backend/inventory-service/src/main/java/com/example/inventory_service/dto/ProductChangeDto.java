@@ -0,0 +1,20 @@
+package com.example.inventory_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ProductChangeDto - Evento 'product-changed' del flujo GET /api/products/changes del Products Service.
+ * type: CREATED, UPDATED, DELETED o RESET; productId nulo indica que pudo cambiar cualquier producto.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductChangeDto {
+    private String type;
+    private Long productId;
+}
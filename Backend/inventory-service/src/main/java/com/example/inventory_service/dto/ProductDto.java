@@ -2,6 +2,9 @@ package com.example.inventory_service.dto;
 
 import java.math.BigDecimal;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,11 +15,30 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductDto {
+    @JsonAlias("id") // Products Service expone el identificador como 'id'
     private Long productId; // Debe estar para mapear la respuesta
     private String name;
     private String description;
     private BigDecimal price;
     private String sku;
 
-    
+    // ETag del recurso en Products Service; no forma parte de los atributos JSON:API.
+    // Se usa para revalidar la copia cacheada con If-None-Match.
+    @JsonIgnore
+    private String etag;
+
+    // true si es la última copia conocida, servida porque el Products Service no está disponible
+    @JsonIgnore
+    private boolean stale;
+
+    public ProductDto(Long productId, String name, String description, BigDecimal price, String sku) {
+        this(productId, name, description, price, sku, null, false);
+    }
+
+    /**
+     * Copia de este producto marcada como stale (la caché conserva la original).
+     */
+    public ProductDto asStale() {
+        return new ProductDto(productId, name, description, price, sku, etag, true);
+    }
 }
@@ -0,0 +1,19 @@
+package com.example.inventory_service.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+/**
+ * ReservationRequestDto - Unidades a reservar de un producto y durante cuánto tiempo.
+ */
+@Data
+public class ReservationRequestDto {
+    @NotNull(message = "La cantidad a reservar no puede ser nula")
+    @Positive(message = "La cantidad a reservar debe ser positiva")
+    private Integer quantity;
+
+    // Opcional: si no se indica se usa inventory.reservations.default-ttl (acotado por max-ttl)
+    @Positive(message = "La duración de la reserva debe ser positiva")
+    private Long ttlSeconds;
+}
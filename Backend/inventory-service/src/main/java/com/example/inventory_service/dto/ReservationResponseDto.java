@@ -0,0 +1,20 @@
+package com.example.inventory_service.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * ReservationResponseDto - Reserva activa: sus unidades no se pueden comprar ni reservar hasta
+ * que se confirme, se libere o llegue expiresAt.
+ */
+@Data
+@Builder
+public class ReservationResponseDto {
+    private UUID reservationId;
+    private Long productId;
+    private Integer quantity;
+    private Instant expiresAt;
+}
@@ -0,0 +1,17 @@
+package com.example.inventory_service.dto;
+
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * StockAtDto - Cantidad en stock de un producto en un instante pasado.
+ */
+@Data
+@Builder
+public class StockAtDto {
+    private Long productId;
+    private Instant at;
+    private Integer quantity;
+}
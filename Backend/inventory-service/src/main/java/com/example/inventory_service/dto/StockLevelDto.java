@@ -0,0 +1,24 @@
+package com.example.inventory_service.dto;
+
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * StockLevelDto - Nivel de stock de un producto en un intervalo [from, to): cantidad al inicio
+ * (open), mínima, máxima y al final (close), y número de cambios. Sin cambios en el intervalo,
+ * las cuatro cantidades son la del intervalo anterior.
+ */
+@Data
+@Builder
+public class StockLevelDto {
+    private Long productId;
+    private Instant from;
+    private Instant to;
+    private Integer openQuantity;
+    private Integer minQuantity;
+    private Integer maxQuantity;
+    private Integer closeQuantity;
+    private Integer changes;
+}
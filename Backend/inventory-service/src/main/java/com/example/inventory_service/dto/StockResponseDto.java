@@ -2,19 +2,28 @@ package com.example.inventory_service.dto;
 
 import java.math.BigDecimal;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.Builder;
 import lombok.Data;
 
 @Data
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL) // En modo ligero (sparse fieldsets) se omiten los metadatos del producto
 public class StockResponseDto {
     private Long productId;
     private Integer quantity;
     private boolean productExists;
+    // Stock que se puede comprar o reservar (quantity menos las reservas activas)
+    private Integer available;
 
      // Datos del Producto (Añadidos de ProductDto)
     private String name;
     private String description;
     private BigDecimal price; // Usar el tipo de dato correcto
     private String sku;
+
+    // Solo presente (true) si los datos del producto son la última copia conocida porque el
+    // Products Service no está disponible (circuito abierto)
+    private Boolean productStale;
 }
@@ -0,0 +1,27 @@
+package com.example.inventory_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * HotStockCheckpoint - Última secuencia del diario de HotStockTier ya aplicada al inventario.
+ * Se actualiza en la misma transacción que los cambios volcados, así que tras una caída se
+ * reaplican exactamente los registros del diario con secuencia posterior.
+ */
+@Entity
+@Table(name = "hot_stock_checkpoint")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotStockCheckpoint {
+    @Id
+    private Long id;
+
+    @Column(nullable=false)
+    private Long lastSequence;
+}
@@ -1,5 +1,7 @@
 package com.example.inventory_service.entity;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -12,6 +14,8 @@ import lombok.NoArgsConstructor;
 /**
  * Inventory - Entidad de inventario de productos en la base de datos
  * representa una tabla en la base de datos
+ * El stock disponible es quantity - reserved: las unidades retenidas por reservas activas
+ * (StockReservation) siguen en quantity hasta que la reserva se confirma.
  */
 @Entity
 @Table(name = "inventories")
@@ -27,8 +31,20 @@ public class Inventory {
     @Column(nullable=false)
     private Integer quantity;
 
+    // Unidades retenidas por reservas activas (el DEFAULT cubre las filas ya existentes y los INSERT nativos)
+    @Column(nullable=false)
+    @ColumnDefault("0")
+    private Integer reserved = 0;
+
     public Inventory(Long productId, Integer quantity){
         this.productId = productId;
         this.quantity = quantity;
     }
+
+    /**
+     * Stock que se puede comprar o reservar: el total menos lo reservado.
+     */
+    public int getAvailable() {
+        return quantity - reserved;
+    }
 }
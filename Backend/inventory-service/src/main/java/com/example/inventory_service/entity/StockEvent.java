@@ -0,0 +1,49 @@
+package com.example.inventory_service.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * StockEvent - Fila de la tabla outbox de eventos de cambio de stock.
+ * Se inserta en la misma transacción que el cambio de inventario, así que un evento existe
+ * si y solo si el cambio se confirmó. StockEventRelay las publica en orden de id y las borra.
+ */
+@Entity
+@Table(name = "stock_event_outbox")
+@Data
+@NoArgsConstructor
+public class StockEvent {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable=false)
+    private Long productId;
+
+    @Column(nullable=false)
+    private Integer oldQuantity;
+
+    @Column(nullable=false)
+    private Integer newQuantity;
+
+    @Column(nullable=false)
+    private Integer changeQuantity;
+
+    @Column(nullable=false)
+    private Instant createdAt;
+
+    public StockEvent(Long productId, Integer oldQuantity, Integer newQuantity, Integer changeQuantity, Instant createdAt){
+        this.productId = productId;
+        this.oldQuantity = oldQuantity;
+        this.newQuantity = newQuantity;
+        this.changeQuantity = changeQuantity;
+        this.createdAt = createdAt;
+    }
+}
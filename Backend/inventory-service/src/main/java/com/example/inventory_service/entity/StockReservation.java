@@ -0,0 +1,48 @@
+package com.example.inventory_service.entity;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * StockReservation - Reserva activa de unidades de un producto hasta expiresAt.
+ * Mientras existe, sus unidades cuentan en Inventory.reserved. Al confirmarla, liberarla o
+ * expirar (ReservationSweeper) la fila se borra en la misma transacción que ajusta el inventario.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = @Index(name = "idx_stock_reservations_expires_at", columnList = "expiresAt"))
+@Data
+@NoArgsConstructor
+public class StockReservation {
+    // UUID: el id se entrega al cliente (carrito) y no debe ser adivinable
+    @Id @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable=false)
+    private Long productId;
+
+    @Column(nullable=false)
+    private Integer quantity;
+
+    @Column(nullable=false)
+    private Instant createdAt;
+
+    @Column(nullable=false)
+    private Instant expiresAt;
+
+    public StockReservation(Long productId, Integer quantity, Instant createdAt, Instant expiresAt){
+        this.productId = productId;
+        this.quantity = quantity;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+}
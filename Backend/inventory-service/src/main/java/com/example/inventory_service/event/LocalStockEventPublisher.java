@@ -0,0 +1,22 @@
+package com.example.inventory_service.event;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * LocalStockEventPublisher - Publicador por defecto: entrega los eventos como eventos de
+ * aplicación de Spring, de forma síncrona, a los @EventListener de StockChangedEvent del
+ * propio servicio. Si un listener falla, el evento se reintenta.
+ */
+public class LocalStockEventPublisher implements StockEventPublisher {
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    public LocalStockEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    @Override
+    public void publish(StockChangedEvent event) {
+        applicationEventPublisher.publishEvent(event);
+    }
+}
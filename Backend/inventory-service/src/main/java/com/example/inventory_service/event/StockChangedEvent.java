@@ -0,0 +1,20 @@
+package com.example.inventory_service.event;
+
+import java.time.Instant;
+
+import lombok.Value;
+
+/**
+ * StockChangedEvent - Evento publicado cuando cambia el stock de un producto.
+ * La entrega es al menos una vez: eventId (id de la fila outbox, creciente por producto)
+ * permite a los consumidores descartar duplicados y eventos ya aplicados.
+ */
+@Value
+public class StockChangedEvent {
+    Long eventId;
+    Long productId;
+    Integer oldQuantity;
+    Integer newQuantity;
+    Integer changeQuantity;
+    Instant occurredAt;
+}
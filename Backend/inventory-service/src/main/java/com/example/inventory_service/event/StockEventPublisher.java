@@ -0,0 +1,17 @@
+package com.example.inventory_service.event;
+
+/**
+ * StockEventPublisher - Destino de los eventos de stock drenados de la outbox por StockEventRelay.
+ * Por defecto se usa LocalStockEventPublisher; para publicar en un broker basta con declarar
+ * otro bean de este tipo.
+ */
+@FunctionalInterface
+public interface StockEventPublisher {
+
+    /**
+     * Publica un evento. Debe devolver el control solo cuando el evento está entregado y lanzar
+     * una excepción si no lo está: el relay lo reintentará (junto con los posteriores) en la
+     * siguiente pasada.
+     */
+    void publish(StockChangedEvent event);
+}
@@ -0,0 +1,162 @@
+package com.example.inventory_service.event;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.inventory_service.entity.StockEvent;
+import com.example.inventory_service.repository.StockEventRepository;
+import com.example.inventory_service.service.StockHistoryService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * StockEventRelay - Drena la outbox de eventos de stock hacia el StockEventPublisher.
+ * - Cada pasada lee lotes de inventory.outbox.batch-size eventos en orden de id, los publica
+ *   uno a uno y borra los publicados en la misma transacción.
+ * - Si una publicación falla, la pasada se detiene en ese evento: ni él ni los posteriores se
+ *   borran, así que se reintentan en orden en la siguiente pasada. El orden por producto se
+ *   conserva porque el bloqueo de la fila de inventario serializa los ids de un mismo producto.
+ * - La entrega es al menos una vez: si la transacción falla tras publicar, el lote se repite.
+ * - Los eventos publicados se añaden al historial de stock (StockHistoryService) en la misma
+ *   transacción que los borra: si el historial falla, el lote se revierte y se repite entero en la
+ *   siguiente pasada (se vuelven a publicar, como con cualquier fallo tras publicar). El historial
+ *   descarta los eventos que ya tenía, así que repetir el lote es seguro.
+ * - Métricas: inventory.outbox.pending (eventos sin publicar), inventory.outbox.lag (antigüedad
+ *   del evento pendiente más antiguo) e inventory.outbox.published (eventos publicados).
+ */
+@Component
+public class StockEventRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(StockEventRelay.class);
+
+    private final StockEventRepository stockEventRepository;
+    private final StockEventPublisher publisher;
+    private final StockHistoryService stockHistoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicReference<Instant> oldestPending = new AtomicReference<>();
+    private final Counter publishedCounter;
+
+    public StockEventRelay(StockEventRepository stockEventRepository,
+                           StockEventPublisher publisher,
+                           StockHistoryService stockHistoryService,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${inventory.outbox.batch-size:200}") int batchSize,
+                           ObjectProvider<MeterRegistry> meterRegistry) {
+        this.stockEventRepository = stockEventRepository;
+        this.publisher = publisher;
+        this.stockHistoryService = stockHistoryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("inventory.outbox.pending", pending, AtomicLong::get)
+                    .description("Eventos de stock pendientes de publicar")
+                    .register(registry);
+            Gauge.builder("inventory.outbox.lag", this, relay -> relay.lag().toMillis() / 1000.0)
+                    .description("Antigüedad del evento de stock pendiente más antiguo")
+                    .baseUnit("seconds")
+                    .register(registry);
+            this.publishedCounter = Counter.builder("inventory.outbox.published")
+                    .description("Eventos de stock publicados")
+                    .register(registry);
+        } else {
+            this.publishedCounter = null;
+        }
+    }
+
+    /**
+     * Pasada programada: publica lotes mientras estén completos y ninguno falle.
+     */
+    @Scheduled(fixedDelayString = "${inventory.outbox.poll-interval-ms:500}")
+    public void relay() {
+        try {
+            int published;
+            do {
+                published = publishBatch();
+            } while (published == batchSize);
+        } catch (Exception e) {
+            log.error("❌ Error al drenar la outbox de eventos de stock: {}", e.getMessage());
+        } finally {
+            refreshLag();
+        }
+    }
+
+    /**
+     * Publica y borra el siguiente lote de eventos.
+     * @return Número de eventos publicados; menor que el lote si se vació la outbox o falló una publicación.
+     */
+    public int publishBatch() {
+        List<StockEvent> published = transactionTemplate.execute(status -> {
+            List<StockEvent> batch = stockEventRepository.findAllByOrderByIdAsc(Limit.of(batchSize));
+
+            List<StockEvent> publishedEvents = new ArrayList<>(batch.size());
+            for (StockEvent event : batch) {
+                try {
+                    publisher.publish(toEvent(event));
+                } catch (RuntimeException e) {
+                    log.warn("No se pudo publicar el evento de stock {} (producto {}); se reintentará: {}",
+                            event.getId(), event.getProductId(), e.getMessage());
+                    break;
+                }
+                publishedEvents.add(event);
+            }
+
+            if (!publishedEvents.isEmpty()) {
+                stockHistoryService.record(publishedEvents);
+                stockEventRepository.deleteAllByIdInBatch(publishedEvents.stream().map(StockEvent::getId).toList());
+            }
+            return publishedEvents;
+        });
+        if (published == null || published.isEmpty()) {
+            return 0;
+        }
+
+        if (publishedCounter != null) {
+            publishedCounter.increment(published.size());
+        }
+        return published.size();
+    }
+
+    /**
+     * Antigüedad del evento pendiente más antiguo según la última pasada (cero si no hay pendientes).
+     * Sigue creciendo entre pasadas, así que un relay detenido se ve en la métrica.
+     */
+    public Duration lag() {
+        Instant oldest = oldestPending.get();
+        return oldest == null ? Duration.ZERO : Duration.between(oldest, Instant.now());
+    }
+
+    private void refreshLag() {
+        try {
+            pending.set(stockEventRepository.count());
+            oldestPending.set(stockEventRepository.findFirstByOrderByIdAsc().map(StockEvent::getCreatedAt).orElse(null));
+        } catch (Exception e) {
+            log.warn("No se pudo medir el retraso de la outbox de eventos de stock: {}", e.getMessage());
+        }
+    }
+
+    private static StockChangedEvent toEvent(StockEvent event) {
+        return new StockChangedEvent(event.getId(), event.getProductId(), event.getOldQuantity(),
+                event.getNewQuantity(), event.getChangeQuantity(), event.getCreatedAt());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.inventory_service.event;
+
+import java.time.Duration;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * StockLevelStream - Difusión en vivo de los cambios de stock a los suscriptores de
+ * GET /api/inventory/stream (Server-Sent Events).
+ * - Se alimenta de los StockChangedEvent que publica StockEventRelay: solo cambios confirmados
+ *   y en orden por producto.
+ * - Un único sink multicast compartido: un suscriptor inactivo no ocupa ningún hilo, solo su
+ *   suscripción (la conexión la mantiene el conector NIO de Tomcat en modo asíncrono).
+ * - Por suscriptor, las ráfagas de un mismo producto se agrupan en su último valor cada
+ *   inventory.stream.coalesce-window; si el cliente lee más despacio de lo que llegan los cambios,
+ *   se conserva solo el último valor de cada producto (onBackpressureLatest), más como mucho un
+ *   valor ya entregado al merge por producto. Nada se descarta entre productos distintos.
+ */
+@Component
+public class StockLevelStream {
+
+    private final Sinks.Many<StockChangedEvent> sink = Sinks.many().multicast().directBestEffort();
+    private final Duration coalesceWindow;
+    private final int bufferSize;
+    private final Duration heartbeat;
+
+    public StockLevelStream(@Value("${inventory.stream.coalesce-window:250ms}") Duration coalesceWindow,
+                            @Value("${inventory.stream.buffer-size:256}") int bufferSize,
+                            @Value("${inventory.stream.heartbeat:15s}") Duration heartbeat,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.coalesceWindow = coalesceWindow;
+        this.bufferSize = bufferSize;
+        this.heartbeat = heartbeat;
+
+        meterRegistry.ifAvailable(registry -> Gauge.builder("inventory.stream.subscribers", sink, Sinks.Many::currentSubscriberCount)
+                .description("Suscriptores activos del flujo de stock")
+                .register(registry));
+    }
+
+    /**
+     * Recibe los eventos del relay de la outbox. Nunca lanza excepción: un fallo aquí haría que el
+     * relay reintentara el evento para todos los demás consumidores.
+     */
+    @EventListener
+    public void onStockChanged(StockChangedEvent event) {
+        // El relay publica desde un solo hilo; si otra emisión está en curso, se reintenta
+        sink.emitNext(event, (signalType, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+    }
+
+    /**
+     * Cambios de stock de los productos indicados, agrupados por producto.
+     * @param productIds Productos suscritos.
+     * @return Flujo infinito de cambios; termina cuando el suscriptor cancela.
+     */
+    public Flux<StockChangedEvent> subscribe(Set<Long> productIds) {
+        // Se agrupa por producto antes de cualquier búfer compartido: una ráfaga de un producto no
+        // puede desplazar el único cambio pendiente de otro. Cada grupo se consume sin límite
+        // (sample conserva solo el último valor), así el sink nunca encuentra al suscriptor sin
+        // demanda (directBestEffort descartaría el evento) y la cola del groupBy no se acumula.
+        return sink.asFlux()
+                .filter(event -> productIds.contains(event.getProductId()))
+                .groupBy(StockChangedEvent::getProductId, bufferSize)
+                .flatMap(events -> events.sample(coalesceWindow).onBackpressureLatest(), productIds.size(), 1);
+    }
+
+    /**
+     * Latido periódico para mantener viva la conexión a través de proxies y detectar clientes
+     * desconectados (la escritura falla y se cancela la suscripción). Si el cliente no lee, se descarta.
+     */
+    public Flux<Long> heartbeats() {
+        return Flux.interval(heartbeat).onBackpressureDrop();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sink.tryEmitComplete();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.inventory_service.exception;
+
+import java.util.List;
+
+/**
+ * BulkInsufficientStockException
+ * Una o varias líneas de una actualización masiva no tienen stock suficiente.
+ * Contiene el detalle de cada línea rechazada; ninguna línea del pedido se aplica.
+ */
+public class BulkInsufficientStockException extends InsufficientStockException {
+
+    private final List<String> lineErrors;
+
+    public BulkInsufficientStockException(List<String> lineErrors) {
+        super("Stock insuficiente en " + lineErrors.size() + " línea(s) del pedido.");
+        this.lineErrors = List.copyOf(lineErrors);
+    }
+
+    public List<String> getLineErrors() {
+        return lineErrors;
+    }
+}
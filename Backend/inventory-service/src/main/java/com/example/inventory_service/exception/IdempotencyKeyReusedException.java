@@ -0,0 +1,12 @@
+package com.example.inventory_service.exception;
+
+/**
+ * IdempotencyKeyReusedException
+ * Excepción personalizada para indicar que un Idempotency-Key ya se usó con otra petición
+ * (otro producto u otra cantidad)
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
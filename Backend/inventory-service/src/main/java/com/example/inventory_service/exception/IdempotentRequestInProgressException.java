@@ -0,0 +1,12 @@
+package com.example.inventory_service.exception;
+
+/**
+ * IdempotentRequestInProgressException
+ * Excepción personalizada para indicar que la petición original con el mismo Idempotency-Key
+ * sigue en curso y no terminó dentro del tiempo de espera
+ */
+public class IdempotentRequestInProgressException extends RuntimeException {
+    public IdempotentRequestInProgressException(String message) {
+        super(message);
+    }
+}
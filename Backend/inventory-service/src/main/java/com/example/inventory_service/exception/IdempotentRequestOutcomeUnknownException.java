@@ -0,0 +1,13 @@
+package com.example.inventory_service.exception;
+
+/**
+ * IdempotentRequestOutcomeUnknownException
+ * Excepción personalizada para indicar que la petición original con el mismo Idempotency-Key falló
+ * después de poder aplicar el cambio (ej: el diario no llegó a disco), por lo que no se puede repetir
+ * sin riesgo de aplicarlo dos veces
+ */
+public class IdempotentRequestOutcomeUnknownException extends RuntimeException {
+    public IdempotentRequestOutcomeUnknownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.inventory_service.exception;
+
+/**
+ * InvalidRequestException
+ * Excepción personalizada para indicar que una petición del cliente no es válida
+ * (ej: demasiados productos, rango de fechas incorrecto o Idempotency-Key mal formada)
+ */
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.inventory_service.exception;
+
+/**
+ * ProductsUnavailableException
+ * Excepción personalizada para indicar que no se pudo verificar un producto porque el Products Service
+ * no está disponible (circuito abierto, bulkhead lleno, timeout o error tras los reintentos)
+ */
+public class ProductsUnavailableException extends RuntimeException {
+    public ProductsUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
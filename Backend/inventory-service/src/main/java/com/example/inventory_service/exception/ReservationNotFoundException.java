@@ -0,0 +1,12 @@
+package com.example.inventory_service.exception;
+
+/**
+ * ReservationNotFoundException
+ * Excepción personalizada para indicar que una reserva no existe: nunca existió, ya se confirmó
+ * o liberó, o expiró
+ */
+public class ReservationNotFoundException extends RuntimeException {
+    public ReservationNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.inventory_service.exception;
+
+/**
+ * StockHistoryNotFoundException
+ * Excepción personalizada para indicar que no hay historial de stock de un producto en el
+ * instante consultado (anterior a su primer cambio registrado)
+ */
+public class StockHistoryNotFoundException extends RuntimeException {
+    public StockHistoryNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.inventory_service.hotstock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * HotStockJournal - Diario de cambios de stock de los productos de alta demanda, escrito antes de
+ * confirmar cada cambio al cliente.
+ * - Registros de tamaño fijo: secuencia, productId, delta y CRC32 de los tres campos.
+ * - Al leer, el primer registro incompleto o con CRC incorrecto (escritura interrumpida por una
+ *   caída) marca el final del diario.
+ * - Commit en grupo: append() solo escribe; sync() hace el fsync, y un único fsync cubre todos los
+ *   registros escritos hasta ese momento, así los hilos que esperan a la vez comparten uno solo.
+ * - compact() elimina los registros ya volcados a PostgreSQL: si no queda ninguno pendiente vacía el
+ *   fichero; si no, copia solo la cola pendiente (las secuencias son consecutivas y los registros de
+ *   tamaño fijo) a un fichero temporal que sustituye al diario con un rename atómico. Ninguna caída
+ *   deja el diario a medias.
+ * append() y compact() no son thread-safe (HotStockTier los serializa); sync() sí lo es.
+ */
+public class HotStockJournal implements Closeable {
+
+    static final int RECORD_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    /**
+     * Registro del diario.
+     */
+    public record Entry(long sequence, long productId, int delta) {}
+
+    private final Path path;
+    private final boolean fsync;
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES);
+    // Un solo fsync en curso; compact() también lo toma para no cerrar el canal durante un fsync
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile FileChannel channel;
+    private volatile long lastSequence;
+    private volatile long syncedSequence;
+
+    public HotStockJournal(Path path, boolean fsync) throws IOException {
+        this.path = path;
+        this.fsync = fsync;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = open(path);
+    }
+
+    /**
+     * Registros válidos del diario, en orden de escritura.
+     */
+    public List<Entry> readAll() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        long position = 0;
+        while (true) {
+            record.clear();
+            while (record.hasRemaining()) {
+                if (channel.read(record, position + record.position()) < 0) {
+                    return entries;
+                }
+            }
+            record.flip();
+            long sequence = record.getLong();
+            long productId = record.getLong();
+            int delta = record.getInt();
+            if (record.getInt() != checksum(record, RECORD_BYTES - Integer.BYTES)) {
+                return entries;
+            }
+            entries.add(new Entry(sequence, productId, delta));
+            position += RECORD_BYTES;
+        }
+    }
+
+    /**
+     * Continúa la numeración a partir de 'sequence' (la secuencia crece entre reinicios).
+     */
+    public void startAfter(long sequence) {
+        lastSequence = Math.max(lastSequence, sequence);
+        syncedSequence = lastSequence;
+    }
+
+    /**
+     * Escribe un cambio al final del diario, sin fsync (ver sync()). Si la escritura falla, el
+     * fichero vuelve a terminar en el último registro completo.
+     * @return Secuencia del registro.
+     */
+    public long append(long productId, int delta) throws IOException {
+        long sequence = lastSequence + 1;
+        long position = channel.position();
+        try {
+            write(channel, buffer, new Entry(sequence, productId, delta));
+        } catch (IOException e) {
+            channel.truncate(position);
+            channel.position(position);
+            throw e;
+        }
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Espera a que el registro 'sequence' esté en disco (sin fsync configurado, vuelve enseguida).
+     * Si otro hilo ya hizo un fsync posterior a la escritura del registro, no se repite.
+     */
+    public void sync(long sequence) throws IOException {
+        if (!fsync || syncedSequence >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            // Todo lo escrito hasta lastSequence queda cubierto por este fsync
+            long target = lastSequence;
+            channel.force(false);
+            syncedSequence = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Tamaño del diario en bytes.
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Descarta los registros con secuencia menor o igual a 'flushedSequence' (ya en PostgreSQL).
+     * Coste proporcional a los registros que quedan, no al tamaño del diario.
+     */
+    public void compact(long flushedSequence) throws IOException {
+        syncLock.lock();
+        try {
+            if (flushedSequence >= lastSequence) {
+                // Todo volcado: un diario vacío equivale a uno con solo registros anteriores al checkpoint
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(true);
+                syncedSequence = lastSequence;
+                return;
+            }
+
+            long keepFrom = Math.min(Math.max(0, (flushedSequence - firstSequence() + 1) * RECORD_BYTES), channel.size());
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long position = keepFrom;
+                while (position < channel.size()) {
+                    position += channel.transferTo(position, channel.size() - position, out);
+                }
+                out.force(true);
+            }
+            channel.close();
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            channel = open(path);
+            syncedSequence = lastSequence;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        try {
+            channel.close();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Secuencia del primer registro del fichero (el diario no está vacío).
+     */
+    private long firstSequence() throws IOException {
+        ByteBuffer first = ByteBuffer.allocate(Long.BYTES);
+        while (first.hasRemaining()) {
+            if (channel.read(first, first.position()) < 0) {
+                return lastSequence + 1;
+            }
+        }
+        return first.flip().getLong();
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer record, Entry entry) throws IOException {
+        record.clear();
+        record.putLong(entry.sequence()).putLong(entry.productId()).putInt(entry.delta());
+        record.putInt(checksum(record, RECORD_BYTES - Integer.BYTES));
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    private static int checksum(ByteBuffer record, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, length);
+        return (int) crc.getValue();
+    }
+}
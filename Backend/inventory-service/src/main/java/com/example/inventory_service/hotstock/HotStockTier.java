@@ -0,0 +1,376 @@
+package com.example.inventory_service.hotstock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import com.example.inventory_service.entity.HotStockCheckpoint;
+import com.example.inventory_service.entity.Inventory;
+import com.example.inventory_service.entity.StockEvent;
+import com.example.inventory_service.exception.InsufficientStockException;
+import com.example.inventory_service.repository.HotStockCheckpointRepository;
+import com.example.inventory_service.repository.InventoryBatchRepository;
+import com.example.inventory_service.repository.InventoryRepository;
+import com.example.inventory_service.repository.StockEventRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * HotStockTier - Modo opcional para productos de alta demanda (ej: una venta flash), activado con
+ * inventory.hot.product-ids. El stock de esos productos vive en memoria y se vuelca a PostgreSQL
+ * en lotes, en lugar de bloquear su fila de inventario en cada compra.
+ * - Cada cambio se descuenta en un StripedStockCounter (sin cerrojos, nunca por debajo de cero) y
+ *   se escribe en el HotStockJournal antes de responder al cliente. La escritura se serializa con
+ *   un ReentrantLock (no bloquea el hilo portador de los hilos virtuales) y el fsync se hace fuera
+ *   de él, en grupo: las compras concurrentes comparten un solo fsync.
+ * - Cada inventory.hot.flush-interval-ms, los cambios acumulados se aplican al inventario en una
+ *   transacción junto con un evento de stock por producto (outbox) y la secuencia del diario
+ *   volcada (HotStockCheckpoint). El diario se vacía si no llegó nada durante el volcado, o se
+ *   compacta cuando supera inventory.hot.journal-compact-size; el resto de registros volcados se
+ *   descartan al arrancar gracias al checkpoint.
+ * - Al arrancar se reaplican los registros del diario posteriores al checkpoint (cambios confirmados
+ *   al cliente que no llegaron a volcarse por una caída) y se carga el stock de la base de datos.
+ * - Mientras el modo está activo, la instancia es la dueña del stock de esos productos: los pedidos
+ *   masivos que los incluyen se rechazan, y solo debe haber una instancia con el mismo diario.
+ * - Las reservas retienen unidades del mismo contador que las compras (reserve) y se persisten en la
+ *   transacción de la reserva (Inventory.reserved), no en el diario: la retención y la fila de la
+ *   reserva se confirman o revierten juntas. Las reservas que se confirman, liberan o expiran (también
+ *   las anteriores a la activación) se reflejan en memoria con reservationResolvedAfterCommit.
+ */
+@Component
+public class HotStockTier {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockTier.class);
+
+    private static final long CHECKPOINT_ID = 1L;
+
+    private final Set<Long> hotProductIds;
+    private final int stripes;
+    private final Path journalPath;
+    private final boolean fsync;
+    private final long compactBytes;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryBatchRepository inventoryBatchRepository;
+    private final StockEventRepository stockEventRepository;
+    private final HotStockCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, HotProduct> products = new ConcurrentHashMap<>();
+
+    // El diario y los cambios pendientes de volcar se modifican juntos bajo journalLock (sin el fsync)
+    private final ReentrantLock journalLock = new ReentrantLock();
+    private HotStockJournal journal;
+    private Map<Long, Integer> pending = new HashMap<>();
+
+    /**
+     * Stock en memoria de un producto: lo disponible en franjas más lo reservado.
+     */
+    private record HotProduct(StripedStockCounter counter, AtomicInteger reserved) {
+        int quantity() {
+            return (int) counter.available() + reserved.get();
+        }
+    }
+
+    public HotStockTier(@Value("${inventory.hot.product-ids:}") Set<Long> hotProductIds,
+                        @Value("${inventory.hot.stripes:16}") int stripes,
+                        @Value("${inventory.hot.journal-path:./data/hot-stock.journal}") Path journalPath,
+                        @Value("${inventory.hot.journal-fsync:true}") boolean fsync,
+                        @Value("${inventory.hot.journal-compact-size:1MB}") DataSize compactSize,
+                        InventoryRepository inventoryRepository,
+                        InventoryBatchRepository inventoryBatchRepository,
+                        StockEventRepository stockEventRepository,
+                        HotStockCheckpointRepository checkpointRepository,
+                        PlatformTransactionManager transactionManager) {
+        this.hotProductIds = hotProductIds;
+        this.stripes = stripes;
+        this.journalPath = journalPath;
+        this.fsync = fsync;
+        this.compactBytes = compactSize.toBytes();
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryBatchRepository = inventoryBatchRepository;
+        this.stockEventRepository = stockEventRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (hotProductIds.isEmpty()) {
+            return;
+        }
+        journal = new HotStockJournal(journalPath, fsync);
+        recover();
+
+        inventoryBatchRepository.insertIfAbsent(hotProductIds);
+        for (Inventory inventory : inventoryRepository.findByProductIdIn(hotProductIds)) {
+            products.put(inventory.getProductId(),
+                    new HotProduct(new StripedStockCounter(inventory.getAvailable(), stripes), new AtomicInteger(inventory.getReserved())));
+        }
+        log.info("Productos de alta demanda con stock en memoria: {} (diario: {})", hotProductIds, journalPath);
+    }
+
+    /**
+     * Reaplica los registros del diario que no llegaron al inventario antes de la última parada.
+     */
+    private void recover() throws IOException {
+        long checkpoint = checkpointRepository.findById(CHECKPOINT_ID).map(HotStockCheckpoint::getLastSequence).orElse(0L);
+
+        Map<Long, Integer> deltas = new TreeMap<>();
+        long lastSequence = checkpoint;
+        for (HotStockJournal.Entry entry : journal.readAll()) {
+            if (entry.sequence() > checkpoint) {
+                deltas.merge(entry.productId(), entry.delta(), Integer::sum);
+            }
+            lastSequence = Math.max(lastSequence, entry.sequence());
+        }
+
+        if (!deltas.isEmpty()) {
+            write(deltas, lastSequence);
+            log.warn("Recuperados del diario cambios de stock no volcados: {}", deltas);
+        }
+        journal.startAfter(lastSequence);
+        journal.compact(lastSequence);
+    }
+
+    /**
+     * true si el producto está en modo de alta demanda.
+     */
+    public boolean isHot(Long productId) {
+        return products.containsKey(productId);
+    }
+
+    /**
+     * Aplica un cambio de stock en memoria y lo registra en el diario.
+     * @return Inventario resultante (instantánea no gestionada por JPA).
+     * @throws InsufficientStockException si una compra dejaría el stock por debajo de lo reservado.
+     */
+    public Inventory apply(Long productId, int delta) {
+        HotProduct product = require(productId);
+
+        if (delta < 0 && !product.counter().tryTake(-delta)) {
+            throw new InsufficientStockException("Stock insuficiente para el producto " + productId + ". Stock actual: " + product.quantity());
+        }
+        long sequence;
+        journalLock.lock();
+        try {
+            sequence = journal.append(productId, delta);
+            pending.merge(productId, delta, Integer::sum);
+        } catch (IOException e) {
+            // Sin registro en el diario el cambio no se confirma: se devuelven las unidades descontadas
+            if (delta < 0) {
+                product.counter().add(-delta);
+            }
+            throw new UncheckedIOException("No se pudo registrar el cambio de stock del producto " + productId + " en el diario.", e);
+        } finally {
+            journalLock.unlock();
+        }
+        try {
+            journal.sync(sequence);
+        } catch (IOException e) {
+            // El registro ya está escrito y pendiente de volcar: el cambio se aplica, pero no se confirma
+            // al cliente (igual que un timeout; el reintento debe llevar Idempotency-Key)
+            if (delta > 0) {
+                product.counter().add(delta);
+            }
+            throw new UncheckedIOException("No se pudo asegurar en disco el cambio de stock del producto " + productId + ".", e);
+        }
+        // Las reposiciones se suman después del diario: nadie puede comprar unidades no registradas
+        if (delta > 0) {
+            product.counter().add(delta);
+        }
+
+        Inventory inventory = new Inventory(productId, product.quantity());
+        inventory.setReserved(product.reserved().get());
+        return inventory;
+    }
+
+    /**
+     * Retiene unidades para una reserva: salen de lo disponible en memoria (sin bloquear la fila de
+     * inventario) y pasan a lo reservado, sin cambiar el stock total. El llamador persiste la
+     * retención en la transacción en curso, junto con la reserva; si esa transacción no se confirma,
+     * las unidades vuelven a estar disponibles.
+     * @throws InsufficientStockException si el stock disponible (sin lo ya reservado) no alcanza.
+     */
+    public void reserve(Long productId, int quantity) {
+        HotProduct product = require(productId);
+
+        if (!product.counter().tryTake(quantity)) {
+            throw new InsufficientStockException("Stock insuficiente para reservar " + quantity + " unidades del producto "
+                    + productId + ". Stock disponible: " + product.counter().available());
+        }
+        product.reserved().addAndGet(quantity);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    product.reserved().addAndGet(-quantity);
+                    product.counter().add(quantity);
+                }
+            }
+        });
+    }
+
+    private HotProduct require(Long productId) {
+        HotProduct product = products.get(productId);
+        if (product == null) {
+            throw new IllegalArgumentException("El producto " + productId + " no está en modo de alta demanda.");
+        }
+        return product;
+    }
+
+    /**
+     * Sustituye la cantidad leída de la base de datos por la de memoria (que incluye los cambios
+     * aún no volcados), si el producto está en modo de alta demanda.
+     */
+    public void overlay(Inventory inventory) {
+        HotProduct product = inventory != null ? products.get(inventory.getProductId()) : null;
+        if (product != null) {
+            inventory.setQuantity(product.quantity());
+        }
+    }
+
+    /**
+     * Refleja en memoria la resolución de una reserva de un producto de alta demanda (también las
+     * creadas antes de activar el modo), cuando se confirme la transacción en curso (nada si se
+     * revierte). Sin
+     * transacción activa, la aplica inmediatamente. No hace nada si el producto no está en el modo.
+     * @param released true si las unidades vuelven a estar disponibles (liberada o expirada);
+     *                 false si salen del stock (confirmada).
+     */
+    public void reservationResolvedAfterCommit(Long productId, int quantity, boolean released) {
+        HotProduct product = products.get(productId);
+        if (product == null) {
+            return;
+        }
+        Runnable resolve = () -> {
+            product.reserved().addAndGet(-quantity);
+            if (released) {
+                product.counter().add(quantity);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            resolve.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                resolve.run();
+            }
+        });
+    }
+
+    /**
+     * Vuelca los cambios acumulados al inventario. Si falla, se conservan para la siguiente pasada
+     * (y siguen en el diario).
+     */
+    @Scheduled(fixedDelayString = "${inventory.hot.flush-interval-ms:200}")
+    public void flush() {
+        if (journal == null) {
+            return;
+        }
+
+        Map<Long, Integer> deltas;
+        long sequence;
+        journalLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            deltas = pending;
+            pending = new HashMap<>();
+            sequence = journal.lastSequence();
+        } finally {
+            journalLock.unlock();
+        }
+
+        try {
+            write(new TreeMap<>(deltas), sequence);
+        } catch (RuntimeException e) {
+            journalLock.lock();
+            try {
+                deltas.forEach((productId, delta) -> pending.merge(productId, delta, Integer::sum));
+            } finally {
+                journalLock.unlock();
+            }
+            log.error("❌ Error al volcar el stock de los productos de alta demanda; se reintentará: {}", e.getMessage());
+            return;
+        }
+
+        journalLock.lock();
+        try {
+            // Vaciarlo es inmediato; reescribir la cola solo compensa cuando el diario ya ocupa bastante
+            if (journal.lastSequence() == sequence || journal.size() >= compactBytes) {
+                journal.compact(sequence);
+            }
+        } catch (IOException e) {
+            // Los registros volcados que queden en el diario se descartan al arrancar (checkpoint)
+            log.warn("No se pudo compactar el diario de stock de alta demanda: {}", e.getMessage());
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * Aplica los cambios (ordenados por productId) con su evento de stock y el checkpoint del diario,
+     * en una sola transacción.
+     */
+    private void write(Map<Long, Integer> deltas, long sequence) {
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryBatchRepository.insertIfAbsent(deltas.keySet());
+            Map<Long, Inventory> before = inventoryRepository.findByProductIdIn(deltas.keySet()).stream()
+                    .collect(Collectors.toMap(Inventory::getProductId, Function.identity()));
+
+            inventoryBatchRepository.addQuantities(deltas);
+
+            Instant now = Instant.now();
+            stockEventRepository.saveAll(deltas.entrySet().stream()
+                    .filter(delta -> delta.getValue() != 0)
+                    .map(delta -> {
+                        int oldQuantity = before.get(delta.getKey()).getQuantity();
+                        return new StockEvent(delta.getKey(), oldQuantity, oldQuantity + delta.getValue(), delta.getValue(), now);
+                    })
+                    .toList());
+            checkpointRepository.save(new HotStockCheckpoint(CHECKPOINT_ID, sequence));
+        });
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        flush();
+        journalLock.lock();
+        try {
+            journal.close();
+        } finally {
+            journalLock.unlock();
+        }
+    }
+}
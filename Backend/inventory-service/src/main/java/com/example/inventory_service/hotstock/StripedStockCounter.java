@@ -0,0 +1,87 @@
+package com.example.inventory_service.hotstock;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * StripedStockCounter - Stock disponible de un producto repartido en franjas (al estilo de
+ * LongAdder), para que las compras concurrentes no compitan por una sola variable.
+ * - tryTake descuenta de una franja con CAS y solo si esa franja tiene unidades suficientes:
+ *   ninguna franja baja de cero, así que el total nunca baja de cero (no se vende de más).
+ * - Si ninguna franja tiene suficiente por sí sola pero el total sí, se reagrupan todas las
+ *   unidades bajo un cerrojo (solo en ese caso, normalmente al final del stock). Es un ReentrantLock
+ *   y no synchronized: no fija el hilo de plataforma de un hilo virtual.
+ */
+public class StripedStockCounter {
+
+    private final AtomicLongArray stripes;
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+
+    public StripedStockCounter(long available, int stripeCount) {
+        this.stripes = new AtomicLongArray(Math.max(1, stripeCount));
+        spread(available);
+    }
+
+    /**
+     * Descuenta unidades si hay suficientes.
+     * @return true si se descontaron; false si el stock disponible no alcanza.
+     */
+    public boolean tryTake(long units) {
+        int count = stripes.length();
+        int start = ThreadLocalRandom.current().nextInt(count);
+        for (int k = 0; k < count; k++) {
+            int i = (start + k) % count;
+            long current;
+            while ((current = stripes.get(i)) >= units) {
+                if (stripes.compareAndSet(i, current, current - units)) {
+                    return true;
+                }
+            }
+        }
+        return takeRebalancing(units);
+    }
+
+    /**
+     * Suma unidades (reposición o devolución de un descuento no confirmado).
+     */
+    public void add(long units) {
+        stripes.addAndGet(ThreadLocalRandom.current().nextInt(stripes.length()), units);
+    }
+
+    /**
+     * Stock disponible en este instante (suma de las franjas, sin bloquear).
+     */
+    public long available() {
+        long total = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            total += stripes.get(i);
+        }
+        return total;
+    }
+
+    private boolean takeRebalancing(long units) {
+        rebalanceLock.lock();
+        try {
+            // Mientras se reagrupa, las franjas vacías mandan aquí al resto de descuentos
+            long total = 0;
+            for (int i = 0; i < stripes.length(); i++) {
+                total += stripes.getAndSet(i, 0);
+            }
+            boolean taken = total >= units;
+            spread(taken ? total - units : total);
+            return taken;
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    private void spread(long total) {
+        int count = stripes.length();
+        long share = total / count;
+        long remainder = total % count;
+        for (int i = 0; i < count; i++) {
+            stripes.addAndGet(i, share + (i < remainder ? 1 : 0));
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.inventory_service.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import com.example.inventory_service.entity.Inventory;
+import com.example.inventory_service.repository.InventoryRepository;
+import com.example.inventory_service.web.RequestIdFilter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * StockJournal - Diario local de los cambios de stock aceptados por esta instancia (auditoría y
+ * reconstrucción del estado sin recorrer la base de datos, ver StockJournalReplay), activado con
+ * inventory.journal.enabled.
+ * - Cada registro (StockJournalRecord) lleva productId, delta, cantidad resultante, timestamp e id
+ *   de la petición (X-Request-Id). Se añade una vez confirmada la transacción del cambio.
+ * - Segmentos de inventory.journal.segment-size mapeados en memoria: añadir un registro es copiar
+ *   sus bytes al mapeo bajo un cerrojo, sin llamadas al sistema ni objetos nuevos. Lleno un segmento,
+ *   se fuerza a disco y se abre el siguiente (su nombre es la secuencia de su primer registro).
+ * - Commit en grupo: cada inventory.journal.commit-interval-ms un único force() lleva a disco todos
+ *   los registros añadidos desde el anterior. Una caída del proceso no pierde nada (las páginas
+ *   mapeadas ya están en el page cache); una caída del sistema puede perder como mucho ese intervalo.
+ *   La base de datos sigue siendo la fuente de verdad: un fallo del diario se registra en el log pero
+ *   no revierte ni rechaza el cambio.
+ * - Se conservan inventory.journal.retained-segments segmentos cerrados; los anteriores se pliegan
+ *   en la instantánea (snapshot.bin), que guarda solo la suma de deltas de esta instancia.
+ * - Al arrancar con el directorio vacío se guarda aparte la línea base (baseline.bin): el inventario
+ *   de la base de datos en ese momento.
+ * Con varias instancias, cada una tiene su propio diario: el stock completo es la línea base más
+ *   antigua más los deltas de todos los diarios (StockJournalReplay.rebuild), sin sumar las demás
+ *   líneas base, que ya incluyen cambios de otras instancias.
+ */
+@Component
+public class StockJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(StockJournal.class);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int retainedSegments;
+    private final InventoryRepository inventoryRepository;
+
+    // Estado del segmento actual, protegido por lock. Un ReentrantLock y no synchronized: no fija
+    // el hilo de plataforma de un hilo virtual.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer scratch = ByteBuffer.allocate(StockJournalRecord.BYTES);
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer segment;
+    private long segmentFirstSequence;
+    private int writeOffset;
+    private int forcedOffset;
+    private long lastSequence;
+
+    public StockJournal(@Value("${inventory.journal.enabled:false}") boolean enabled,
+                        @Value("${inventory.journal.directory:./data/stock-journal}") Path directory,
+                        @Value("${inventory.journal.segment-size:64MB}") DataSize segmentSize,
+                        @Value("${inventory.journal.retained-segments:8}") int retainedSegments,
+                        InventoryRepository inventoryRepository) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = Math.toIntExact(segmentSize.toBytes());
+        this.retainedSegments = retainedSegments;
+        this.inventoryRepository = inventoryRepository;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Path> segments = StockJournalReplay.segments(directory);
+
+        if (segments.isEmpty()) {
+            if (!Files.exists(directory.resolve(StockJournalReplay.BASELINE_FILE))) {
+                // Primer arranque: la línea base es el inventario actual
+                Map<Long, Integer> quantities = inventoryRepository.findAll().stream()
+                        .collect(Collectors.toMap(Inventory::getProductId, Inventory::getQuantity, (first, second) -> first, TreeMap::new));
+                StockJournalReplay.writeBaseline(directory, new StockJournalReplay.Baseline(Instant.now(), quantities));
+            }
+            openSegment(StockJournalReplay.readSnapshot(directory).sequence() + 1);
+        } else {
+            recover(segments.get(segments.size() - 1));
+        }
+        log.info("Diario de stock en {} (última secuencia: {})", directory, lastSequence);
+    }
+
+    /**
+     * Continúa el último segmento tras su último registro válido. El fichero se trunca ahí, de modo
+     * que lo que seguía (un registro a medias de una caída del sistema) nunca se lee como válido; al
+     * volver a mapearlo crece con ceros sin escribirlos (fichero disperso).
+     */
+    private void recover(Path last) throws IOException {
+        long firstSequence = StockJournalReplay.firstSequence(last);
+        long[] nextSequence = {firstSequence};
+        StockJournalReplay.read(last, record -> nextSequence[0]++);
+        int validBytes = Math.toIntExact((nextSequence[0] - firstSequence) * StockJournalRecord.BYTES);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.truncate(validBytes);
+            channel.force(true);
+        }
+
+        openSegment(firstSequence);
+        lastSequence = nextSequence[0] - 1;
+        writeOffset = validBytes;
+        forcedOffset = validBytes;
+    }
+
+    /**
+     * Registra un cambio de stock ya confirmado, con el id de la petición en curso.
+     */
+    public void record(long productId, int delta, int quantity) {
+        if (enabled) {
+            append(productId, delta, quantity, RequestIdFilter.currentRequestId());
+        }
+    }
+
+    /**
+     * Registra un cambio de stock cuando se confirme la transacción en curso (nada si se revierte).
+     * Sin transacción activa, lo registra inmediatamente.
+     */
+    public void recordAfterCommit(long productId, int delta, int quantity) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(productId, delta, quantity);
+            return;
+        }
+        UUID requestId = RequestIdFilter.currentRequestId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                append(productId, delta, quantity, requestId);
+            }
+        });
+    }
+
+    private void append(long productId, int delta, int quantity, UUID requestId) {
+        long requestIdHigh = requestId != null ? requestId.getMostSignificantBits() : 0L;
+        long requestIdLow = requestId != null ? requestId.getLeastSignificantBits() : 0L;
+        lock.lock();
+        try {
+            if (writeOffset + StockJournalRecord.BYTES > segment.capacity()) {
+                rotate();
+            }
+            long sequence = lastSequence + 1;
+            StockJournalRecord.encode(scratch, crc, sequence, System.currentTimeMillis(), productId,
+                    requestIdHigh, requestIdLow, delta, quantity);
+            segment.put(writeOffset, scratch.array(), 0, StockJournalRecord.BYTES);
+            writeOffset += StockJournalRecord.BYTES;
+            lastSequence = sequence;
+        } catch (IOException e) {
+            // El cambio ya está confirmado en la base de datos: se avisa, sin fallar la petición
+            log.error("❌ No se pudo registrar en el diario el cambio de stock del producto {} (delta {}): {}", productId, delta, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cierra el segmento actual (forzado a disco) y abre el siguiente. Se llama con lock.
+     */
+    private void rotate() throws IOException {
+        segment.force(forcedOffset, writeOffset - forcedOffset);
+        openSegment(lastSequence + 1);
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = StockJournalReplay.segmentPath(directory, firstSequence);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // El mapeo sigue siendo válido después de cerrar el canal
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, channel.size()));
+        }
+        segmentFirstSequence = firstSequence;
+        lastSequence = firstSequence - 1;
+        writeOffset = 0;
+        forcedOffset = 0;
+    }
+
+    /**
+     * Commit en grupo: fuerza a disco, fuera del cerrojo, los registros añadidos desde la pasada anterior.
+     */
+    @Scheduled(fixedDelayString = "${inventory.journal.commit-interval-ms:10}")
+    public void commit() {
+        if (!enabled) {
+            return;
+        }
+        MappedByteBuffer target;
+        int from;
+        int to;
+        lock.lock();
+        try {
+            target = segment;
+            from = forcedOffset;
+            to = writeOffset;
+        } finally {
+            lock.unlock();
+        }
+        if (to == from) {
+            return;
+        }
+
+        target.force(from, to - from);
+
+        lock.lock();
+        try {
+            // Si el segmento rotó entretanto, rotate() ya lo forzó entero
+            if (segment == target) {
+                forcedOffset = Math.max(forcedOffset, to);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pliega en la instantánea los segmentos cerrados que exceden inventory.journal.retained-segments.
+     */
+    @Scheduled(fixedDelayString = "${inventory.journal.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        long current;
+        lock.lock();
+        try {
+            current = segmentFirstSequence;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            List<Path> closed = StockJournalReplay.segments(directory).stream()
+                    .filter(path -> StockJournalReplay.firstSequence(path) < current)
+                    .toList();
+            if (closed.size() <= retainedSegments) {
+                return;
+            }
+            StockJournalReplay.Snapshot snapshot = StockJournalReplay.fold(directory, closed.subList(0, closed.size() - retainedSegments));
+            log.info("Instantánea del diario de stock actualizada hasta la secuencia {}", snapshot.sequence());
+        } catch (IOException | RuntimeException e) {
+            log.error("❌ Error al plegar los segmentos del diario de stock; se reintentará: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Secuencia del último registro añadido.
+     */
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            segment.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.inventory_service.journal;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * StockJournalRecord - Registro del diario de stock y su formato binario (tamaño fijo, big-endian):
+ * secuencia, timestamp (epoch ms), productId, requestId (128 bits), delta, cantidad resultante y
+ * CRC32 de los campos anteriores.
+ */
+public record StockJournalRecord(long sequence, Instant timestamp, long productId, UUID requestId,
+                                 int delta, int quantity) {
+
+    public static final int BYTES = 5 * Long.BYTES + 3 * Integer.BYTES;
+
+    private static final int CRC_OFFSET = BYTES - Integer.BYTES;
+
+    /**
+     * Codifica un registro en 'scratch' (BYTES posiciones, con array) sin crear objetos.
+     */
+    static void encode(ByteBuffer scratch, CRC32 crc, long sequence, long timestampMillis, long productId,
+                       long requestIdHigh, long requestIdLow, int delta, int quantity) {
+        scratch.clear();
+        scratch.putLong(sequence).putLong(timestampMillis).putLong(productId)
+               .putLong(requestIdHigh).putLong(requestIdLow)
+               .putInt(delta).putInt(quantity);
+        crc.reset();
+        crc.update(scratch.array(), 0, CRC_OFFSET);
+        scratch.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Lee el registro en 'offset'.
+     * @return El registro, o null si no hay uno completo y válido con la secuencia esperada
+     *         (final del diario o escritura interrumpida).
+     */
+    static StockJournalRecord decode(ByteBuffer buffer, int offset, long expectedSequence) {
+        if (offset + BYTES > buffer.limit()) {
+            return null;
+        }
+        byte[] bytes = new byte[BYTES];
+        buffer.get(offset, bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, CRC_OFFSET);
+
+        ByteBuffer record = ByteBuffer.wrap(bytes);
+        if (record.getLong() != expectedSequence || record.getInt(CRC_OFFSET) != (int) crc.getValue()) {
+            return null;
+        }
+        Instant timestamp = Instant.ofEpochMilli(record.getLong());
+        long productId = record.getLong();
+        UUID requestId = new UUID(record.getLong(), record.getLong());
+        return new StockJournalRecord(expectedSequence, timestamp, productId, requestId, record.getInt(), record.getInt());
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.inventory_service.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * StockJournalReplay - Reconstruye las cantidades de inventario a partir de los diarios de stock
+ * (StockJournal) de una o varias instancias, sin consultar la base de datos.
+ * - Cada diario guarda solo los cambios de su instancia: una instantánea (snapshot.bin) con la suma
+ *   de deltas de los segmentos ya plegados, y los segmentos posteriores. Se suman deltas y no se
+ *   toma la última cantidad registrada: dos cambios concurrentes del mismo producto pueden llegar
+ *   al diario en otro orden que su commit.
+ * - La línea base (baseline.bin, el inventario de la base de datos al crear el diario) va aparte.
+ *   La cantidad de cada producto es la línea base más antigua más los deltas de todos los diarios:
+ *   ninguna línea base se suma dos veces. Para que sea exacta, los diarios deben incluir todas las
+ *   instancias que han cambiado stock desde esa línea base.
+ * - StockJournal también lo usa para plegar los segmentos antiguos en una nueva instantánea.
+ * Uso desde línea de comandos (con el jar de la aplicación):
+ *   java -cp inventory-service.jar -Dloader.main=com.example.inventory_service.journal.StockJournalReplay \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher [--write-snapshot] ./data/stock-journal [...]
+ * Escribe 'productId,quantity' por producto en la salida estándar; con --write-snapshot además pliega
+ * cada diario en su instantánea.
+ */
+public final class StockJournalReplay {
+
+    static final String SNAPSHOT_FILE = "snapshot.bin";
+    static final String BASELINE_FILE = "baseline.bin";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final int SNAPSHOT_MAGIC = 0x534E4150; // "SNAP"
+    private static final int BASELINE_MAGIC = 0x42415345; // "BASE"
+
+    /**
+     * Suma de los deltas de un diario hasta 'sequence' (incluida), por producto.
+     */
+    public record Snapshot(long sequence, Map<Long, Integer> deltas) {}
+
+    /**
+     * Cantidades de inventario en la base de datos en el instante 'takenAt'.
+     */
+    public record Baseline(Instant takenAt, Map<Long, Integer> quantities) {}
+
+    private StockJournalReplay() {}
+
+    public static void main(String[] args) throws IOException {
+        boolean writeSnapshot = args.length > 0 && "--write-snapshot".equals(args[0]);
+        List<Path> directories = Stream.of(args).skip(writeSnapshot ? 1 : 0).map(Path::of).toList();
+        if (directories.isEmpty()) {
+            System.err.println("Uso: StockJournalReplay [--write-snapshot] <directorio-del-diario> [<directorio-del-diario> ...]");
+            System.exit(2);
+        }
+
+        Map<Long, Integer> quantities = rebuild(directories);
+        for (Path directory : directories) {
+            Snapshot snapshot = replay(directory);
+            if (writeSnapshot) {
+                writeSnapshot(directory, snapshot);
+            }
+            System.err.println("Diario " + directory + " aplicado hasta la secuencia " + snapshot.sequence() + ".");
+        }
+
+        System.out.println("productId,quantity");
+        quantities.forEach((productId, quantity) -> System.out.println(productId + "," + quantity));
+    }
+
+    /**
+     * Cantidades de inventario: la línea base más antigua de los diarios más los deltas de todos ellos.
+     * @param directories Diarios de las instancias (uno por instancia).
+     * @throws IllegalStateException si ningún diario tiene línea base.
+     */
+    public static Map<Long, Integer> rebuild(List<Path> directories) throws IOException {
+        List<Baseline> baselines = new ArrayList<>();
+        for (Path directory : directories) {
+            Baseline baseline = readBaseline(directory);
+            if (baseline != null) {
+                baselines.add(baseline);
+            }
+        }
+        Baseline earliest = baselines.stream().min(Comparator.comparing(Baseline::takenAt))
+                .orElseThrow(() -> new IllegalStateException("Ningún diario de stock tiene línea base (" + BASELINE_FILE + ")."));
+
+        Map<Long, Integer> quantities = new TreeMap<>(earliest.quantities());
+        for (Path directory : directories) {
+            replay(directory).deltas().forEach((productId, delta) -> quantities.merge(productId, delta, Integer::sum));
+        }
+        return quantities;
+    }
+
+    /**
+     * Deltas de la instantánea más todos los segmentos del diario.
+     */
+    public static Snapshot replay(Path directory) throws IOException {
+        return replay(directory, segments(directory));
+    }
+
+    /**
+     * Deltas de la instantánea más los segmentos indicados (en orden de secuencia).
+     * @throws IllegalStateException si falta un tramo de secuencias entre la instantánea y los segmentos.
+     */
+    static Snapshot replay(Path directory, List<Path> segments) throws IOException {
+        Snapshot snapshot = readSnapshot(directory);
+        Map<Long, Integer> deltas = new TreeMap<>(snapshot.deltas());
+        long sequence = snapshot.sequence();
+
+        for (Path segment : segments) {
+            long firstSequence = firstSequence(segment);
+            if (firstSequence > sequence + 1) {
+                throw new IllegalStateException("Diario de stock incompleto: faltan los registros " + (sequence + 1)
+                        + " a " + (firstSequence - 1) + " (segmento " + segment.getFileName() + ").");
+            }
+            long applied = sequence;
+            long[] last = {sequence};
+            read(segment, record -> {
+                // Un segmento ya plegado pero no borrado (caída durante el plegado) solo aporta lo posterior
+                if (record.sequence() > applied) {
+                    deltas.merge(record.productId(), record.delta(), Integer::sum);
+                }
+                last[0] = Math.max(last[0], record.sequence());
+            });
+            sequence = last[0];
+        }
+        return new Snapshot(sequence, deltas);
+    }
+
+    /**
+     * Pliega los segmentos indicados en una nueva instantánea y los elimina.
+     */
+    static Snapshot fold(Path directory, List<Path> segments) throws IOException {
+        Snapshot snapshot = replay(directory, segments);
+        writeSnapshot(directory, snapshot);
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Recorre los registros válidos de un segmento, en orden.
+     */
+    static void read(Path segment, Consumer<StockJournalRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long sequence = firstSequence(segment);
+            StockJournalRecord record;
+            for (int offset = 0; (record = StockJournalRecord.decode(buffer, offset, sequence)) != null; offset += StockJournalRecord.BYTES) {
+                consumer.accept(record);
+                sequence++;
+            }
+        }
+    }
+
+    /**
+     * Segmentos del diario ordenados por secuencia (el nombre es la secuencia de su primer registro).
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static Path segmentPath(Path directory, long firstSequence) {
+        return directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+    }
+
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Instantánea del directorio; sin instantánea, deltas vacíos en la secuencia 0.
+     */
+    static Snapshot readSnapshot(Path directory) throws IOException {
+        Path path = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return new Snapshot(0, Map.of());
+        }
+        Map<Long, Integer> deltas = new TreeMap<>();
+        long sequence = read(path, SNAPSHOT_MAGIC, deltas);
+        return new Snapshot(sequence, deltas);
+    }
+
+    /**
+     * Escribe la instantánea en un fichero temporal que la sustituye con un rename atómico.
+     */
+    static void writeSnapshot(Path directory, Snapshot snapshot) throws IOException {
+        write(directory.resolve(SNAPSHOT_FILE), SNAPSHOT_MAGIC, snapshot.sequence(), snapshot.deltas());
+    }
+
+    /**
+     * Línea base del directorio, o null si no tiene.
+     */
+    static Baseline readBaseline(Path directory) throws IOException {
+        Path path = directory.resolve(BASELINE_FILE);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        Map<Long, Integer> quantities = new TreeMap<>();
+        long takenAt = read(path, BASELINE_MAGIC, quantities);
+        return new Baseline(Instant.ofEpochMilli(takenAt), quantities);
+    }
+
+    static void writeBaseline(Path directory, Baseline baseline) throws IOException {
+        write(directory.resolve(BASELINE_FILE), BASELINE_MAGIC, baseline.takenAt().toEpochMilli(), baseline.quantities());
+    }
+
+    /**
+     * Lee un fichero de cabecera (magic, un long) y pares productId -> valor con CRC32 final.
+     * @return El long de la cabecera.
+     */
+    private static long read(Path path, int magic, Map<Long, Integer> values) throws IOException {
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path))) {
+            CheckedInputStream checked = new CheckedInputStream(file, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != magic) {
+                throw new IOException("El fichero " + path + " no es un fichero del diario de stock del tipo esperado.");
+            }
+            long header = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                values.put(in.readLong(), in.readInt());
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (new DataInputStream(file).readInt() != expected) {
+                throw new IOException("Fichero del diario de stock corrupto: " + path);
+            }
+            return header;
+        }
+    }
+
+    /**
+     * Escribe en un fichero temporal que sustituye a 'path' con un rename atómico.
+     */
+    private static void write(Path path, int magic, long header, Map<Long, Integer> values) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            BufferedOutputStream buffered = new BufferedOutputStream(file);
+            CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(magic);
+            out.writeLong(header);
+            out.writeInt(values.size());
+            for (Map.Entry<Long, Integer> value : values.entrySet()) {
+                out.writeLong(value.getKey());
+                out.writeInt(value.getValue());
+            }
+            out.flush();
+            new DataOutputStream(buffered).writeInt((int) checked.getChecksum().getValue());
+            buffered.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -35,12 +35,14 @@ public class InventoryMapper {
         return StockResponseDto.builder()
                 .productId(productId)
                 .quantity(quantity)
+                .available(inventory != null ? inventory.getAvailable() : 0)
                 .productExists(true)
                 // Mapeo de campos de ProductDto
                 .name(product.getName())
                 .description(product.getDescription())
                 .price(product.getPrice())
                 .sku(product.getSku())
+                .productStale(product.isStale() ? Boolean.TRUE : null)
                 .build();
     }
 }
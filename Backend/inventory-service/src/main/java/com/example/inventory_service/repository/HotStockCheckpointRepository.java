@@ -0,0 +1,11 @@
+package com.example.inventory_service.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.example.inventory_service.entity.HotStockCheckpoint;
+
+/**
+ * Repositorio del punto de control del diario de productos de alta demanda.
+ */
+public interface HotStockCheckpointRepository extends JpaRepository<HotStockCheckpoint, Long> {
+}
@@ -0,0 +1,90 @@
+package com.example.inventory_service.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * InventoryBatchRepository - Operaciones de inventario sobre muchos productos con sentencias
+ * JDBC por lotes (una ida y vuelta a la base de datos por sentencia, no por producto).
+ * Participa en la transacción JPA en curso (misma conexión).
+ */
+@Repository
+public class InventoryBatchRepository {
+
+    private static final String INSERT_IF_ABSENT =
+            "INSERT INTO inventories (product_id, quantity) VALUES (?, 0) ON CONFLICT DO NOTHING";
+    private static final String APPLY_DELTA =
+            "UPDATE inventories SET quantity = quantity + ? WHERE product_id = ? AND quantity + ? >= reserved";
+    private static final String ADD_QUANTITY =
+            "UPDATE inventories SET quantity = quantity + ? WHERE product_id = ?";
+    private static final String RELEASE_RESERVED =
+            "UPDATE inventories SET reserved = reserved - ? WHERE product_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InventoryBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Crea con stock 0 las filas de inventario que todavía no existen.
+     */
+    public void insertIfAbsent(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, new ArrayList<>(productIds), productIds.size(),
+                (ps, productId) -> ps.setLong(1, productId));
+    }
+
+    /**
+     * Aplica los cambios de stock (productId -> delta) en un único lote, cada uno condicionado
+     * a que el stock resultante no quede por debajo de lo reservado. Las filas se bloquean en el orden de iteración
+     * del mapa, por lo que se debe pasar ordenado por productId para evitar interbloqueos.
+     * @return Filas afectadas por cada cambio, en el mismo orden (0 = stock insuficiente o sin fila).
+     */
+    public int[] applyDeltas(Map<Long, Integer> deltas) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(deltas.entrySet());
+        int[][] counts = jdbcTemplate.batchUpdate(APPLY_DELTA, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+            ps.setInt(3, entry.getValue());
+        });
+        return counts.length == 0 ? new int[0] : counts[0];
+    }
+
+    /**
+     * Suma los cambios de stock (productId -> delta) sin condición, en un único lote: para cambios
+     * ya validados en otra parte (HotStockTier). Se debe pasar ordenado por productId.
+     */
+    public void addQuantities(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(ADD_QUANTITY, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+        });
+    }
+
+    /**
+     * Libera unidades reservadas (productId -> unidades) en un único lote. Igual que applyDeltas,
+     * se debe pasar ordenado por productId.
+     */
+    public void releaseReserved(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(quantities.entrySet());
+        jdbcTemplate.batchUpdate(RELEASE_RESERVED, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+        });
+    }
+}
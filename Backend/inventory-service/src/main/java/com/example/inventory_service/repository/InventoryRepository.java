@@ -1,8 +1,13 @@
 package com.example.inventory_service.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.inventory_service.entity.Inventory;
 
@@ -13,4 +18,60 @@ import com.example.inventory_service.entity.Inventory;
 public interface InventoryRepository extends JpaRepository<Inventory, Long>{
     // Usa Optional<Inventory> para indicar explícitamente que el registro puede no existir
     Optional<Inventory> findByProductId(Long productId);
+
+    List<Inventory> findByProductIdIn(Collection<Long> productIds);
+
+    /**
+     * Aplica un cambio de stock de forma atómica en la base de datos (quantity = quantity + delta),
+     * solo si el stock resultante no queda por debajo de lo reservado (una compra directa no puede
+     * consumir unidades retenidas por reservas). La fila queda bloqueada hasta el fin de la
+     * transacción, por lo que las compras concurrentes del mismo producto se serializan en PostgreSQL
+     * y no en la JVM.
+     * @return 1 si se aplicó el cambio; 0 si no existe la fila o el stock sería insuficiente.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.quantity = i.quantity + :delta WHERE i.productId = :productId AND i.quantity + :delta >= i.reserved")
+    int applyDelta(@Param("productId") Long productId, @Param("delta") int delta);
+
+    /**
+     * Retiene unidades para una reserva, solo si hay suficiente stock disponible (quantity - reserved).
+     * Una sola sentencia condicionada: las reservas concurrentes del mismo producto se serializan en
+     * el bloqueo de la fila, sin leer-comprobar-escribir en la JVM.
+     * @return 1 si se retuvieron las unidades; 0 si no existe la fila o no hay stock disponible.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.reserved = i.reserved + :quantity WHERE i.productId = :productId AND i.quantity - i.reserved >= :quantity")
+    int reserve(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * Retiene unidades ya admitidas por HotStockTier.reserve (productos de alta demanda, cuyo stock
+     * disponible está en memoria), sin condición sobre la fila.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.reserved = i.reserved + :quantity WHERE i.productId = :productId")
+    int addReserved(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * Confirma unidades reservadas: salen a la vez del stock total y de lo reservado.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.quantity = i.quantity - :quantity, i.reserved = i.reserved - :quantity WHERE i.productId = :productId")
+    int commitReserved(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * Libera unidades reservadas: vuelven a estar disponibles sin cambiar el stock total.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.reserved = i.reserved - :quantity WHERE i.productId = :productId")
+    int releaseReserved(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * Crea la fila de inventario (stock 0) si todavía no existe. Si otra transacción la crea a la vez,
+     * ON CONFLICT espera a que confirme y no hace nada, en lugar de fallar por la restricción única.
+     * @return 1 si se insertó la fila; 0 si ya existía.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO inventories (product_id, quantity) VALUES (:productId, 0) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("productId") Long productId);
 }
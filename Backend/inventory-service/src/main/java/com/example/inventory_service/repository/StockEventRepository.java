@@ -0,0 +1,29 @@
+package com.example.inventory_service.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import com.example.inventory_service.entity.StockEvent;
+
+import jakarta.persistence.LockModeType;
+
+/**
+ * Repositorio de la tabla outbox de eventos de stock.
+ */
+public interface StockEventRepository extends JpaRepository<StockEvent, Long> {
+
+    /**
+     * Siguiente lote de eventos pendientes, en orden de id, bloqueados (SELECT ... FOR UPDATE)
+     * hasta el fin de la transacción. Si hay varias instancias, la segunda espera a que la primera
+     * confirme en lugar de publicar eventos posteriores del mismo producto antes que los anteriores.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<StockEvent> findAllByOrderByIdAsc(Limit limit);
+
+    // Evento pendiente más antiguo (para medir el retraso del relay)
+    Optional<StockEvent> findFirstByOrderByIdAsc();
+}
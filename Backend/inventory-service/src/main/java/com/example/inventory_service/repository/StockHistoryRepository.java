@@ -0,0 +1,269 @@
+package com.example.inventory_service.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.inventory_service.entity.StockEvent;
+
+/**
+ * StockHistoryRepository - Historial de stock con JDBC (fuera de JPA: Hibernate no sabe declarar
+ * tablas particionadas, así que este repositorio crea y mantiene su propio esquema).
+ * - stock_history: un registro por cambio de stock, solo inserciones. En PostgreSQL está
+ *   particionada por mes de occurred_at (stock_history_yyyy_MM, más una partición DEFAULT de
+ *   seguridad): la retención se aplica borrando particiones enteras, sin DELETE masivos.
+ *   Las filas que caen en DEFAULT (meses sin partición, ej: una outbox atrasada) se mueven a la
+ *   partición de su mes al crearla.
+ * - stock_level_hourly: resumen por producto y hora (apertura, mínimo, máximo, cierre y número de
+ *   cambios), del que se sirven las consultas por rango.
+ * En otras bases de datos (H2 en los tests) stock_history es una tabla normal.
+ */
+@Repository
+public class StockHistoryRepository {
+
+    private static final String HISTORY_COLUMNS =
+            "event_id BIGINT NOT NULL, product_id BIGINT NOT NULL, old_quantity INTEGER NOT NULL, "
+            + "new_quantity INTEGER NOT NULL, change_quantity INTEGER NOT NULL, "
+            + "occurred_at TIMESTAMP WITH TIME ZONE NOT NULL, PRIMARY KEY (event_id, occurred_at)";
+    private static final String CREATE_HOURLY =
+            "CREATE TABLE IF NOT EXISTS stock_level_hourly (product_id BIGINT NOT NULL, "
+            + "bucket_start TIMESTAMP WITH TIME ZONE NOT NULL, open_quantity INTEGER NOT NULL, "
+            + "min_quantity INTEGER NOT NULL, max_quantity INTEGER NOT NULL, close_quantity INTEGER NOT NULL, "
+            + "changes INTEGER NOT NULL, first_event_id BIGINT NOT NULL, last_event_id BIGINT NOT NULL, "
+            + "PRIMARY KEY (product_id, bucket_start))";
+
+    private static final String INSERT_HISTORY =
+            "INSERT INTO stock_history (event_id, product_id, old_quantity, new_quantity, change_quantity, occurred_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+    // Solo llegan eventos nuevos en el historial (ver appendAll), en cualquier orden de id: la apertura
+    // es la del evento de menor id de la hora y el cierre el del evento de mayor id
+    private static final String MERGE_HOURLY =
+            "MERGE INTO stock_level_hourly h USING (SELECT CAST(? AS BIGINT) AS product_id, "
+            + "CAST(? AS TIMESTAMP WITH TIME ZONE) AS bucket_start, CAST(? AS INTEGER) AS open_quantity, "
+            + "CAST(? AS INTEGER) AS min_quantity, CAST(? AS INTEGER) AS max_quantity, CAST(? AS INTEGER) AS close_quantity, "
+            + "CAST(? AS INTEGER) AS changes, CAST(? AS BIGINT) AS first_event_id, CAST(? AS BIGINT) AS last_event_id) s "
+            + "ON h.product_id = s.product_id AND h.bucket_start = s.bucket_start "
+            + "WHEN MATCHED THEN UPDATE SET "
+            + "open_quantity = CASE WHEN s.first_event_id < h.first_event_id THEN s.open_quantity ELSE h.open_quantity END, "
+            + "min_quantity = LEAST(h.min_quantity, s.min_quantity), max_quantity = GREATEST(h.max_quantity, s.max_quantity), "
+            + "close_quantity = CASE WHEN s.last_event_id > h.last_event_id THEN s.close_quantity ELSE h.close_quantity END, "
+            + "changes = h.changes + s.changes, first_event_id = LEAST(h.first_event_id, s.first_event_id), "
+            + "last_event_id = GREATEST(h.last_event_id, s.last_event_id) "
+            + "WHEN NOT MATCHED THEN INSERT (product_id, bucket_start, open_quantity, min_quantity, max_quantity, "
+            + "close_quantity, changes, first_event_id, last_event_id) VALUES (s.product_id, s.bucket_start, s.open_quantity, "
+            + "s.min_quantity, s.max_quantity, s.close_quantity, s.changes, s.first_event_id, s.last_event_id)";
+
+    private static final String HOURLY_COLUMNS =
+            "product_id, bucket_start, open_quantity, min_quantity, max_quantity, close_quantity, changes, first_event_id, last_event_id";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    /**
+     * Fila de stock_level_hourly.
+     */
+    public record HourlyLevel(Long productId, Instant bucketStart, int openQuantity, int minQuantity,
+                              int maxQuantity, int closeQuantity, int changes, long firstEventId, long lastEventId) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private volatile Boolean partitioned;
+
+    public StockHistoryRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Crea las tablas e índices si no existen.
+     */
+    public void createSchema() {
+        if (isPartitioned()) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS stock_history (" + HISTORY_COLUMNS + ") PARTITION BY RANGE (occurred_at)");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS stock_history_default PARTITION OF stock_history DEFAULT");
+        } else {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS stock_history (" + HISTORY_COLUMNS + ")");
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_stock_history_product_time ON stock_history (product_id, occurred_at)");
+        jdbcTemplate.execute(CREATE_HOURLY);
+    }
+
+    /**
+     * Crea (si faltan) las particiones mensuales desde 'from' hasta 'monthsAhead' meses después, y las
+     * de los meses que tengan filas en la partición DEFAULT.
+     */
+    public void ensurePartitions(YearMonth from, int monthsAhead) {
+        if (!isPartitioned()) {
+            return;
+        }
+        Set<YearMonth> months = new TreeSet<>();
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(from.plusMonths(i));
+        }
+        months.addAll(jdbcTemplate.queryForList(
+                "SELECT DISTINCT to_char(occurred_at AT TIME ZONE 'UTC', 'YYYY-MM') FROM stock_history_default", String.class)
+                .stream().map(YearMonth::parse).toList());
+
+        Set<String> existing = new HashSet<>(monthlyPartitions());
+        months.stream()
+                .filter(month -> !existing.contains(partitionName(month)))
+                .forEach(this::createPartition);
+    }
+
+    /**
+     * Crea la partición del mes moviendo a ella las filas de ese mes que estén en DEFAULT: PostgreSQL
+     * no deja crear una partición cuyo rango tenga filas en DEFAULT. La partición DEFAULT queda
+     * bloqueada hasta el commit, así que no pueden llegar filas nuevas del mes entretanto.
+     */
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        OffsetDateTime start = monthStart(month).atOffset(ZoneOffset.UTC);
+        OffsetDateTime end = monthStart(month.plusMonths(1)).atOffset(ZoneOffset.UTC);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE stock_history_default IN ACCESS EXCLUSIVE MODE");
+            jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE stock_history INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int moved = jdbcTemplate.update("INSERT INTO " + partition
+                    + " SELECT * FROM stock_history_default WHERE occurred_at >= ? AND occurred_at < ?", start, end);
+            if (moved > 0) {
+                jdbcTemplate.update("DELETE FROM stock_history_default WHERE occurred_at >= ? AND occurred_at < ?", start, end);
+            }
+            // Al adjuntarla se crean en ella los índices de stock_history (clave primaria incluida)
+            jdbcTemplate.execute("ALTER TABLE stock_history ATTACH PARTITION " + partition
+                    + " FOR VALUES FROM ('" + start.toInstant() + "') TO ('" + end.toInstant() + "')");
+        });
+    }
+
+    /**
+     * Elimina el historial de los meses anteriores a 'cutoff' (borrando sus particiones en PostgreSQL,
+     * y las filas de esos meses que sigan en la partición DEFAULT).
+     * @return Número de particiones eliminadas más filas borradas de DEFAULT (o de filas, sin particiones).
+     */
+    public int dropBefore(YearMonth cutoff) {
+        OffsetDateTime cutoffStart = monthStart(cutoff).atOffset(ZoneOffset.UTC);
+        if (!isPartitioned()) {
+            return jdbcTemplate.update("DELETE FROM stock_history WHERE occurred_at < ?", cutoffStart);
+        }
+        String cutoffName = partitionName(cutoff);
+        List<String> expired = monthlyPartitions().stream()
+                .filter(partition -> partition.compareTo(cutoffName) < 0)
+                .toList();
+        // Los nombres vienen del catálogo (patrón fijo): no hay entrada del usuario en el DDL
+        expired.forEach(partition -> jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition));
+        return expired.size() + jdbcTemplate.update("DELETE FROM stock_history_default WHERE occurred_at < ?", cutoffStart);
+    }
+
+    /**
+     * Particiones mensuales existentes de stock_history (sin DEFAULT).
+     */
+    private List<String> monthlyPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                + "WHERE p.relname = 'stock_history' AND c.relname ~ '^stock_history_[0-9]{4}_[0-9]{2}$'",
+                String.class);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "stock_history_" + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * Añade los eventos al historial en un único lote. Los eventos ya registrados se ignoran.
+     * @return Los eventos insertados ahora (sin los ya registrados), en el orden recibido.
+     */
+    public List<StockEvent> appendAll(List<StockEvent> events) {
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_HISTORY, events, events.size(), (ps, event) -> {
+            ps.setLong(1, event.getId());
+            ps.setLong(2, event.getProductId());
+            ps.setInt(3, event.getOldQuantity());
+            ps.setInt(4, event.getNewQuantity());
+            ps.setInt(5, event.getChangeQuantity());
+            ps.setObject(6, event.getCreatedAt().atOffset(ZoneOffset.UTC));
+        });
+        // Un único sub-lote (tamaño = número de eventos). 0 filas: ya estaba registrado; un recuento
+        // desconocido (SUCCESS_NO_INFO, p. ej. con reWriteBatchedInserts) se toma como insertado
+        List<StockEvent> inserted = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            if (counts[0][i] != 0) {
+                inserted.add(events.get(i));
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Combina los resúmenes horarios de un lote de eventos con los ya guardados, en un único lote.
+     */
+    public void mergeHourly(List<HourlyLevel> levels) {
+        jdbcTemplate.batchUpdate(MERGE_HOURLY, levels, levels.size(), (ps, level) -> {
+            ps.setLong(1, level.productId());
+            ps.setObject(2, level.bucketStart().atOffset(ZoneOffset.UTC));
+            ps.setInt(3, level.openQuantity());
+            ps.setInt(4, level.minQuantity());
+            ps.setInt(5, level.maxQuantity());
+            ps.setInt(6, level.closeQuantity());
+            ps.setInt(7, level.changes());
+            ps.setLong(8, level.firstEventId());
+            ps.setLong(9, level.lastEventId());
+        });
+    }
+
+    /**
+     * Resúmenes horarios del producto con inicio en [from, to), en orden.
+     */
+    public List<HourlyLevel> findHourly(Long productId, Instant from, Instant to) {
+        return jdbcTemplate.query("SELECT " + HOURLY_COLUMNS + " FROM stock_level_hourly "
+                + "WHERE product_id = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start",
+                StockHistoryRepository::toHourlyLevel, productId, from.atOffset(ZoneOffset.UTC), to.atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * Último resumen horario del producto con inicio en o antes de 'at'.
+     */
+    public Optional<HourlyLevel> findLastHourlyAtOrBefore(Long productId, Instant at) {
+        return jdbcTemplate.query("SELECT " + HOURLY_COLUMNS + " FROM stock_level_hourly "
+                + "WHERE product_id = ? AND bucket_start <= ? ORDER BY bucket_start DESC LIMIT 1",
+                StockHistoryRepository::toHourlyLevel, productId, at.atOffset(ZoneOffset.UTC)).stream().findFirst();
+    }
+
+    /**
+     * Cantidad tras el último cambio del producto en [from, to] (consulta acotada a una partición).
+     */
+    public Optional<Integer> findLastQuantityBetween(Long productId, Instant from, Instant to) {
+        return jdbcTemplate.queryForList("SELECT new_quantity FROM stock_history "
+                + "WHERE product_id = ? AND occurred_at >= ? AND occurred_at <= ? ORDER BY occurred_at DESC, event_id DESC LIMIT 1",
+                Integer.class, productId, from.atOffset(ZoneOffset.UTC), to.atOffset(ZoneOffset.UTC)).stream().findFirst();
+    }
+
+    private boolean isPartitioned() {
+        if (partitioned == null) {
+            partitioned = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return partitioned;
+    }
+
+    private static Instant monthStart(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private static HourlyLevel toHourlyLevel(ResultSet rs, int rowNum) throws SQLException {
+        return new HourlyLevel(rs.getLong("product_id"), rs.getObject("bucket_start", OffsetDateTime.class).toInstant(),
+                rs.getInt("open_quantity"), rs.getInt("min_quantity"), rs.getInt("max_quantity"),
+                rs.getInt("close_quantity"), rs.getInt("changes"), rs.getLong("first_event_id"), rs.getLong("last_event_id"));
+    }
+}
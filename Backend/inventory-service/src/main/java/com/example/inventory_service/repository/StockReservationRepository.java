@@ -0,0 +1,41 @@
+package com.example.inventory_service.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import com.example.inventory_service.entity.StockReservation;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+/**
+ * Repositorio de las reservas de stock activas.
+ */
+public interface StockReservationRepository extends JpaRepository<StockReservation, UUID> {
+
+    /**
+     * Reserva bloqueada (SELECT ... FOR UPDATE) hasta el fin de la transacción: confirmarla,
+     * liberarla y expirarla se excluyen entre sí, así que sus unidades se descuentan una sola vez.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.id = :id")
+    Optional<StockReservation> findByIdForUpdate(@Param("id") UUID id);
+
+    /**
+     * Siguiente lote de reservas expiradas, las que antes expiraron primero. Las filas bloqueadas por
+     * otra transacción (una confirmación en curso u otra instancia del barrido) se saltan
+     * (SKIP LOCKED, timeout de bloqueo -2) en lugar de esperar.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<StockReservation> findByExpiresAtLessThanEqualOrderByExpiresAtAsc(Instant now, Limit limit);
+}
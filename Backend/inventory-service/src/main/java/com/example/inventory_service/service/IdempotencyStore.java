@@ -0,0 +1,145 @@
+package com.example.inventory_service.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.inventory_service.dto.StockResponseDto;
+import com.example.inventory_service.exception.IdempotencyKeyReusedException;
+import com.example.inventory_service.exception.IdempotentRequestInProgressException;
+import com.example.inventory_service.exception.IdempotentRequestOutcomeUnknownException;
+import com.example.inventory_service.exception.InsufficientStockException;
+import com.example.inventory_service.exception.InvalidRequestException;
+import com.example.inventory_service.exception.ProductNotFoundException;
+import com.example.inventory_service.exception.ProductsUnavailableException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * IdempotencyStore - Deduplicación de POST /api/inventory/{productId}/update por la cabecera
+ * Idempotency-Key (reintentos del cliente o de Resilience4j en el llamador).
+ * - Por clave se guarda la huella de la petición (productId y cambio de cantidad) y su respuesta, en
+ *   una caché Caffeine acotada por tamaño y con expiración inventory.idempotency.ttl.
+ * - Un duplicado recibe la respuesta original sin tocar la base de datos; uno concurrente espera a
+ *   que termine la primera ejecución (como mucho inventory.idempotency.wait-timeout) en lugar de
+ *   competir con ella.
+ * - Si la primera ejecución falla sin efecto (validación, producto inexistente, stock insuficiente o
+ *   Products Service no disponible), los duplicados que la esperaban reciben el mismo error y la clave
+ *   se libera: un reintento posterior vuelve a ejecutar la petición.
+ * - Cualquier otro fallo pudo producirse con el cambio ya aplicado (ej: HotStockTier lo registra en el
+ *   diario pero no consigue forzarlo a disco). La clave se conserva y los duplicados se rechazan
+ *   (IdempotentRequestOutcomeUnknownException) hasta que expire, en lugar de aplicar el cambio dos veces.
+ * - La misma clave con otra huella se rechaza (IdempotencyKeyReusedException).
+ * Las claves son locales a cada instancia: con varias réplicas, el balanceador debe enviar los
+ * reintentos de una clave a la misma (ej: hash de la cabecera).
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final Cache<String, Entry> entries;
+    private final Duration waitTimeout;
+
+    /**
+     * Resultado de una petición idempotente.
+     * @param replayed true si se devolvió la respuesta de una ejecución anterior.
+     */
+    public record Result(StockResponseDto response, boolean replayed) {}
+
+    private record Entry(Long productId, int changeQuantity, CompletableFuture<StockResponseDto> response) {
+        boolean matches(Long otherProductId, int otherChangeQuantity) {
+            return productId.equals(otherProductId) && changeQuantity == otherChangeQuantity;
+        }
+    }
+
+    public IdempotencyStore(@Value("${inventory.idempotency.max-size:100000}") long maxSize,
+                            @Value("${inventory.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${inventory.idempotency.wait-timeout:10s}") Duration waitTimeout,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.waitTimeout = waitTimeout;
+
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, entries, "idempotency-keys"));
+    }
+
+    /**
+     * Ejecuta la actualización una sola vez por clave.
+     * @param key Valor de la cabecera Idempotency-Key.
+     * @param update Actualización a ejecutar si la clave es nueva.
+     * @throws IdempotencyKeyReusedException si la clave ya se usó con otro producto o cantidad.
+     * @throws IdempotentRequestInProgressException si la ejecución original no termina a tiempo.
+     */
+    public Result execute(String key, Long productId, int changeQuantity, Supplier<StockResponseDto> update) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidRequestException("Idempotency-Key debe tener entre 1 y " + MAX_KEY_LENGTH + " caracteres.");
+        }
+
+        Entry mine = new Entry(productId, changeQuantity, new CompletableFuture<>());
+        Entry existing = entries.asMap().putIfAbsent(key, mine);
+        if (existing != null) {
+            if (!existing.matches(productId, changeQuantity)) {
+                throw new IdempotencyKeyReusedException("El Idempotency-Key '" + key + "' ya se usó con otra petición (producto "
+                        + existing.productId() + ", cambio " + existing.changeQuantity() + ").");
+            }
+            return new Result(await(key, existing.response()), true);
+        }
+
+        try {
+            StockResponseDto response = update.get();
+            mine.response().complete(response);
+            return new Result(response, false);
+        } catch (RuntimeException | Error e) {
+            if (hadNoEffect(e)) {
+                entries.asMap().remove(key, mine);
+                mine.response().completeExceptionally(e);
+            } else {
+                mine.response().completeExceptionally(new IdempotentRequestOutcomeUnknownException("La petición con Idempotency-Key '"
+                        + key + "' falló y el cambio pudo aplicarse; consulte el stock antes de repetirla con otra clave.", e));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Errores que se producen antes de cambiar el stock (o que revierten la transacción del cambio).
+     */
+    private static boolean hadNoEffect(Throwable e) {
+        return e instanceof InvalidRequestException
+                || e instanceof ProductNotFoundException
+                || e instanceof InsufficientStockException
+                || e instanceof ProductsUnavailableException;
+    }
+
+    private StockResponseDto await(String key, CompletableFuture<StockResponseDto> response) {
+        try {
+            return response.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // El mismo error que recibió la petición original (ej: stock insuficiente)
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotentRequestInProgressException("La petición con Idempotency-Key '" + key + "' sigue en curso; reintente más tarde.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotentRequestInProgressException("Espera interrumpida de la petición con Idempotency-Key '" + key + "'.");
+        }
+    }
+}
@@ -1,49 +1,100 @@
 package com.example.inventory_service.service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.example.inventory_service.client.ProductsClient;
+import com.example.inventory_service.cache.ProductCache;
+import com.example.inventory_service.dto.BulkInventoryUpdateDto;
 import com.example.inventory_service.dto.ProductDto;
 import com.example.inventory_service.dto.StockResponseDto;
 import com.example.inventory_service.entity.Inventory;
+import com.example.inventory_service.entity.StockEvent;
+import com.example.inventory_service.exception.BulkInsufficientStockException;
 import com.example.inventory_service.exception.InsufficientStockException;
+import com.example.inventory_service.exception.InvalidRequestException;
 import com.example.inventory_service.exception.ProductNotFoundException;
+import com.example.inventory_service.exception.ProductsUnavailableException;
+import com.example.inventory_service.hotstock.HotStockTier;
+import com.example.inventory_service.journal.StockJournal;
 import com.example.inventory_service.mapper.InventoryMapper;
+import com.example.inventory_service.repository.InventoryBatchRepository;
 import com.example.inventory_service.repository.InventoryRepository;
+import com.example.inventory_service.repository.StockEventRepository;
+
+import reactor.core.Exceptions;
 
 @Service
 public class InventoryService {
     
     private static final Logger log  = LoggerFactory.getLogger(InventoryService.class);
 
+    // Máximo de productos por consulta masiva de stock (una página de catálogo)
+    public static final int MAX_BATCH_IDS = 100;
+
+    // Campos de 'inventory' que se pueden responder sin los metadatos del Products Service
+    public static final Set<String> LIGHTWEIGHT_FIELDS = Set.of("productId", "quantity", "productExists");
+
     private final InventoryRepository inventoryRepository;
-    private final ProductsClient productsClient;
+    private final InventoryBatchRepository inventoryBatchRepository;
+    private final ProductCache productCache;
     private final InventoryMapper inventoryMapper;
+    private final StockEventRepository stockEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final HotStockTier hotStockTier;
+    private final StockJournal stockJournal;
 
-    public InventoryService(InventoryRepository inventoryRepository, ProductsClient productsClient, InventoryMapper inventoryMapper) {
+    public InventoryService(InventoryRepository inventoryRepository, InventoryBatchRepository inventoryBatchRepository,
+                            ProductCache productCache, InventoryMapper inventoryMapper,
+                            StockEventRepository stockEventRepository, PlatformTransactionManager transactionManager,
+                            HotStockTier hotStockTier, StockJournal stockJournal) {
         this.inventoryRepository = inventoryRepository;
-        this.productsClient = productsClient;
+        this.inventoryBatchRepository = inventoryBatchRepository;
+        this.productCache = productCache;
         this.inventoryMapper = inventoryMapper;
+        this.stockEventRepository = stockEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hotStockTier = hotStockTier;
+        this.stockJournal = stockJournal;
     }
 
+    /**
+     * Consulta la caché local; solo en caso de fallo se llama al Products Service.
+     * La E/S es no bloqueante: únicamente este hilo espera el resultado (block), sin ocupar hilos
+     * del common pool.
+     * @return El producto, o null si el Products Service responde 404 (Mono vacío).
+     * @throws ProductsUnavailableException Si no se pudo consultar (circuito abierto, bulkhead lleno,
+     *         timeout o error tras los reintentos): no se sabe si el producto existe.
+     */
     private ProductDto validateProductExistence(Long productId) {
         try {
-            // Bloquea el hilo esperando el resultado del CompletableFuture.join()
-            return productsClient.getProductById(productId).join(); 
-        } catch (Exception e) {
-            log.error("Error al obtener producto {} (posiblemente fallback o error de conexión): {}", productId, e.getMessage());
-            return null; // El 404/Fallback del cliente resultará en null
+            return productCache.getProductById(productId).block();
+        } catch (RuntimeException e) {
+            Throwable cause = Exceptions.unwrap(e);
+            log.error("Error al obtener producto {} (Products Service no disponible): {}", productId, cause.getMessage());
+            throw new ProductsUnavailableException("No se pudo verificar el producto " + productId + ": Products Service no disponible.", cause);
         }
     }
 
     /**
      * GET: Consultar la cantidad de un producto.
+     * Sin transacción envolvente: cada consulta al repositorio usa su propia transacción de solo
+     * lectura, y la espera al Products Service no retiene ninguna conexión JDBC.
      */
-    @Transactional(readOnly = true)
     public StockResponseDto checkStock(Long productId) {
 
         ProductDto productDto = validateProductExistence(productId);
@@ -53,6 +104,7 @@ public class InventoryService {
         }
 
         Optional<Inventory> inventoryOpt = inventoryRepository.findByProductId(productId);
+        inventoryOpt.ifPresent(hotStockTier::overlay);
         
         // Pasamos Inventory, ProductDto y 'true' al mapper.
         return inventoryMapper.toStockResponseDto(
@@ -62,11 +114,82 @@ public class InventoryService {
         );
     }
 
+    /**
+     * GET: Consultar la cantidad de un producto con los campos solicitados (JSON:API sparse fieldsets).
+     * Si solo se piden campos de LIGHTWEIGHT_FIELDS se responde en modo ligero (checkStockQuantity);
+     * en otro caso se devuelve el stock completo con los metadatos del producto.
+     */
+    public StockResponseDto checkStock(Long productId, Set<String> fields) {
+        if (fields != null && !fields.isEmpty() && LIGHTWEIGHT_FIELDS.containsAll(fields)) {
+            return checkStockQuantity(productId);
+        }
+        return checkStock(productId);
+    }
+
+    /**
+     * GET (modo ligero): Consultar solo la cantidad de un producto, sin metadatos.
+     * Se responde desde el repositorio y la caché local de productos, sin llamar al Products Service:
+     * - Si la caché conoce el producto, su resultado decide la existencia (un 404 cacheado sigue siendo 404).
+     * - Si no, la fila de inventario basta: solo se crea tras validar el producto.
+     * Únicamente un producto sin inventario y fuera de caché se valida contra el Products Service.
+     */
+    public StockResponseDto checkStockQuantity(Long productId) {
+
+        Optional<Inventory> inventoryOpt = inventoryRepository.findByProductId(productId);
+        inventoryOpt.ifPresent(hotStockTier::overlay);
+
+        boolean productExists = productCache.cachedExistence(productId)
+                .or(() -> inventoryOpt.map(inventory -> true))
+                .orElseGet(() -> validateProductExistence(productId) != null);
+
+        if (!productExists) {
+            throw new ProductNotFoundException("Producto con ID " + productId + " no encontrado en Products Service.");
+        }
+
+        return StockResponseDto.builder()
+                .productId(productId)
+                .quantity(inventoryOpt.map(Inventory::getQuantity).orElse(0))
+                .productExists(true)
+                .build();
+    }
+
+    /**
+     * GET (masivo): Consultar el stock de varios productos.
+     * Una sola consulta al repositorio (findByProductIdIn) y una sola consulta en lote de metadatos
+     * de producto (caché + Products Service). Los productos inexistentes se devuelven con
+     * productExists = false en lugar de hacer fallar toda la consulta.
+     * @return El stock de cada producto, en el orden solicitado y sin duplicados.
+     */
+    public List<StockResponseDto> checkStocks(Collection<Long> productIds) {
+        if (productIds.isEmpty() || productIds.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidRequestException("Se debe indicar al menos un id de producto, sin ids vacíos.");
+        }
+        List<Long> ids = productIds.stream().distinct().toList();
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new InvalidRequestException("No se pueden consultar más de " + MAX_BATCH_IDS + " productos por petición.");
+        }
+
+        Map<Long, Inventory> inventories = inventoryRepository.findByProductIdIn(ids).stream()
+                .collect(Collectors.toMap(Inventory::getProductId, Function.identity()));
+        inventories.values().forEach(hotStockTier::overlay);
+        Map<Long, ProductDto> products = validateProductsExistence(ids);
+
+        return ids.stream()
+                .map(productId -> {
+                    ProductDto productDto = products.get(productId);
+                    // Sin registro de inventario: stock 0 (igual que checkStock)
+                    Inventory inventory = inventories.getOrDefault(productId, new Inventory(productId, 0));
+                    return inventoryMapper.toStockResponseDto(inventory, productDto, productDto != null);
+                })
+                .toList();
+    }
+
     /**
      * POST: Actualizar la cantidad disponible tras una compra.
+     * El producto se valida antes de abrir la transacción: la espera al Products Service no
+     * retiene una conexión del pool JDBC.
      * 💡 El retorno es StockResponseDto.
      */
-    @Transactional
     public StockResponseDto updateInventory(Long productId, Integer changeQuantity) {
         
         // 1. Validar existencia del producto y OBTENER el ProductDto
@@ -74,36 +197,148 @@ public class InventoryService {
         if (productDto == null) {
             throw new ProductNotFoundException("Producto con ID " + productId + " no encontrado en Products Service. No se puede actualizar el inventario.");
         }
-        
-        // 2. Lógica de negocio (Obtener/Inicializar/Validar Stock)
-        Inventory inventory = inventoryRepository.findByProductId(productId)
-                .orElseGet(() -> {
-                    if (changeQuantity < 0) {
-                        throw new InsufficientStockException("El producto " + productId + " no tiene inventario inicial para realizar la compra.");
-                    }
-                    return new Inventory(productId, 0);
-                });
-        
-        int newQuantity = inventory.getQuantity() + changeQuantity;
-        
-        if (newQuantity < 0) {
-            throw new InsufficientStockException("Stock insuficiente para el producto " + productId + ". Stock actual: " + inventory.getQuantity());
-        }
 
-        // 3. Actualizar y guardar
-        int oldQuantity = inventory.getQuantity();
-        inventory.setQuantity(newQuantity);
-        Inventory updatedInventory = inventoryRepository.save(inventory);
-
-        // Emitir un evento básico (log en consola).
-        log.info("EVENTO: El inventario del producto {} ha cambiado de {} a {}. Cambio: {}",
-                            productId, oldQuantity, newQuantity, changeQuantity);
+        // 2. Aplicar el cambio y registrar el evento en una sola transacción; los productos de alta
+        //    demanda se descuentan en memoria y se vuelcan después en lote (HotStockTier). Una vez
+        //    aceptado, el cambio se añade al diario local (StockJournal)
+        Inventory updatedInventory = hotStockTier.isHot(productId)
+                ? hotStockTier.apply(productId, changeQuantity)
+                : transactionTemplate.execute(status -> applyChange(productId, changeQuantity));
+        stockJournal.record(productId, changeQuantity, updatedInventory.getQuantity());
         
-        // 4. Mapear y devolver el DTO final
+        // 3. Mapear y devolver el DTO final
         return inventoryMapper.toStockResponseDto(
             updatedInventory,
             productDto,
             true
         );
     }
-}
\ No newline at end of file
+
+    private Inventory applyChange(Long productId, Integer changeQuantity) {
+        // Cambio de stock atómico en la base de datos (sin leer-modificar-guardar en la JVM):
+        // el UPDATE condicionado bloquea la fila, así que dos compras concurrentes no pueden
+        // dejar el stock negativo ni pisarse el decremento.
+        if (inventoryRepository.applyDelta(productId, changeQuantity) == 0) {
+            if (changeQuantity < 0) {
+                throw insufficientStock(productId);
+            }
+            // Primera reposición del producto: se crea la fila (idempotente ante carreras) y se aplica el cambio
+            inventoryRepository.insertIfAbsent(productId);
+            inventoryRepository.applyDelta(productId, changeQuantity);
+        }
+
+        // Leer el stock resultante (la fila sigue bloqueada por esta transacción)
+        Inventory updatedInventory = inventoryRepository.findByProductId(productId)
+                .orElseThrow(() -> new IllegalStateException("Inventario del producto " + productId + " no encontrado tras actualizarlo."));
+        int newQuantity = updatedInventory.getQuantity();
+        int oldQuantity = newQuantity - changeQuantity;
+
+        // Registrar el evento en la outbox, en esta misma transacción (StockEventRelay lo publica)
+        stockEventRepository.save(new StockEvent(productId, oldQuantity, newQuantity, changeQuantity, Instant.now()));
+        log.info("EVENTO: El inventario del producto {} ha cambiado de {} a {}. Cambio: {}",
+                            productId, oldQuantity, newQuantity, changeQuantity);
+        return updatedInventory;
+    }
+
+    /**
+     * POST (masivo): Aplicar todas las líneas de un pedido en una sola transacción.
+     * Los productos se validan con una única consulta en lote (antes de abrir la transacción) y los
+     * cambios se aplican con sentencias JDBC por lotes. Si alguna línea no tiene stock suficiente no
+     * se aplica ninguna.
+     * @return El stock resultante de cada producto, ordenado por productId.
+     */
+    public List<StockResponseDto> updateInventoryBulk(List<BulkInventoryUpdateDto.Item> items) {
+
+        // 1. Agrupar líneas del mismo producto. El orden por productId fija el orden de bloqueo
+        //    de filas, así dos pedidos concurrentes con productos en común no se interbloquean.
+        Map<Long, Integer> deltas = items.stream()
+                .collect(Collectors.toMap(BulkInventoryUpdateDto.Item::getProductId,
+                        BulkInventoryUpdateDto.Item::getChangeQuantity, Integer::sum, TreeMap::new));
+        List<Long> hot = deltas.keySet().stream().filter(hotStockTier::isHot).toList();
+        if (!hot.isEmpty()) {
+            throw new InvalidRequestException("Los productos " + hot + " están en modo de alta demanda: solo admiten actualizaciones individuales.");
+        }
+
+        // 2. Validar todos los productos en una sola consulta (caché + lote al Products Service)
+        Map<Long, ProductDto> products = validateProductsExistence(deltas.keySet());
+        List<Long> missing = deltas.keySet().stream().filter(productId -> !products.containsKey(productId)).toList();
+        if (!missing.isEmpty()) {
+            throw new ProductNotFoundException("Productos " + missing + " no encontrados en Products Service. No se puede actualizar el inventario.");
+        }
+
+        // 3. Aplicar todos los cambios en una transacción y, confirmados, añadirlos al diario local
+        Map<Long, Inventory> inventories = transactionTemplate.execute(status -> applyChanges(deltas));
+        deltas.forEach((productId, delta) -> stockJournal.record(productId, delta, inventories.get(productId).getQuantity()));
+
+        // 4. Mapear y devolver los DTOs finales
+        return deltas.keySet().stream()
+                .map(productId -> inventoryMapper.toStockResponseDto(inventories.get(productId), products.get(productId), true))
+                .toList();
+    }
+
+    private Map<Long, Inventory> applyChanges(Map<Long, Integer> deltas) {
+        // Crear las filas que falten para las reposiciones y aplicar todos los cambios en lote
+        inventoryBatchRepository.insertIfAbsent(deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .toList());
+        int[] updated = inventoryBatchRepository.applyDeltas(deltas);
+
+        // Leer el stock resultante (las filas siguen bloqueadas por esta transacción)
+        Map<Long, Inventory> inventories = inventoryRepository.findByProductIdIn(deltas.keySet()).stream()
+                .collect(Collectors.toMap(Inventory::getProductId, Function.identity()));
+
+        // Líneas rechazadas: se informa cada una y se revierte la transacción completa
+        List<String> lineErrors = new ArrayList<>();
+        int i = 0;
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            if (updated[i++] == 0) {
+                Inventory inventory = inventories.get(delta.getKey());
+                lineErrors.add(inventory == null
+                        ? "El producto " + delta.getKey() + " no tiene inventario inicial para realizar la compra."
+                        : "Stock insuficiente para el producto " + delta.getKey() + ". Stock actual: " + inventory.getQuantity() + reservedSuffix(inventory)
+                            + ", cambio solicitado: " + delta.getValue());
+            }
+        }
+        if (!lineErrors.isEmpty()) {
+            throw new BulkInsufficientStockException(lineErrors);
+        }
+
+        // Un evento por producto en la outbox, en esta misma transacción
+        Instant now = Instant.now();
+        stockEventRepository.saveAll(deltas.entrySet().stream()
+                .map(delta -> {
+                    int newQuantity = inventories.get(delta.getKey()).getQuantity();
+                    return new StockEvent(delta.getKey(), newQuantity - delta.getValue(), newQuantity, delta.getValue(), now);
+                })
+                .toList());
+        log.info("EVENTO: Actualización masiva de inventario aplicada a {} productos: {}", deltas.size(), deltas);
+        return inventories;
+    }
+
+    private Map<Long, ProductDto> validateProductsExistence(Collection<Long> productIds) {
+        try {
+            Map<Long, ProductDto> products = productCache.getProducts(productIds).block();
+            return products != null ? products : Map.of();
+        } catch (RuntimeException e) {
+            // Sin respuesta no se puede distinguir "no existe" de "desconocido"
+            Throwable cause = Exceptions.unwrap(e);
+            log.error("Error al obtener productos {} (Products Service no disponible): {}", productIds, cause.getMessage());
+            throw new ProductsUnavailableException("No se pudieron verificar los productos: Products Service no disponible.", cause);
+        }
+    }
+
+    /**
+     * Construye la excepción de un decremento rechazado, distinguiendo si el producto
+     * no tiene inventario o si su stock actual no alcanza.
+     */
+    private InsufficientStockException insufficientStock(Long productId) {
+        return inventoryRepository.findByProductId(productId)
+                .map(inventory -> new InsufficientStockException("Stock insuficiente para el producto " + productId + ". Stock actual: " + inventory.getQuantity() + reservedSuffix(inventory)))
+                .orElseGet(() -> new InsufficientStockException("El producto " + productId + " no tiene inventario inicial para realizar la compra."));
+    }
+
+    private static String reservedSuffix(Inventory inventory) {
+        return inventory.getReserved() > 0 ? " (reservado: " + inventory.getReserved() + ")" : "";
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.inventory_service.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.inventory_service.dto.ReservationResponseDto;
+import com.example.inventory_service.dto.StockResponseDto;
+import com.example.inventory_service.entity.Inventory;
+import com.example.inventory_service.entity.StockEvent;
+import com.example.inventory_service.entity.StockReservation;
+import com.example.inventory_service.exception.InsufficientStockException;
+import com.example.inventory_service.exception.InvalidRequestException;
+import com.example.inventory_service.exception.ReservationNotFoundException;
+import com.example.inventory_service.hotstock.HotStockTier;
+import com.example.inventory_service.journal.StockJournal;
+import com.example.inventory_service.repository.InventoryRepository;
+import com.example.inventory_service.repository.StockEventRepository;
+import com.example.inventory_service.repository.StockReservationRepository;
+
+/**
+ * ReservationService - Reservas de stock con expiración (ej: un carrito durante el checkout).
+ * - reserve: retiene unidades sin descontarlas (Inventory.reserved) con un UPDATE condicionado
+ *   al stock disponible; la transacción solo bloquea la fila del producto durante ese UPDATE y el
+ *   INSERT de la reserva, así que las reservas de un producto muy demandado se serializan sin esperas largas.
+ * - confirm: las unidades reservadas salen del stock (se registra el evento de stock en la outbox).
+ * - release: las unidades vuelven a estar disponibles.
+ * - Las reservas que llegan a expiresAt sin confirmarse las libera ReservationSweeper.
+ * - En los productos de alta demanda, el stock disponible está en memoria: HotStockTier admite la
+ *   reserva, y la fila del producto solo se actualiza (sin condición) justo antes del commit.
+ */
+@Service
+public class ReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationService.class);
+
+    private final InventoryRepository inventoryRepository;
+    private final StockReservationRepository reservationRepository;
+    private final StockEventRepository stockEventRepository;
+    private final HotStockTier hotStockTier;
+    private final StockJournal stockJournal;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+
+    public ReservationService(InventoryRepository inventoryRepository,
+                              StockReservationRepository reservationRepository,
+                              StockEventRepository stockEventRepository,
+                              HotStockTier hotStockTier,
+                              StockJournal stockJournal,
+                              @Value("${inventory.reservations.default-ttl:15m}") Duration defaultTtl,
+                              @Value("${inventory.reservations.max-ttl:2h}") Duration maxTtl) {
+        this.inventoryRepository = inventoryRepository;
+        this.reservationRepository = reservationRepository;
+        this.stockEventRepository = stockEventRepository;
+        this.hotStockTier = hotStockTier;
+        this.stockJournal = stockJournal;
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+    }
+
+    /**
+     * Reserva unidades de un producto.
+     * @param ttlSeconds Duración de la reserva; null para la duración por defecto.
+     * @throws InsufficientStockException si el stock disponible (sin lo ya reservado) no alcanza.
+     */
+    @Transactional
+    public ReservationResponseDto reserve(Long productId, int quantity, Long ttlSeconds) {
+        Duration ttl = ttlSeconds != null ? Duration.ofSeconds(ttlSeconds) : defaultTtl;
+        if (ttl.compareTo(maxTtl) > 0) {
+            throw new InvalidRequestException("Una reserva no puede durar más de " + maxTtl.toSeconds() + " segundos.");
+        }
+        if (hotStockTier.isHot(productId)) {
+            return reserveHot(productId, quantity, ttl);
+        }
+
+        if (inventoryRepository.reserve(productId, quantity) == 0) {
+            throw inventoryRepository.findByProductId(productId)
+                    .map(inventory -> new InsufficientStockException("Stock insuficiente para reservar " + quantity + " unidades del producto "
+                            + productId + ". Stock disponible: " + inventory.getAvailable()))
+                    .orElseGet(() -> new InsufficientStockException("El producto " + productId + " no tiene inventario para reservar."));
+        }
+
+        Instant now = Instant.now();
+        StockReservation reservation = reservationRepository.save(new StockReservation(productId, quantity, now, now.plus(ttl)));
+        log.info("RESERVA: {} unidades del producto {} hasta {} ({})", quantity, productId, reservation.getExpiresAt(), reservation.getId());
+        return toDto(reservation);
+    }
+
+    /**
+     * Reserva de un producto de alta demanda: la admisión es en memoria (HotStockTier, que devuelve
+     * las unidades si la transacción se revierte) y el UPDATE de la fila va el último, para bloquearla
+     * solo hasta el commit.
+     */
+    private ReservationResponseDto reserveHot(Long productId, int quantity, Duration ttl) {
+        hotStockTier.reserve(productId, quantity);
+
+        Instant now = Instant.now();
+        StockReservation reservation = reservationRepository.save(new StockReservation(productId, quantity, now, now.plus(ttl)));
+        inventoryRepository.addReserved(productId, quantity);
+        log.info("RESERVA: {} unidades del producto de alta demanda {} hasta {} ({})", quantity, productId, reservation.getExpiresAt(), reservation.getId());
+        return toDto(reservation);
+    }
+
+    /**
+     * Confirma una reserva: sus unidades se descuentan del stock.
+     * @return Stock resultante del producto (sin metadatos del producto).
+     * @throws ReservationNotFoundException si la reserva no existe o ya expiró.
+     */
+    @Transactional
+    public StockResponseDto confirm(UUID reservationId) {
+        StockReservation reservation = reservationRepository.findByIdForUpdate(reservationId)
+                .filter(active -> active.getExpiresAt().isAfter(Instant.now()))
+                .orElseThrow(() -> notFound(reservationId));
+        Long productId = reservation.getProductId();
+        int quantity = reservation.getQuantity();
+
+        // El DELETE se envía antes del UPDATE (flushAutomatically), con la reserva aún gestionada
+        reservationRepository.delete(reservation);
+        inventoryRepository.commitReserved(productId, quantity);
+
+        Inventory inventory = inventoryRepository.findByProductId(productId)
+                .orElseThrow(() -> new IllegalStateException("Inventario del producto " + productId + " no encontrado al confirmar la reserva " + reservationId + "."));
+        int newQuantity = inventory.getQuantity();
+        stockEventRepository.save(new StockEvent(productId, newQuantity + quantity, newQuantity, -quantity, Instant.now()));
+        stockJournal.recordAfterCommit(productId, -quantity, newQuantity);
+        hotStockTier.reservationResolvedAfterCommit(productId, quantity, false);
+        log.info("EVENTO: Reserva {} confirmada; el inventario del producto {} ha cambiado de {} a {}.",
+                reservationId, productId, newQuantity + quantity, newQuantity);
+
+        return StockResponseDto.builder()
+                .productId(productId)
+                .quantity(newQuantity)
+                .available(inventory.getAvailable())
+                .productExists(true)
+                .build();
+    }
+
+    /**
+     * Libera una reserva antes de su expiración: sus unidades vuelven a estar disponibles.
+     * @throws ReservationNotFoundException si la reserva no existe (ya confirmada, liberada o barrida).
+     */
+    @Transactional
+    public void release(UUID reservationId) {
+        StockReservation reservation = reservationRepository.findByIdForUpdate(reservationId)
+                .orElseThrow(() -> notFound(reservationId));
+
+        reservationRepository.delete(reservation);
+        inventoryRepository.releaseReserved(reservation.getProductId(), reservation.getQuantity());
+        hotStockTier.reservationResolvedAfterCommit(reservation.getProductId(), reservation.getQuantity(), true);
+        log.info("RESERVA: {} liberada ({} unidades del producto {})", reservationId, reservation.getQuantity(), reservation.getProductId());
+    }
+
+    private static ReservationNotFoundException notFound(UUID reservationId) {
+        return new ReservationNotFoundException("Reserva " + reservationId + " no encontrada: no existe, ya se confirmó o liberó, o expiró.");
+    }
+
+    private static ReservationResponseDto toDto(StockReservation reservation) {
+        return ReservationResponseDto.builder()
+                .reservationId(reservation.getId())
+                .productId(reservation.getProductId())
+                .quantity(reservation.getQuantity())
+                .expiresAt(reservation.getExpiresAt())
+                .build();
+    }
+}
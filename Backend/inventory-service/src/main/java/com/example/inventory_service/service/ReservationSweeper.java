@@ -0,0 +1,108 @@
+package com.example.inventory_service.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.inventory_service.entity.StockReservation;
+import com.example.inventory_service.hotstock.HotStockTier;
+import com.example.inventory_service.repository.InventoryBatchRepository;
+import com.example.inventory_service.repository.StockReservationRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * ReservationSweeper - Libera las reservas que llegan a su expiración sin confirmarse.
+ * - Cada pasada toma lotes de inventory.reservations.sweep-batch-size reservas expiradas, las borra
+ *   y devuelve sus unidades al stock disponible con un UPDATE por producto en un único lote JDBC.
+ * - Las reservas bloqueadas por una confirmación en curso se saltan (SKIP LOCKED): si la
+ *   confirmación falla, se barren en la pasada siguiente. Varias instancias pueden barrer a la vez.
+ * - Métrica: inventory.reservations.expired (reservas liberadas por expiración).
+ */
+@Component
+public class ReservationSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationSweeper.class);
+
+    private final StockReservationRepository reservationRepository;
+    private final InventoryBatchRepository inventoryBatchRepository;
+    private final HotStockTier hotStockTier;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Counter expiredCounter;
+
+    public ReservationSweeper(StockReservationRepository reservationRepository,
+                              InventoryBatchRepository inventoryBatchRepository,
+                              HotStockTier hotStockTier,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${inventory.reservations.sweep-batch-size:500}") int batchSize,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
+        this.reservationRepository = reservationRepository;
+        this.inventoryBatchRepository = inventoryBatchRepository;
+        this.hotStockTier = hotStockTier;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.expiredCounter = registry == null ? null : Counter.builder("inventory.reservations.expired")
+                .description("Reservas de stock liberadas por expiración")
+                .register(registry);
+    }
+
+    /**
+     * Pasada programada: barre lotes mientras estén completos.
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservations.sweep-interval-ms:1000}")
+    public void sweep() {
+        try {
+            int expired;
+            do {
+                expired = expireBatch();
+            } while (expired == batchSize);
+        } catch (Exception e) {
+            log.error("❌ Error al liberar reservas de stock expiradas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Libera el siguiente lote de reservas expiradas.
+     * @return Número de reservas liberadas.
+     */
+    public int expireBatch() {
+        Integer expired = transactionTemplate.execute(status -> {
+            List<StockReservation> batch = reservationRepository.findByExpiresAtLessThanEqualOrderByExpiresAtAsc(Instant.now(), Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            // Unidades a liberar por producto, ordenadas por productId (mismo orden de bloqueo que el resto de lotes)
+            Map<Long, Integer> released = batch.stream()
+                    .collect(Collectors.groupingBy(StockReservation::getProductId, TreeMap::new,
+                            Collectors.summingInt(StockReservation::getQuantity)));
+
+            reservationRepository.deleteAllInBatch(batch);
+            inventoryBatchRepository.releaseReserved(released);
+            released.forEach((productId, units) -> hotStockTier.reservationResolvedAfterCommit(productId, units, true));
+            log.info("RESERVA: {} reservas expiradas liberadas en {} productos", batch.size(), released.size());
+            return batch.size();
+        });
+
+        if (expiredCounter != null && expired != null) {
+            expiredCounter.increment(expired);
+        }
+        return expired != null ? expired : 0;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.inventory_service.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.inventory_service.dto.StockAtDto;
+import com.example.inventory_service.dto.StockLevelDto;
+import com.example.inventory_service.entity.StockEvent;
+import com.example.inventory_service.exception.InvalidRequestException;
+import com.example.inventory_service.exception.StockHistoryNotFoundException;
+import com.example.inventory_service.repository.StockHistoryRepository;
+import com.example.inventory_service.repository.StockHistoryRepository.HourlyLevel;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * StockHistoryService - Historial de stock por producto: "¿cuánto stock había en el instante T?" e
+ * informes de nivel por hora o por día.
+ * - Se alimenta de la outbox: StockEventRelay llama a record() con cada lote publicado, en la misma
+ *   transacción que lo borra. Si el historial falla, el lote sigue en la outbox y se repite.
+ * - record() añade los cambios a stock_history y actualiza el resumen horario (stock_level_hourly)
+ *   solo con los que no estaban ya en el historial: un lote repetido no cuenta dos veces, y un
+ *   evento que llega tarde (id menor que otros ya registrados) sí se cuenta, y si es el primero de
+ *   su hora pasa a ser la apertura.
+ * - Las consultas por rango se sirven solo de los resúmenes horarios (como mucho 24 filas por día y
+ *   producto); los días se agregan a partir de las horas, en UTC.
+ * - El instante exacto usa el resumen de su hora y, dentro de ella, como mucho los cambios de esa hora.
+ * - Las particiones mensuales del historial se crean por adelantado y se eliminan pasados
+ *   inventory.history.raw-retention-months. Los resúmenes horarios se conservan: sin el detalle, el
+ *   instante exacto se resuelve con la cantidad al inicio de su hora.
+ */
+@Service
+public class StockHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockHistoryService.class);
+
+    /**
+     * Resolución de las consultas por rango y rango máximo por consulta.
+     */
+    public enum Resolution {
+        HOUR(Duration.ofHours(1), Duration.ofDays(31)),
+        DAY(Duration.ofDays(1), Duration.ofDays(366));
+
+        private final Duration step;
+        private final Duration maxRange;
+
+        Resolution(Duration step, Duration maxRange) {
+            this.step = step;
+            this.maxRange = maxRange;
+        }
+
+        Instant floor(Instant instant) {
+            return instant.truncatedTo(this == HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+        }
+
+        Instant ceil(Instant instant) {
+            Instant floor = floor(instant);
+            return floor.equals(instant) ? floor : floor.plus(step);
+        }
+    }
+
+    private record Bucket(Long productId, Instant start) {}
+
+    private final StockHistoryRepository stockHistoryRepository;
+    private final int rawRetentionMonths;
+    private final int partitionsAhead;
+
+    public StockHistoryService(StockHistoryRepository stockHistoryRepository,
+                               @Value("${inventory.history.raw-retention-months:13}") int rawRetentionMonths,
+                               @Value("${inventory.history.partitions-ahead:2}") int partitionsAhead) {
+        this.stockHistoryRepository = stockHistoryRepository;
+        this.rawRetentionMonths = rawRetentionMonths;
+        this.partitionsAhead = partitionsAhead;
+    }
+
+    @PostConstruct
+    void init() {
+        stockHistoryRepository.createSchema();
+        maintainPartitions();
+    }
+
+    /**
+     * Crea las particiones de los próximos meses y elimina las que superan la retención.
+     */
+    @Scheduled(fixedDelayString = "${inventory.history.maintenance-interval-ms:3600000}")
+    public void maintainPartitions() {
+        try {
+            YearMonth current = YearMonth.now(ZoneOffset.UTC);
+            stockHistoryRepository.ensurePartitions(current, partitionsAhead);
+            int dropped = stockHistoryRepository.dropBefore(current.minusMonths(rawRetentionMonths));
+            if (dropped > 0) {
+                log.info("Historial de stock anterior a {} eliminado ({})", current.minusMonths(rawRetentionMonths), dropped);
+            }
+        } catch (RuntimeException e) {
+            log.error("❌ Error en el mantenimiento de las particiones del historial de stock: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Registra un lote de eventos de stock (en orden de id) en el historial y en los resúmenes
+     * horarios; los ya registrados se ignoran. Se llama dentro de una transacción.
+     */
+    public void record(List<StockEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<StockEvent> inserted = stockHistoryRepository.appendAll(events);
+        if (!inserted.isEmpty()) {
+            stockHistoryRepository.mergeHourly(rollup(inserted));
+        }
+    }
+
+    /**
+     * Resume los eventos por producto y hora. El nivel al inicio de la hora es la cantidad anterior
+     * al primer cambio, y cuenta para el mínimo y el máximo.
+     */
+    static List<HourlyLevel> rollup(List<StockEvent> events) {
+        Map<Bucket, HourlyLevel> levels = new LinkedHashMap<>();
+        for (StockEvent event : events) {
+            Bucket bucket = new Bucket(event.getProductId(), event.getCreatedAt().truncatedTo(ChronoUnit.HOURS));
+            int quantity = event.getNewQuantity();
+            levels.merge(bucket,
+                    new HourlyLevel(bucket.productId(), bucket.start(), event.getOldQuantity(),
+                            Math.min(event.getOldQuantity(), quantity), Math.max(event.getOldQuantity(), quantity),
+                            quantity, 1, event.getId(), event.getId()),
+                    (current, next) -> new HourlyLevel(current.productId(), current.bucketStart(), current.openQuantity(),
+                            Math.min(current.minQuantity(), quantity), Math.max(current.maxQuantity(), quantity),
+                            quantity, current.changes() + 1, current.firstEventId(), next.lastEventId()));
+        }
+        return new ArrayList<>(levels.values());
+    }
+
+    /**
+     * Cantidad en stock del producto en el instante 'at'.
+     * @throws StockHistoryNotFoundException si 'at' es anterior al primer cambio registrado.
+     */
+    public StockAtDto levelAt(Long productId, Instant at) {
+        HourlyLevel hour = stockHistoryRepository.findLastHourlyAtOrBefore(productId, at)
+                .orElseThrow(() -> new StockHistoryNotFoundException("No hay historial de stock del producto " + productId + " en " + at + "."));
+
+        // En una hora anterior basta su cierre; en la hora de 'at', el último cambio hasta 'at'
+        int quantity = hour.bucketStart().equals(at.truncatedTo(ChronoUnit.HOURS))
+                ? stockHistoryRepository.findLastQuantityBetween(productId, hour.bucketStart(), at).orElse(hour.openQuantity())
+                : hour.closeQuantity();
+
+        return StockAtDto.builder().productId(productId).at(at).quantity(quantity).build();
+    }
+
+    /**
+     * Niveles de stock del producto en [from, to) con la resolución indicada, a partir de los resúmenes
+     * horarios. Los intervalos sin cambios repiten el cierre anterior; se omiten los anteriores al
+     * primer cambio registrado y los futuros.
+     */
+    public List<StockLevelDto> levels(Long productId, Instant from, Instant to, Resolution resolution) {
+        if (!from.isBefore(to)) {
+            throw new InvalidRequestException("'from' debe ser anterior a 'to'.");
+        }
+        Instant now = Instant.now();
+        Instant start = resolution.floor(from);
+        Instant end = resolution.ceil(to.isAfter(now) ? now : to);
+        if (Duration.between(start, end).compareTo(resolution.maxRange) > 0) {
+            throw new InvalidRequestException("El rango máximo con resolución " + resolution + " es de " + resolution.maxRange.toDays() + " días.");
+        }
+
+        List<HourlyLevel> hours = stockHistoryRepository.findHourly(productId, start, end);
+        Integer carry = stockHistoryRepository.findLastHourlyAtOrBefore(productId, start.minusNanos(1))
+                .map(HourlyLevel::closeQuantity)
+                .orElse(null);
+
+        List<StockLevelDto> levels = new ArrayList<>();
+        int next = 0;
+        for (Instant bucket = start; bucket.isBefore(end); bucket = bucket.plus(resolution.step)) {
+            Instant bucketEnd = bucket.plus(resolution.step);
+            Integer open = carry;
+            Integer min = carry;
+            Integer max = carry;
+            int changes = 0;
+            for (; next < hours.size() && hours.get(next).bucketStart().isBefore(bucketEnd); next++) {
+                HourlyLevel hour = hours.get(next);
+                if (open == null) {
+                    open = hour.openQuantity();
+                    min = hour.minQuantity();
+                    max = hour.maxQuantity();
+                }
+                min = Math.min(min, hour.minQuantity());
+                max = Math.max(max, hour.maxQuantity());
+                carry = hour.closeQuantity();
+                changes += hour.changes();
+            }
+            if (open != null) {
+                levels.add(StockLevelDto.builder()
+                        .productId(productId)
+                        .from(bucket)
+                        .to(bucketEnd)
+                        .openQuantity(open)
+                        .minQuantity(min)
+                        .maxQuantity(max)
+                        .closeQuantity(carry)
+                        .changes(changes)
+                        .build());
+            }
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.inventory_service.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * JsonApiCollection - Documento JSON:API de colección que se escribe directamente en el
+ * flujo de la respuesta con el JsonGenerator de Jackson.
+ * El id de cada recurso se obtiene con un accesor tipado (ej: StockResponseDto::getProductId),
+ * sin reflexión por elemento ni mapas intermedios por recurso.
+ */
+public class JsonApiCollection<T> implements JsonSerializable {
+
+    private final List<T> items;
+    private final Function<? super T, ?> idAccessor;
+    private final String type;
+    private final Map<String, Object> meta;
+
+    public JsonApiCollection(List<T> items, Function<? super T, ?> idAccessor, String type, Map<String, Object> meta) {
+        this.items = items;
+        this.idAccessor = idAccessor;
+        this.type = type;
+        this.meta = meta;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getType() { return type; }
+    public Map<String, Object> getMeta() { return meta; }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeStartObject();
+
+        // 1. Lista de recursos ('data' array)
+        gen.writeArrayFieldStart("data");
+        Class<?> attributesClass = null;
+        JsonSerializer<Object> attributesSerializer = null;
+        for (T attributes : items) {
+            gen.writeStartObject();
+
+            // El formato JSON:API requiere que el ID sea una cadena.
+            Object id = idAccessor.apply(attributes);
+            if (id == null) {
+                gen.writeNullField("id");
+            } else {
+                gen.writeStringField("id", String.valueOf(id));
+            }
+            gen.writeStringField("type", type);
+
+            gen.writeFieldName("attributes");
+            if (attributes == null) {
+                gen.writeNull();
+            } else {
+                // El serializador de los atributos se resuelve una vez por clase, no por elemento.
+                if (attributes.getClass() != attributesClass) {
+                    attributesClass = attributes.getClass();
+                    attributesSerializer = serializers.findValueSerializer(attributesClass);
+                }
+                attributesSerializer.serialize(attributes, gen, serializers);
+            }
+
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+
+        // 2. Metadatos ('meta' block)
+        if (meta != null) {
+            gen.writeObjectFieldStart("meta");
+            for (Map.Entry<String, Object> entry : meta.entrySet()) {
+                serializers.defaultSerializeField(entry.getKey(), entry.getValue(), gen);
+            }
+            gen.writeEndObject();
+        }
+
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        serialize(gen, serializers);
+    }
+}
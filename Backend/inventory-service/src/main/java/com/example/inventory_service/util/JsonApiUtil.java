@@ -1,16 +1,17 @@
 package com.example.inventory_service.util;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+
 import org.springframework.data.domain.Page;
 
 /**
  * JsonApiUtil - Utilitario estático para generar respuestas que cumplen con el estándar JSON:API.
  * Proporciona métodos para construir documentos de recurso único, colecciones/listados y errores.
- * NOTA: Este utilitario asume que los DTOs de atributo tienen un método 'getId()' para la creación
- * de recursos. Si no lo tienen, el ID del recurso será nulo.
+ * NOTA: Las colecciones reciben un accesor tipado del ID de cada DTO (sin reflexión).
  */
 public class JsonApiUtil {
 
@@ -36,47 +37,34 @@ public class JsonApiUtil {
     }
 
     /**
-     * Crea un objeto JSON:API de una colección de recursos con metadatos de paginación.
-     * Este método es crucial para el listado de productos paginado.
+     * Crea un documento JSON:API de una colección de recursos con metadatos de paginación.
+     * El documento se escribe en streaming con el JsonGenerator de Jackson (ver JsonApiCollection).
      * * @param items - Lista de DTOs (los atributos).
-     * @param type - Tipo del recurso (ej: "products").
+     * @param idAccessor - Accesor tipado del ID de cada DTO (ej: StockResponseDto::getProductId).
+     * @param type - Tipo del recurso (ej: "inventory").
      * @param page - Objeto Page de Spring Data JPA para extraer metadatos de paginación.
-     * @return Un objeto Map que representa el documento JSON:API de una colección con 'meta'.
+     * @return Un JsonApiCollection que representa el documento JSON:API de una colección con 'meta'.
      */
-    public static Map<String, Object> collection(List<?> items, String type, Page<?> page) {
-        
-        // 1. Construir la lista de recursos ('data' array)
-        List<Map<String, Object>> dataList = items.stream()
-            .map(attributes -> {
-                Long id = null;
-                // Intenta obtener el ID del DTO (necesario para el estándar)
-                try {
-                    id = (Long) attributes.getClass().getMethod("getId").invoke(attributes);
-                } catch (Exception ignored) {
-                    // Si el DTO no tiene getId(), el id del recurso será nulo.
-                }
-
-                Map<String, Object> resource = new HashMap<>();
-                resource.put("id", id != null ? String.valueOf(id) : null);
-                resource.put("type", type);
-                resource.put("attributes", attributes);
-                return resource;
-            })
-            .collect(Collectors.toList());
-
-        // 2. Construir los metadatos de paginación ('meta' block)
-        Map<String, Object> meta = new HashMap<>();
+    public static <T> JsonApiCollection<T> collection(List<T> items, Function<? super T, ?> idAccessor, String type, Page<?> page) {
+        // Metadatos de paginación ('meta' block)
+        Map<String, Object> meta = new LinkedHashMap<>();
         meta.put("total-elements", page.getTotalElements());
         meta.put("total-pages", page.getTotalPages());
         meta.put("page-number", page.getNumber());
         meta.put("page-size", page.getSize());
-        
-        // 3. Construir la respuesta raíz
-        Map<String, Object> root = new HashMap<>();
-        root.put("data", dataList); // Lista de recursos
-        root.put("meta", meta);     // Metadatos de paginación
-        
-        return root;
+
+        return new JsonApiCollection<>(items, idAccessor, type, meta);
+    }
+
+    /**
+     * Crea un documento JSON:API de una colección de recursos sin paginación.
+     * * @param items - Lista de DTOs (los atributos).
+     * @param idAccessor - Accesor tipado del ID de cada DTO (ej: StockResponseDto::getProductId).
+     * @param type - Tipo del recurso (ej: "inventory").
+     * @return Un JsonApiCollection que representa el documento JSON:API de una colección con 'meta' (count).
+     */
+    public static <T> JsonApiCollection<T> collection(List<T> items, Function<? super T, ?> idAccessor, String type) {
+        return new JsonApiCollection<>(items, idAccessor, type, Map.<String, Object>of("count", items.size()));
     }
 
 
@@ -98,4 +86,27 @@ public class JsonApiUtil {
         root.put("errors", List.of(err));
         return root;
     }
-}
\ No newline at end of file
+
+    /**
+     * Crea un objeto JSON:API con varios errores (un elemento del bloque 'errors' por detalle).
+     * * @param status - Código de estado HTTP común a todos los errores (String).
+     * @param title - Título breve común a todos los errores.
+     * @param details - Detalle específico de cada error.
+     * @return Un objeto Map que representa el documento JSON:API de error.
+     */
+    public static Map<String, Object> errors(String status, String title, List<String> details) {
+        List<Map<String, String>> errs = details.stream()
+            .map(detail -> {
+                Map<String, String> err = new HashMap<>();
+                err.put("status", status);
+                err.put("title", title);
+                err.put("detail", detail);
+                return err;
+            })
+            .toList();
+
+        Map<String, Object> root = new HashMap<>();
+        root.put("errors", errs);
+        return root;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.inventory_service.web;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * RequestIdFilter - Identificador de cada petición (cabecera X-Request-Id).
+ * - Si el cliente (o el gateway) envía X-Request-Id se conserva; si no, se genera un UUID.
+ * - Se devuelve en la respuesta, se añade al MDC de los logs ('requestId') y queda disponible
+ *   para el hilo de la petición con currentRequestId() (ej: StockJournal).
+ * Un X-Request-Id que no es un UUID se convierte en uno determinista (UUID v3 de su texto).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestIdFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Request-Id";
+    public static final String MDC_KEY = "requestId";
+
+    private static final ThreadLocal<UUID> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Identificador de la petición en curso en este hilo; null fuera de una petición HTTP.
+     */
+    public static UUID currentRequestId() {
+        return CURRENT.get();
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @org.springframework.lang.NonNull HttpServletRequest request,
+            @org.springframework.lang.NonNull HttpServletResponse response,
+            @org.springframework.lang.NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+
+        UUID requestId = parse(request.getHeader(HEADER));
+        CURRENT.set(requestId);
+        MDC.put(MDC_KEY, requestId.toString());
+        response.setHeader(HEADER, requestId.toString());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            CURRENT.remove();
+            MDC.remove(MDC_KEY);
+        }
+    }
+
+    static UUID parse(String header) {
+        if (header == null || header.isBlank()) {
+            return UUID.randomUUID();
+        }
+        try {
+            return UUID.fromString(header.trim());
+        } catch (IllegalArgumentException e) {
+            return UUID.nameUUIDFromBytes(header.trim().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
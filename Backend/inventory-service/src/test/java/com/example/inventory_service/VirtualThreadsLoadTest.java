@@ -0,0 +1,261 @@
+package com.example.inventory_service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import com.example.inventory_service.entity.Inventory;
+import com.example.inventory_service.repository.InventoryRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * VirtualThreadsLoadTest - Prueba de carga de la aplicación completa (Tomcat, Resilience4j, JPA y
+ * Hikari sobre H2) con spring.threads.virtual.enabled desactivado y activado.
+ * - Products Service es un servidor HTTP local que tarda UPSTREAM_LATENCY en responder.
+ * - Cada petición es un POST /api/inventory/{id}/update de un producto distinto: no la resuelve la
+ *   caché de productos, así que espera al Products Service y después toma una conexión del pool.
+ * - Se informa del throughput, el p99 (incluido el tiempo en cola esperando un hilo de Tomcat) y las
+ *   métricas del pool: máximo de hilos esperando conexión (hikaricp.connections.pending) y tiempo
+ *   de adquisición (hikaricp.connections.acquire).
+ * Es una medición de rendimiento, no una prueba unitaria: solo comprueba que todas las peticiones
+ * se aplican, y los resultados (en el log) dependen de los núcleos disponibles; con pocos, la CPU
+ * limita antes que los hilos. Se excluye del build y se ejecuta con mvn test -Pbenchmark.
+ */
+@Tag("benchmark")
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+public class VirtualThreadsLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadsLoadTest.class);
+
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(200);
+    private static final int REQUESTS = 2000;
+    private static final String API_KEY = "benchmark-key";
+
+    private static final Map<String, LoadResult> results = new ConcurrentHashMap<>();
+    private static HttpServer upstream;
+
+    @BeforeAll
+    static void startUpstream() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("localhost", 0), REQUESTS);
+        upstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        upstream.createContext("/api/products", VirtualThreadsLoadTest::respondSlowly);
+        upstream.start();
+    }
+
+    @AfterAll
+    static void report() {
+        upstream.stop(0);
+        LoadResult platform = results.get("plataforma");
+        LoadResult virtual = results.get("virtual");
+        if (platform != null && virtual != null) {
+            log.info("Hilos virtuales frente a plataforma: throughput x{}, p99 x{}",
+                String.format("%.2f", virtual.throughput() / platform.throughput()),
+                String.format("%.2f", (double) virtual.p99().toNanos() / platform.p99().toNanos()));
+        }
+    }
+
+    /**
+     * Products Service lento: GET /api/products/{id} y GET /api/products?ids=... responden, tras
+     * UPSTREAM_LATENCY, con los productos pedidos (todos existen).
+     */
+    private static void respondSlowly(HttpExchange exchange) throws IOException {
+        try {
+            Thread.sleep(UPSTREAM_LATENCY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getRawQuery();
+        String body;
+        if (query != null && query.startsWith("ids=")) {
+            body = Arrays.stream(query.substring("ids=".length()).split("%2C|,"))
+                .map(id -> product(Long.parseLong(id)))
+                .collect(Collectors.joining(",", "{\"data\":[", "]}"));
+        } else {
+            body = "{\"data\":" + product(Long.parseLong(path.substring(path.lastIndexOf('/') + 1))) + "}";
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String product(long id) {
+        return "{\"id\":\"" + id + "\",\"type\":\"products\",\"attributes\":{\"id\":" + id
+            + ",\"name\":\"Producto " + id + "\",\"description\":\"Carga\",\"price\":10,\"sku\":\"SKU-" + id + "\"}}";
+    }
+
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:${random.uuid};MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.hikari.maximum-pool-size=10",
+        "spring.datasource.hikari.connection-timeout=30000",
+        "spring.jpa.open-in-view=false",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.example.inventory_service.client=WARN",
+        "logging.level.com.example.inventory_service.service=WARN",
+        "app.security.internal-api-key=" + API_KEY,
+        "products.api-key=key",
+        "products.changes.enabled=false",
+        "products.http.protocols=HTTP11",
+        "products.http.connect-timeout=10s",
+        "products.http.response-timeout=60s",
+        "products.http.pool.max-connections=" + REQUESTS,
+        "products.http.pool.pending-acquire-timeout=10s",
+        // Se mide el modelo de hilos, no las protecciones frente a un Products Service lento
+        "resilience4j.timelimiter.instances.productsClient.timeoutDuration=60s",
+        "resilience4j.bulkhead.instances.productsClient.maxConcurrentCalls=" + REQUESTS,
+        "resilience4j.circuitbreaker.instances.productsClient.failureRateThreshold=100",
+        "resilience4j.circuitbreaker.instances.productsClient.slowCallRateThreshold=100"
+    })
+    abstract static class LoadRun {
+
+        @TempDir
+        static Path dataDir;
+
+        @LocalServerPort
+        private int port;
+
+        @Autowired
+        private InventoryRepository inventoryRepository;
+
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @DynamicPropertySource
+        static void properties(DynamicPropertyRegistry registry) {
+            registry.add("products.base-url", () -> "http://localhost:" + upstream.getAddress().getPort());
+            registry.add("inventory.journal.directory", () -> dataDir.resolve("stock-journal").toString());
+        }
+
+        abstract String mode();
+
+        @Test
+        void updatesAgainstASlowProductsService() throws Exception {
+            inventoryRepository.saveAll(LongStream.rangeClosed(1, REQUESTS).mapToObj(id -> new Inventory(id, 10)).toList());
+            HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            double[] maxPending = {0};
+            // Hilo de plataforma: el muestreo no compite con los hilos virtuales de las peticiones
+            Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+                while (running.get()) {
+                    maxPending[0] = Math.max(maxPending[0], meterRegistry.get("hikaricp.connections.pending").gauge().value());
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+
+            long start = System.nanoTime();
+            List<Future<Long>> futures = new ArrayList<>(REQUESTS);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (long id = 1; id <= REQUESTS; id++) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/inventory/" + id + "/update"))
+                        .header("X-API-KEY", API_KEY)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"changeQuantity\":-1}"))
+                        .build();
+                    futures.add(executor.submit(() -> {
+                        long sentAt = System.nanoTime();
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        assertEquals(200, response.statusCode(), response.body());
+                        return System.nanoTime() - sentAt;
+                    }));
+                }
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            running.set(false);
+            sampler.join();
+
+            List<Long> latencies = new ArrayList<>(REQUESTS);
+            for (Future<Long> future : futures) {
+                latencies.add(future.get());
+            }
+            latencies.sort(null);
+            Timer acquire = meterRegistry.get("hikaricp.connections.acquire").timer();
+            LoadResult result = new LoadResult(REQUESTS / (elapsed.toNanos() / 1e9),
+                Duration.ofNanos(latencies.get((int) Math.ceil(REQUESTS * 0.99) - 1)),
+                (int) maxPending[0], Duration.ofNanos((long) acquire.max(TimeUnit.NANOSECONDS)));
+            results.put(mode(), result);
+
+            log.info("Hilos {}: {} peticiones en {} ms -> {} req/s, p99 {} ms, máx. esperando conexión {}, máx. adquisición {} ms",
+                mode(), REQUESTS, elapsed.toMillis(), Math.round(result.throughput()), result.p99().toMillis(),
+                result.maxPendingConnections(), result.maxAcquire().toMillis());
+            assertEquals(9, inventoryRepository.findByProductId((long) REQUESTS).orElseThrow().getQuantity());
+        }
+    }
+
+    @Nested
+    @Order(1)
+    @TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+    class PlatformThreads extends LoadRun {
+        @Override
+        String mode() {
+            return "plataforma";
+        }
+    }
+
+    @Nested
+    @Order(2)
+    @TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+    class VirtualThreads extends LoadRun {
+        @Override
+        String mode() {
+            return "virtual";
+        }
+    }
+
+    private record LoadResult(double throughput, Duration p99, int maxPendingConnections, Duration maxAcquire) {}
+}
@@ -0,0 +1,186 @@
+package com.example.inventory_service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+
+import com.example.inventory_service.client.ProductBatchLoader;
+import com.example.inventory_service.client.ProductsClient;
+import com.example.inventory_service.dto.ProductDto;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+public class ProductCacheTest {
+
+    @Mock
+    private ProductBatchLoader batchLoader;
+
+    @Mock
+    private ProductsClient productsClient;
+
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private ProductCache productCache;
+    private final Long PRODUCT_ID = 1L;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        productCache = new ProductCache(batchLoader, productsClient, 100, Duration.ofMinutes(5), Duration.ofSeconds(30),
+            Duration.ofMinutes(1), Duration.ofHours(1), meterRegistry);
+    }
+
+    private ProductDto product() {
+        return new ProductDto(PRODUCT_ID, "Test Product", "Desc", BigDecimal.TEN, "SKU123");
+    }
+
+    // --------------------------------------------------------------------------
+    // 1. Un segundo acceso se sirve desde la caché
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        when(batchLoader.load(PRODUCT_ID)).thenReturn(Mono.just(product()));
+
+        assertEquals("Test Product", productCache.getProductById(PRODUCT_ID).block().getName());
+        assertEquals("Test Product", productCache.getProductById(PRODUCT_ID).block().getName());
+
+        verify(batchLoader, times(1)).load(PRODUCT_ID);
+        assertEquals(1, productCache.stats().hitCount());
+        assertEquals(1, productCache.stats().missCount());
+    }
+
+    // --------------------------------------------------------------------------
+    // 2. Los 404 (null) se cachean como resultado negativo
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldCacheNotFoundResults() {
+        when(batchLoader.load(PRODUCT_ID)).thenReturn(Mono.empty());
+
+        assertNull(productCache.getProductById(PRODUCT_ID).block());
+        assertNull(productCache.getProductById(PRODUCT_ID).block());
+
+        verify(batchLoader, times(1)).load(PRODUCT_ID);
+    }
+
+    // --------------------------------------------------------------------------
+    // 3. Consultas concurrentes del mismo id comparten una sola llamada
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldCoalesceConcurrentMisses() {
+        CompletableFuture<ProductDto> upstream = new CompletableFuture<>();
+        when(batchLoader.load(PRODUCT_ID)).thenReturn(Mono.fromFuture(upstream));
+
+        CompletableFuture<ProductDto> first = productCache.getProductById(PRODUCT_ID).toFuture();
+        CompletableFuture<ProductDto> second = productCache.getProductById(PRODUCT_ID).toFuture();
+        upstream.complete(product());
+
+        assertEquals(PRODUCT_ID, first.join().getProductId());
+        assertEquals(PRODUCT_ID, second.join().getProductId());
+        verify(batchLoader, times(1)).load(PRODUCT_ID);
+    }
+
+    // --------------------------------------------------------------------------
+    // 4. Los errores del Products Service no se cachean
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldNotCacheUpstreamFailures() {
+        when(batchLoader.load(PRODUCT_ID))
+            .thenReturn(Mono.error(new IllegalStateException("timeout")))
+            .thenReturn(Mono.just(product()));
+
+        assertThrows(Exception.class, () -> productCache.getProductById(PRODUCT_ID).block());
+        assertNotNull(productCache.getProductById(PRODUCT_ID).block());
+
+        verify(batchLoader, times(2)).load(PRODUCT_ID);
+    }
+
+    // --------------------------------------------------------------------------
+    // Circuito abierto: se sirve la última copia conocida marcada como stale
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldServeLastKnownCopyWhileTheCircuitIsOpen() {
+        CallNotPermittedException open = CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("productsClient"));
+        when(batchLoader.load(PRODUCT_ID))
+            .thenReturn(Mono.just(product()))
+            .thenReturn(Mono.error(open));
+
+        assertFalse(productCache.getProductById(PRODUCT_ID).block().isStale());
+        productCache.invalidate(PRODUCT_ID);
+
+        ProductDto stale = productCache.getProductById(PRODUCT_ID).block();
+        assertTrue(stale.isStale());
+        assertEquals("Test Product", stale.getName());
+
+        // Sin copia previa no hay nada que servir: se propaga el rechazo
+        when(batchLoader.load(2L)).thenReturn(Mono.error(open));
+        assertThrows(CallNotPermittedException.class, () -> productCache.getProductById(2L).block());
+    }
+
+    // --------------------------------------------------------------------------
+    // Un producto eliminado no se sirve como stale con el circuito abierto
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldForgetLastKnownCopyOfDeletedProducts() {
+        CallNotPermittedException open = CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("productsClient"));
+        when(batchLoader.load(PRODUCT_ID))
+            .thenReturn(Mono.just(product()))
+            .thenReturn(Mono.error(open));
+
+        assertNotNull(productCache.getProductById(PRODUCT_ID).block());
+        productCache.evict(PRODUCT_ID);
+
+        assertThrows(CallNotPermittedException.class, () -> productCache.getProductById(PRODUCT_ID).block());
+    }
+
+    // --------------------------------------------------------------------------
+    // Existencia según la caché: nunca dispara una carga
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldReportCachedExistenceWithoutLoading() {
+        assertTrue(productCache.cachedExistence(PRODUCT_ID).isEmpty());
+        verifyNoInteractions(batchLoader);
+
+        when(batchLoader.load(PRODUCT_ID)).thenReturn(Mono.just(product()));
+        when(batchLoader.load(2L)).thenReturn(Mono.empty());
+        productCache.getProductById(PRODUCT_ID).block();
+        productCache.getProductById(2L).block();
+
+        assertEquals(true, productCache.cachedExistence(PRODUCT_ID).orElseThrow());
+        assertEquals(false, productCache.cachedExistence(2L).orElseThrow());
+    }
+
+    // --------------------------------------------------------------------------
+    // Revalidación: pasado revalidate-after se sirve la copia y se revalida con su ETag
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldRevalidateStaleEntriesWithTheirETag() throws Exception {
+        ProductCache revalidating = new ProductCache(batchLoader, productsClient, 100, Duration.ofMinutes(5),
+            Duration.ofSeconds(30), Duration.ofMillis(50), Duration.ofHours(1), meterRegistry);
+
+        ProductDto cached = product();
+        cached.setEtag("\"v1\"");
+        when(batchLoader.load(PRODUCT_ID)).thenReturn(Mono.just(cached));
+        // 304: el cliente devuelve la misma instancia cacheada
+        when(productsClient.revalidate(cached)).thenReturn(Mono.just(cached));
+
+        assertSame(cached, revalidating.getProductById(PRODUCT_ID).block());
+        Thread.sleep(100);
+        assertSame(cached, revalidating.getProductById(PRODUCT_ID).block());
+
+        verify(productsClient, timeout(1000)).revalidate(cached);
+        verify(batchLoader, times(1)).load(PRODUCT_ID);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.inventory_service.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.example.inventory_service.dto.ProductDto;
+
+import reactor.core.publisher.Mono;
+
+public class ProductBatchLoaderTest {
+
+    @Mock
+    private ProductsClient productsClient;
+
+    private ProductBatchLoader batchLoader;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        batchLoader = new ProductBatchLoader(productsClient, Duration.ofMillis(20), 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchLoader.shutdown();
+    }
+
+    private ProductDto product(Long id) {
+        return new ProductDto(id, "Product " + id, "Desc", BigDecimal.TEN, "SKU" + id);
+    }
+
+    // --------------------------------------------------------------------------
+    // 1. Las consultas dentro de la ventana se envían en un solo lote
+    // --------------------------------------------------------------------------
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldGroupRequestsWithinWindowIntoOneCall() {
+        when(productsClient.getProductsByIds(anyCollection()))
+            .thenReturn(Mono.just(Map.of(1L, product(1L))));
+
+        CompletableFuture<ProductDto> first = batchLoader.load(1L).toFuture();
+        CompletableFuture<ProductDto> second = batchLoader.load(2L).toFuture();
+
+        assertEquals("Product 1", first.join().getName());
+        assertNull(second.join()); // El id 2 no vino en la respuesta -> Mono vacío (no existe)
+
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(productsClient, times(1)).getProductsByIds(ids.capture());
+        assertEquals(List.of(1L, 2L), List.copyOf(ids.getValue()));
+    }
+
+    // --------------------------------------------------------------------------
+    // 2. Un lote lleno se envía sin esperar la ventana
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldDispatchFullBatchImmediately() {
+        when(productsClient.getProductsByIds(anyCollection()))
+            .thenReturn(Mono.just(Map.of()));
+
+        batchLoader.load(1L).subscribe();
+        batchLoader.load(2L).subscribe();
+        batchLoader.load(3L).subscribe();
+
+        verify(productsClient, times(1)).getProductsByIds(List.of(1L, 2L, 3L));
+    }
+
+    // --------------------------------------------------------------------------
+    // 3. Un error del lote se propaga a todas sus consultas
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldFailEveryRequestOfAFailedBatch() {
+        when(productsClient.getProductsByIds(anyCollection()))
+            .thenReturn(Mono.error(new IllegalStateException("timeout")));
+
+        Mono<Map<Long, ProductDto>> all = batchLoader.loadAll(List.of(1L, 2L));
+
+        assertThrows(Exception.class, all::block);
+        verify(productsClient, times(1)).getProductsByIds(List.of(1L, 2L));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.inventory_service.client;
+
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.inventory_service.cache.ProductCache;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * ProductChangeSubscriberTest - Invalidación de ProductCache a partir del flujo SSE de cambios
+ * de un Products Service simulado (ExchangeFunction).
+ */
+public class ProductChangeSubscriberTest {
+
+    private static final String CHANGES = ""
+        + "event:connected\ndata:{}\n\n"
+        + ":heartbeat\n\n"
+        + "event:product-changed\ndata:{\"type\":\"UPDATED\",\"productId\":7}\n\n"
+        + "event:product-changed\ndata:{\"type\":\"DELETED\",\"productId\":9}\n\n"
+        + "event:product-changed\ndata:{\"type\":\"RESET\",\"productId\":null}\n\n";
+
+    private final ProductCache productCache = mock(ProductCache.class);
+    private ProductChangeSubscriber subscriber;
+
+    @AfterEach
+    void tearDown() {
+        subscriber.stop();
+    }
+
+    @Test
+    void shouldInvalidateCacheOnConnectAndOnEachChange() {
+        WebClient webClient = WebClient.builder()
+            .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .body(CHANGES)
+                .build()))
+            .build();
+        subscriber = new ProductChangeSubscriber(webClient, "http://products", "key", productCache,
+            Duration.ofSeconds(5), Duration.ofSeconds(1));
+
+        subscriber.start();
+
+        // 'connected' y el RESET invalidan todo; el cambio del producto 7 solo su entrada, y el
+        // borrado del 9 también su última copia conocida
+        verify(productCache, timeout(2000)).invalidate(7L);
+        verify(productCache, timeout(2000)).evict(9L);
+        verify(productCache, timeout(2000).atLeast(2)).invalidateAll();
+    }
+
+    @Test
+    void shouldReconnectWithBackoffAfterFailure() {
+        AtomicInteger requests = new AtomicInteger();
+        WebClient webClient = WebClient.builder()
+            .exchangeFunction(request -> Mono.just(requests.incrementAndGet() == 1
+                ? ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()
+                : ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                    .body(CHANGES)
+                    .build()))
+            .build();
+        subscriber = new ProductChangeSubscriber(webClient, "http://products", "key", productCache,
+            Duration.ofSeconds(5), Duration.ofSeconds(1));
+
+        subscriber.start();
+
+        // El primer intento falla (503); tras el backoff se reconecta y aplica los cambios
+        verify(productCache, timeout(5000)).invalidate(7L);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.inventory_service.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.inventory_service.dto.ProductDto;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * ProductsClientTest - Prueba del cliente contra un Products Service simulado (ExchangeFunction)
+ * que tarda UPSTREAM_LATENCY en responder.
+ */
+public class ProductsClientTest {
+
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(300);
+    private static final String PRODUCT_JSON =
+        "{\"data\":{\"id\":\"1\",\"type\":\"products\",\"attributes\":{\"id\":1,\"name\":\"Laptop\",\"description\":\"Dell XPS\",\"price\":1200,\"sku\":\"XPS13\"}}}";
+
+    private static final String ETAG = "\"8f14e45fceea167a5a36dedd4bea2543\"";
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private WebClient webClient;
+    private ProductsClient productsClient;
+
+    @BeforeEach
+    void setUp() {
+        webClient = WebClient.builder()
+            .exchangeFunction(request -> Mono.defer(() -> {
+                    requests.incrementAndGet();
+                    inFlight.incrementAndGet();
+                    if (ETAG.equals(request.headers().getFirst(HttpHeaders.IF_NONE_MATCH))) {
+                        return Mono.just(ClientResponse.create(HttpStatus.NOT_MODIFIED).header(HttpHeaders.ETAG, ETAG).build());
+                    }
+                    String path = request.url().getPath();
+                    HttpStatus status = path.endsWith("/404") ? HttpStatus.NOT_FOUND
+                        : path.endsWith("/500") ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.OK;
+                    return Mono.delay(UPSTREAM_LATENCY).map(tick -> ClientResponse.create(status)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .header(HttpHeaders.ETAG, ETAG)
+                        .body(status == HttpStatus.OK ? PRODUCT_JSON : "{\"errors\":[]}")
+                        .build());
+                })
+                .doFinally(signal -> inFlight.decrementAndGet()))
+            .build();
+
+        // Bulkhead amplio: la prueba de capacidad lanza 500 consultas a la vez
+        productsClient = newClient(RetryRegistry.ofDefaults(), CircuitBreakerRegistry.ofDefaults(),
+            BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(1000).build()));
+    }
+
+    private ProductsClient newClient(RetryRegistry retry, CircuitBreakerRegistry circuitBreaker, BulkheadRegistry bulkhead) {
+        return new ProductsClient(webClient, "http://products", "key",
+            retry, TimeLimiterRegistry.ofDefaults(), circuitBreaker, bulkhead);
+    }
+
+    @Test
+    void shouldDecodeProductAttributes() {
+        ProductDto product = productsClient.getProductById(1L).block();
+
+        assertNotNull(product);
+        assertEquals(1L, product.getProductId());
+        assertEquals("XPS13", product.getSku());
+    }
+
+    @Test
+    void shouldKeepCachedProductWhenRevalidationAnswersNotModified() {
+        ProductDto cached = productsClient.getProductById(1L).block();
+        assertEquals(ETAG, cached.getEtag());
+
+        assertSame(cached, productsClient.revalidate(cached).block());
+    }
+
+    @Test
+    void shouldReplaceCachedProductWhenETagChanged() {
+        ProductDto cached = new ProductDto(1L, "Laptop", "Dell XPS", null, "OLD");
+        cached.setEtag("\"stale\"");
+
+        ProductDto revalidated = productsClient.revalidate(cached).block();
+
+        assertNotSame(cached, revalidated);
+        assertEquals("XPS13", revalidated.getSku());
+        assertEquals(ETAG, revalidated.getEtag());
+    }
+
+    @Test
+    void shouldCompleteEmptyOnNotFound() {
+        assertNull(productsClient.getProductById(404L).block());
+    }
+
+    // --------------------------------------------------------------------------
+    // Circuit breaker: tras la ventana de fallos, las consultas fallan sin llamar al Products Service
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldFailFastOnceTheCircuitOpens() {
+        ProductsClient client = newClient(
+            RetryRegistry.of(RetryConfig.custom().maxAttempts(1).build()),
+            CircuitBreakerRegistry.of(CircuitBreakerConfig.custom().slidingWindowSize(4).minimumNumberOfCalls(4).build()),
+            BulkheadRegistry.ofDefaults());
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(Exception.class, () -> client.getProductById(500L).block());
+        }
+        // Los 404 no cuentan como fallo; los 500 sí
+        assertEquals(4, requests.get());
+
+        long start = System.nanoTime();
+        assertThrows(CallNotPermittedException.class, () -> client.getProductById(1L).block());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(UPSTREAM_LATENCY) < 0);
+        assertEquals(4, requests.get());
+    }
+
+    // --------------------------------------------------------------------------
+    // Bulkhead: por encima del límite de concurrencia la llamada se rechaza al instante
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldRejectCallsBeyondTheBulkhead() {
+        ProductsClient client = newClient(
+            RetryRegistry.of(RetryConfig.custom().maxAttempts(1).build()),
+            CircuitBreakerRegistry.ofDefaults(),
+            BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(1).maxWaitDuration(Duration.ZERO).build()));
+
+        var inFlightCall = client.getProductById(1L).toFuture();
+
+        assertThrows(BulkheadFullException.class, () -> client.getProductById(2L).block());
+        assertNotNull(inFlightCall.join());
+        // Liberado el permiso, se vuelve a aceptar
+        assertNotNull(client.getProductById(2L).block());
+    }
+
+    // --------------------------------------------------------------------------
+    // Capacidad: todas las consultas concurrentes están en vuelo a la vez.
+    // Con el diseño anterior (supplyAsync + block en el common pool) el número de
+    // consultas simultáneas quedaba limitado al paralelismo del pool (núcleos - 1),
+    // y 500 consultas de 300 ms tardaban ~500 * 300 ms / (núcleos - 1).
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldHoldAllConcurrentLookupsInFlightWithoutBlockingThreads() {
+        int lookups = 500;
+        Thread testThread = Thread.currentThread();
+
+        // Tiempo virtual: la latencia del upstream no consume tiempo real ni depende de los núcleos
+        StepVerifier.withVirtualTime(() -> Flux.range(0, lookups)
+                .flatMap(i -> productsClient.getProductById(1L), lookups)
+                .count())
+            .expectSubscription()
+            // Al suscribir, el propio hilo de la prueba deja las 500 consultas en vuelo y vuelve:
+            // ninguna espera a otra ni ocupa un hilo mientras el upstream responde
+            .then(() -> assertEquals(lookups, inFlight.get()))
+            .expectNoEvent(UPSTREAM_LATENCY.minusMillis(1))
+            // Todas se resuelven a la vez, transcurrida una sola latencia, sin otros hilos
+            .thenAwait(Duration.ofMillis(1))
+            .assertNext(count -> {
+                assertEquals(lookups, count);
+                assertSame(testThread, Thread.currentThread());
+            })
+            .verifyComplete();
+
+        assertEquals(0, inFlight.get());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.inventory_service.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * AppConfigTest - Conector del WebClient contra un servidor HTTP local (Reactor Netty).
+ */
+public class AppConfigTest {
+
+    private static final String BODY = "{\"data\":[]}".repeat(200);
+
+    private final AppConfig appConfig = new AppConfig();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger gzipRequests = new AtomicInteger();
+
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+            .port(0)
+            .compress(true)
+            // Una vez por socket aceptado (doOnConnection se invoca en cada petición de una conexión keep-alive)
+            .doOnChannelInit((observer, channel, remoteAddress) -> connections.incrementAndGet())
+            .handle((request, response) -> {
+                if (String.valueOf(request.requestHeaders().get(HttpHeaders.ACCEPT_ENCODING)).contains("gzip")) {
+                    gzipRequests.incrementAndGet();
+                }
+                return response.sendString(Mono.just(BODY));
+            })
+            .bindNow();
+
+        // Pool de una conexión: la conexión vuelve al pool justo después de entregar el cuerpo, así que
+        // la siguiente petición espera a reutilizarla en lugar de abrir otra en paralelo
+        connectionProvider = appConfig.productsConnectionProvider(1, Duration.ofSeconds(2), Duration.ofSeconds(30), Duration.ofMinutes(10));
+        webClient = appConfig.webClient(WebClient.builder(), connectionProvider, Duration.ofSeconds(1), Duration.ofSeconds(3),
+            new HttpProtocol[] {HttpProtocol.HTTP11})
+            .mutate().baseUrl("http://localhost:" + server.port()).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionProvider.dispose();
+        server.disposeNow();
+    }
+
+    @Test
+    void shouldReuseWarmConnectionsAndDecompressResponses() {
+        for (int i = 0; i < 50; i++) {
+            assertEquals(BODY, webClient.get().uri("/api/products/1").retrieve().bodyToMono(String.class).block());
+        }
+
+        // Keep-alive: las 50 peticiones comparten un socket; sin reutilización se abriría uno por petición
+        assertEquals(1, connections.get());
+        assertEquals(50, gzipRequests.get());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.inventory_service.dto;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JsonApiDocumentTest - Compara la decodificación tipada del documento JSON:API con la anterior
+ * (Map genérico + objectMapper.convertValue sobre 'attributes').
+ */
+public class JsonApiDocumentTest {
+
+    private static final byte[] PRODUCT_JSON = ("{\"data\":{\"id\":\"7\",\"type\":\"products\",\"attributes\":"
+        + "{\"id\":7,\"name\":\"Laptop\",\"description\":\"Dell XPS 13 con 16GB de RAM\",\"price\":1200.50,\"sku\":\"XPS13\"}}}")
+        .getBytes(StandardCharsets.UTF_8);
+
+    private static final TypeReference<JsonApiDocument<JsonApiResource<ProductDto>>> PRODUCT_DOCUMENT = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    @Test
+    void shouldDecodeAttributesDirectlyIntoProductDto() throws Exception {
+        JsonApiDocument<JsonApiResource<ProductDto>> document = objectMapper.readValue(PRODUCT_JSON, PRODUCT_DOCUMENT);
+
+        assertEquals("7", document.getData().getId());
+        assertEquals(7L, document.getData().getAttributes().getProductId());
+        assertEquals("XPS13", document.getData().getAttributes().getSku());
+    }
+
+    // --------------------------------------------------------------------------
+    // Asignación de memoria por llamada: la ruta tipada hace una sola pasada, sin
+    // árbol de LinkedHashMap ni el TokenBuffer intermedio de convertValue.
+    // --------------------------------------------------------------------------
+    @Test
+    void typedDecodingShouldAllocateLessThanMapAndConvertValue() throws Exception {
+        int iterations = 20_000;
+
+        long mapBytes = allocatedPerCall(iterations, this::decodeWithMap);
+        long typedBytes = allocatedPerCall(iterations, this::decodeTyped);
+
+        System.out.printf("Asignación por llamada: Map + convertValue = %d B, tipado = %d B%n", mapBytes, typedBytes);
+        assertTrue(typedBytes < mapBytes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProductDto decodeWithMap() throws Exception {
+        Map<String, Object> jsonApiWrapper = objectMapper.readValue(PRODUCT_JSON, Map.class);
+        Map<String, Object> dataBlock = (Map<String, Object>) jsonApiWrapper.get("data");
+        return objectMapper.convertValue(dataBlock.get("attributes"), ProductDto.class);
+    }
+
+    private ProductDto decodeTyped() throws Exception {
+        return objectMapper.readValue(PRODUCT_JSON, PRODUCT_DOCUMENT).getData().getAttributes();
+    }
+
+    private long allocatedPerCall(int iterations, Decoder decoder) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        // Calentamiento (JIT y cachés de deserializadores de Jackson)
+        for (int i = 0; i < iterations; i++) {
+            decoder.decode();
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            decoder.decode();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / iterations;
+    }
+
+    @FunctionalInterface
+    private interface Decoder {
+        ProductDto decode() throws Exception;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.inventory_service.event;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.inventory_service.entity.StockEvent;
+import com.example.inventory_service.repository.StockEventRepository;
+import com.example.inventory_service.repository.StockHistoryRepository;
+import com.example.inventory_service.service.StockHistoryService;
+
+/**
+ * StockEventRelayTest - Drenado de la outbox contra H2 (modo PostgreSQL) con un publicador en memoria.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:outbox;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "inventory.outbox.batch-size=3"
+})
+@Import({StockEventRelay.class, StockHistoryService.class, StockHistoryRepository.class, StockEventRelayTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StockEventRelayTest {
+
+    @Autowired
+    private StockEventRelay relay;
+
+    @Autowired
+    private StockEventRepository stockEventRepository;
+
+    @Autowired
+    private InMemoryStockEventPublisher publisher;
+
+    @Autowired
+    private StockHistoryRepository stockHistoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        publisher.published.clear();
+        publisher.failOnEventId = null;
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockEventRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM stock_history");
+        jdbcTemplate.update("DELETE FROM stock_level_hourly");
+    }
+
+    @Test
+    void shouldPublishAllEventsInOrderAndDeleteThem() {
+        List<Long> ids = saveEvents(7);
+
+        relay.relay();
+
+        // 7 eventos con lotes de 3: la pasada sigue mientras los lotes estén completos
+        assertEquals(ids, publisher.published.stream().map(StockChangedEvent::getEventId).toList());
+        assertEquals(0, stockEventRepository.count());
+        assertEquals(Duration.ZERO, relay.lag());
+    }
+
+    @Test
+    void shouldStopAtFailedEventAndRetryItWithTheFollowingOnes() {
+        List<Long> ids = saveEvents(5);
+        publisher.failOnEventId = ids.get(2);
+
+        relay.relay();
+
+        // Se publican los anteriores al fallo; el fallido y los posteriores quedan en la outbox
+        assertEquals(ids.subList(0, 2), publisher.published.stream().map(StockChangedEvent::getEventId).toList());
+        assertEquals(3, stockEventRepository.count());
+        assertTrue(relay.lag().compareTo(Duration.ZERO) > 0);
+
+        publisher.failOnEventId = null;
+        relay.relay();
+
+        assertEquals(ids, publisher.published.stream().map(StockChangedEvent::getEventId).toList());
+        assertEquals(0, stockEventRepository.count());
+    }
+
+    @Test
+    void historyFailureShouldKeepTheBatchInTheOutbox() {
+        List<Long> ids = saveEvents(2);
+        jdbcTemplate.execute("DROP TABLE stock_history");
+        try {
+            relay.relay();
+        } finally {
+            stockHistoryRepository.createSchema();
+        }
+
+        // Sin historial el lote no se borra: sigue en la outbox
+        assertEquals(2, stockEventRepository.count());
+
+        relay.relay();
+
+        // Se repite entero (al menos una vez) y ahora queda en el historial
+        assertEquals(List.of(ids.get(0), ids.get(1), ids.get(0), ids.get(1)),
+            publisher.published.stream().map(StockChangedEvent::getEventId).toList());
+        assertEquals(0, stockEventRepository.count());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_history", Integer.class));
+    }
+
+    private List<Long> saveEvents(int count) {
+        Instant createdAt = Instant.now().minusSeconds(5);
+        for (int i = 0; i < count; i++) {
+            stockEventRepository.save(new StockEvent(1L, i, i + 1, 1, createdAt));
+        }
+        return stockEventRepository.findAll().stream().map(StockEvent::getId).sorted().toList();
+    }
+
+    /**
+     * Publicador en memoria: guarda los eventos recibidos y puede fallar en un evento concreto.
+     */
+    static class InMemoryStockEventPublisher implements StockEventPublisher {
+        final List<StockChangedEvent> published = new CopyOnWriteArrayList<>();
+        volatile Long failOnEventId;
+
+        @Override
+        public void publish(StockChangedEvent event) {
+            if (event.getEventId().equals(failOnEventId)) {
+                throw new IllegalStateException("broker no disponible");
+            }
+            published.add(event);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        InMemoryStockEventPublisher stockEventPublisher() {
+            return new InMemoryStockEventPublisher();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.inventory_service.event;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+/**
+ * StockLevelStreamTest - Agrupado de ráfagas por producto, contrapresión y coste de los suscriptores inactivos.
+ */
+public class StockLevelStreamTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(50);
+
+    private final StockLevelStream stream = new StockLevelStream(WINDOW, 256, Duration.ofSeconds(15),
+        new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+
+    private final AtomicLong eventIds = new AtomicLong();
+
+    private void change(long productId, int newQuantity) {
+        stream.onStockChanged(new StockChangedEvent(eventIds.incrementAndGet(), productId, newQuantity - 1, newQuantity, 1, Instant.now()));
+    }
+
+    @Test
+    void shouldCoalesceBurstsIntoLatestValuePerSubscribedProduct() throws Exception {
+        List<StockChangedEvent> received = new CopyOnWriteArrayList<>();
+        Disposable subscription = stream.subscribe(Set.of(1L, 2L)).subscribe(received::add);
+
+        for (int quantity = 1; quantity <= 100; quantity++) {
+            change(1L, quantity);
+        }
+        change(2L, 7);
+        change(3L, 9); // no suscrito
+
+        TimeUnit.MILLISECONDS.sleep(WINDOW.toMillis() * 4);
+        subscription.dispose();
+
+        List<StockChangedEvent> product1 = received.stream().filter(event -> event.getProductId() == 1L).toList();
+        assertTrue(product1.size() < 5, "La ráfaga de 100 cambios debería agruparse, se recibieron " + product1.size());
+        assertEquals(100, product1.get(product1.size() - 1).getNewQuantity());
+        assertEquals(List.of(7), received.stream().filter(event -> event.getProductId() == 2L).map(StockChangedEvent::getNewQuantity).toList());
+        assertTrue(received.stream().noneMatch(event -> event.getProductId() == 3L));
+    }
+
+    @Test
+    void slowSubscriberShouldReceiveLatestValueWhenItCatchesUp() throws Exception {
+        List<StockChangedEvent> received = new CopyOnWriteArrayList<>();
+        BaseSubscriber<StockChangedEvent> slow = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(org.reactivestreams.Subscription subscription) {
+                // Sin demanda: el cliente no está leyendo
+            }
+
+            @Override
+            protected void hookOnNext(StockChangedEvent event) {
+                received.add(event);
+            }
+        };
+        stream.subscribe(Set.of(1L)).subscribe(slow);
+
+        // Cambios repartidos en varias ventanas mientras el cliente no lee
+        for (int quantity = 1; quantity <= 5; quantity++) {
+            change(1L, quantity);
+            TimeUnit.MILLISECONDS.sleep(WINDOW.toMillis() * 2);
+        }
+        assertTrue(received.isEmpty());
+
+        slow.request(Long.MAX_VALUE);
+        TimeUnit.MILLISECONDS.sleep(WINDOW.toMillis());
+        slow.dispose();
+
+        // Como mucho un valor intermedio (el ya precargado) y después el último; nunca los 5 cambios
+        assertTrue(received.size() <= 2, "Se recibieron " + received.size() + " valores");
+        assertEquals(5, received.get(received.size() - 1).getNewQuantity());
+    }
+
+    @Test
+    void burstOnOneProductShouldNotEvictAnotherProductsUpdate() throws Exception {
+        StockLevelStream smallBuffer = new StockLevelStream(WINDOW, 4, Duration.ofSeconds(15),
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        List<StockChangedEvent> received = new CopyOnWriteArrayList<>();
+        BaseSubscriber<StockChangedEvent> slow = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(org.reactivestreams.Subscription subscription) {
+                // Sin demanda: el cliente no está leyendo
+            }
+
+            @Override
+            protected void hookOnNext(StockChangedEvent event) {
+                received.add(event);
+            }
+        };
+        smallBuffer.subscribe(Set.of(1L, 2L)).subscribe(slow);
+
+        // Un único cambio del producto 2 y, detrás, una ráfaga del producto 1 mucho mayor que el búfer
+        smallBuffer.onStockChanged(new StockChangedEvent(eventIds.incrementAndGet(), 2L, 6, 7, 1, Instant.now()));
+        for (int quantity = 1; quantity <= 1000; quantity++) {
+            smallBuffer.onStockChanged(new StockChangedEvent(eventIds.incrementAndGet(), 1L, quantity - 1, quantity, 1, Instant.now()));
+        }
+        TimeUnit.MILLISECONDS.sleep(WINDOW.toMillis() * 2);
+
+        slow.request(Long.MAX_VALUE);
+        TimeUnit.MILLISECONDS.sleep(WINDOW.toMillis());
+        slow.dispose();
+
+        assertEquals(List.of(7), received.stream().filter(event -> event.getProductId() == 2L).map(StockChangedEvent::getNewQuantity).toList());
+        List<StockChangedEvent> product1 = received.stream().filter(event -> event.getProductId() == 1L).toList();
+        assertEquals(1000, product1.get(product1.size() - 1).getNewQuantity());
+    }
+
+    @Test
+    void idleSubscribersShouldNotHoldThreads() {
+        int threadsBefore = Thread.activeCount();
+
+        List<Disposable> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            subscriptions.add(stream.subscribe(Set.of((long) i)).subscribe());
+        }
+
+        try {
+            assertTrue(Thread.activeCount() - threadsBefore < 50,
+                "5000 suscriptores inactivos no deberían crear hilos, hay " + (Thread.activeCount() - threadsBefore) + " más");
+        } finally {
+            subscriptions.forEach(Disposable::dispose);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.inventory_service.hotstock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * HotStockJournalTest - Compactación del diario de alta demanda y continuidad de la secuencia.
+ */
+public class HotStockJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compactShouldKeepOnlyTheUnflushedTail() throws IOException {
+        try (HotStockJournal journal = new HotStockJournal(directory.resolve("hot-stock.journal"), true)) {
+            for (int i = 1; i <= 100; i++) {
+                journal.sync(journal.append(1L, -1));
+            }
+
+            journal.compact(60);
+
+            List<HotStockJournal.Entry> entries = journal.readAll();
+            assertEquals(40, entries.size());
+            assertEquals(61, entries.get(0).sequence());
+            assertEquals(40L * HotStockJournal.RECORD_BYTES, journal.size());
+
+            // La secuencia continúa tras la compactación, y un segundo recorte sigue siendo correcto
+            assertEquals(101, journal.append(2L, 5));
+            journal.compact(90);
+            assertEquals(List.of(91L, 92L, 93L, 94L, 95L, 96L, 97L, 98L, 99L, 100L, 101L),
+                journal.readAll().stream().map(HotStockJournal.Entry::sequence).toList());
+            assertEquals(new HotStockJournal.Entry(101, 2L, 5), journal.readAll().get(10));
+        }
+    }
+
+    @Test
+    void compactShouldEmptyTheJournalWhenEverythingIsFlushed() throws IOException {
+        Path path = directory.resolve("hot-stock.journal");
+        try (HotStockJournal journal = new HotStockJournal(path, true)) {
+            journal.startAfter(41);
+            journal.append(1L, -3);
+            journal.append(1L, 2);
+
+            journal.compact(43);
+
+            assertEquals(0, journal.size());
+            assertEquals(44, journal.append(1L, -1));
+        }
+        // Al reabrir, solo queda el registro posterior al recorte
+        try (HotStockJournal reopened = new HotStockJournal(path, true)) {
+            assertEquals(List.of(new HotStockJournal.Entry(44, 1L, -1)), reopened.readAll());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.inventory_service.hotstock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import com.example.inventory_service.entity.Inventory;
+import com.example.inventory_service.exception.InsufficientStockException;
+import com.example.inventory_service.repository.HotStockCheckpointRepository;
+import com.example.inventory_service.repository.InventoryBatchRepository;
+import com.example.inventory_service.repository.InventoryRepository;
+import com.example.inventory_service.repository.StockEventRepository;
+
+/**
+ * HotStockTierTest - Volcado y recuperación tras una caída contra H2 (modo PostgreSQL).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:hotstock;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver"
+})
+@Import(InventoryBatchRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class HotStockTierTest {
+
+    private static final Long PRODUCT_ID = 1L;
+
+    @TempDir
+    Path journalDir;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryBatchRepository inventoryBatchRepository;
+
+    @Autowired
+    private StockEventRepository stockEventRepository;
+
+    @Autowired
+    private HotStockCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        inventoryRepository.deleteAll();
+        stockEventRepository.deleteAll();
+        checkpointRepository.deleteAll();
+    }
+
+    private HotStockTier startTier() throws IOException {
+        HotStockTier tier = new HotStockTier(Set.of(PRODUCT_ID), 4, journalDir.resolve("hot-stock.journal"), true, DataSize.ofKilobytes(1),
+            inventoryRepository, inventoryBatchRepository, stockEventRepository, checkpointRepository, transactionManager);
+        tier.start();
+        return tier;
+    }
+
+    private int storedQuantity() {
+        return inventoryRepository.findByProductId(PRODUCT_ID).orElseThrow().getQuantity();
+    }
+
+    @Test
+    void shouldFlushAccumulatedChangesInOneBatch() throws IOException {
+        inventoryRepository.saveAndFlush(new Inventory(PRODUCT_ID, 10));
+        HotStockTier tier = startTier();
+
+        assertEquals(7, tier.apply(PRODUCT_ID, -3).getQuantity());
+        assertEquals(5, tier.apply(PRODUCT_ID, -2).getQuantity());
+        assertThrows(InsufficientStockException.class, () -> tier.apply(PRODUCT_ID, -6));
+        assertEquals(10, storedQuantity());
+
+        tier.flush();
+
+        assertEquals(5, storedQuantity());
+        // Un solo evento de stock por producto y volcado
+        assertEquals(1, stockEventRepository.count());
+        tier.stop();
+    }
+
+    // --------------------------------------------------------------------------
+    // Caída antes del volcado: los cambios confirmados se recuperan del diario al arrancar
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldRecoverAcknowledgedChangesAfterACrash() throws IOException {
+        inventoryRepository.saveAndFlush(new Inventory(PRODUCT_ID, 100));
+        HotStockTier crashed = startTier();
+        crashed.apply(PRODUCT_ID, -5);
+        crashed.flush();
+        crashed.apply(PRODUCT_ID, -7);
+        crashed.apply(PRODUCT_ID, 2);
+        // Sin flush ni stop: la instancia "se cae" con 2 cambios solo en el diario
+
+        HotStockTier restarted = startTier();
+
+        assertEquals(90, storedQuantity());
+        Inventory current = new Inventory(PRODUCT_ID, 0);
+        restarted.overlay(current);
+        assertEquals(90, current.getQuantity());
+
+        // Lo ya volcado no se aplica dos veces en un segundo arranque
+        restarted.stop();
+        startTier().stop();
+        assertEquals(90, storedQuantity());
+    }
+
+    // --------------------------------------------------------------------------
+    // Compras concurrentes: cada una se confirma tras el fsync (compartido) y el
+    // volcado refleja todas, sin vender más de lo que hay
+    // --------------------------------------------------------------------------
+    @Test
+    void concurrentPurchasesShouldAllBeJournaledAndFlushed() throws Exception {
+        inventoryRepository.saveAndFlush(new Inventory(PRODUCT_ID, 500));
+        HotStockTier tier = startTier();
+
+        int purchases = 600;
+        List<Future<Boolean>> results = new ArrayList<>(purchases);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < purchases; i++) {
+                results.add(executor.submit(() -> {
+                    try {
+                        tier.apply(PRODUCT_ID, -1);
+                        return true;
+                    } catch (InsufficientStockException e) {
+                        return false;
+                    }
+                }));
+            }
+        }
+        long accepted = 0;
+        for (Future<Boolean> result : results) {
+            accepted += result.get() ? 1 : 0;
+        }
+
+        assertEquals(500, accepted);
+        tier.flush();
+        assertEquals(0, storedQuantity());
+        tier.stop();
+    }
+
+    // --------------------------------------------------------------------------
+    // Reservas anteriores a la activación: confirmarlas o liberarlas después
+    // actualiza el stock en memoria
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldTrackReservationsResolvedAfterActivation() throws IOException {
+        Inventory existing = new Inventory(PRODUCT_ID, 10);
+        existing.setReserved(4);
+        inventoryRepository.saveAndFlush(existing);
+        HotStockTier tier = startTier();
+
+        assertEquals(4, tier.apply(PRODUCT_ID, -6).getQuantity());
+        assertThrows(InsufficientStockException.class, () -> tier.apply(PRODUCT_ID, -1));
+
+        // Liberada: las 3 unidades vuelven a estar disponibles
+        tier.reservationResolvedAfterCommit(PRODUCT_ID, 3, true);
+        Inventory afterRelease = tier.apply(PRODUCT_ID, -3);
+        assertEquals(1, afterRelease.getQuantity());
+        assertEquals(1, afterRelease.getReserved());
+
+        // Confirmada: la unidad reservada sale del stock
+        tier.reservationResolvedAfterCommit(PRODUCT_ID, 1, false);
+        Inventory current = new Inventory(PRODUCT_ID, 0);
+        tier.overlay(current);
+        assertEquals(0, current.getQuantity());
+        tier.stop();
+    }
+
+    // --------------------------------------------------------------------------
+    // Reservas nuevas: retienen unidades del stock en memoria y las devuelven si
+    // la transacción de la reserva se revierte
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldHoldReservedUnitsUntilTheReservationTransactionCommits() throws IOException {
+        inventoryRepository.saveAndFlush(new Inventory(PRODUCT_ID, 10));
+        HotStockTier tier = startTier();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> tier.reserve(PRODUCT_ID, 6));
+        assertThrows(InsufficientStockException.class, () -> tier.reserve(PRODUCT_ID, 5));
+        assertThrows(InsufficientStockException.class, () -> tier.apply(PRODUCT_ID, -5));
+
+        // Revertida: las unidades vuelven a estar disponibles
+        transactionTemplate.executeWithoutResult(status -> {
+            tier.reserve(PRODUCT_ID, 4);
+            status.setRollbackOnly();
+        });
+        Inventory afterPurchase = tier.apply(PRODUCT_ID, -4);
+        assertEquals(6, afterPurchase.getQuantity());
+        assertEquals(6, afterPurchase.getReserved());
+
+        // Liberada: las 6 unidades vuelven a estar disponibles
+        tier.reservationResolvedAfterCommit(PRODUCT_ID, 6, true);
+        Inventory current = new Inventory(PRODUCT_ID, 0);
+        tier.overlay(current);
+        assertEquals(6, current.getQuantity());
+        assertEquals(0, tier.apply(PRODUCT_ID, -6).getQuantity());
+        tier.stop();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.inventory_service.hotstock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class StripedStockCounterTest {
+
+    // --------------------------------------------------------------------------
+    // 64 hilos x 100 compras de 1 unidad sobre 1000 unidades: exactamente 1000 se aceptan
+    // --------------------------------------------------------------------------
+    @Test
+    void concurrentTakesShouldNeverGoBelowZero() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(1000, 16);
+        AtomicInteger taken = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 64; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        if (counter.tryTake(1)) {
+                            taken.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1000, taken.get());
+        assertEquals(0, counter.available());
+    }
+
+    // --------------------------------------------------------------------------
+    // Unidades repartidas entre franjas: se reagrupan si ninguna alcanza por sí sola
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldTakeAcrossStripesWhenNoneHasEnough() {
+        StripedStockCounter counter = new StripedStockCounter(8, 4); // 2 unidades por franja
+
+        assertTrue(counter.tryTake(7));
+        assertEquals(1, counter.available());
+        assertFalse(counter.tryTake(2));
+        assertEquals(1, counter.available());
+
+        counter.add(5);
+        assertTrue(counter.tryTake(6));
+        assertEquals(0, counter.available());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.inventory_service.journal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.example.inventory_service.entity.Inventory;
+import com.example.inventory_service.repository.InventoryRepository;
+
+/**
+ * StockJournalTest - Diario de stock sobre un directorio temporal: rotación de segmentos,
+ * recuperación tras una caída y reconstrucción de cantidades (StockJournalReplay).
+ */
+public class StockJournalTest {
+
+    // Segmentos diminutos para forzar la rotación: 10 registros por segmento
+    private static final DataSize SEGMENT_SIZE = DataSize.ofBytes(StockJournalRecord.BYTES * 10L);
+
+    @TempDir
+    Path directory;
+
+    private final InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+
+    private StockJournal startJournal(int retainedSegments) throws IOException {
+        return startJournal(directory, retainedSegments);
+    }
+
+    private StockJournal startJournal(Path journalDirectory, int retainedSegments) throws IOException {
+        StockJournal journal = new StockJournal(true, journalDirectory, SEGMENT_SIZE, retainedSegments, inventoryRepository);
+        journal.start();
+        return journal;
+    }
+
+    @Test
+    void shouldRebuildQuantitiesFromBaselineAndJournal() throws IOException {
+        when(inventoryRepository.findAll()).thenReturn(List.of(new Inventory(1L, 100), new Inventory(2L, 5)));
+        StockJournal journal = startJournal(8);
+
+        int quantity = 100;
+        for (int i = 0; i < 25; i++) {
+            quantity -= 2;
+            journal.record(1L, -2, quantity);
+        }
+        journal.record(3L, 7, 7);
+        journal.commit();
+
+        assertEquals(26, journal.lastSequence());
+        assertEquals(3, StockJournalReplay.segments(directory).size());
+
+        StockJournalReplay.Snapshot replayed = StockJournalReplay.replay(directory);
+        assertEquals(26, replayed.sequence());
+        assertEquals(Map.of(1L, -50, 3L, 7), replayed.deltas());
+        assertEquals(Map.of(1L, 50, 2L, 5, 3L, 7), StockJournalReplay.rebuild(List.of(directory)));
+
+        // Cada registro conserva la cantidad resultante; fuera de una petición, sin requestId
+        List<StockJournalRecord> records = new ArrayList<>();
+        StockJournalReplay.read(StockJournalReplay.segments(directory).get(0), records::add);
+        assertEquals(10, records.size());
+        assertEquals(98, records.get(0).quantity());
+        assertEquals(0L, records.get(0).requestId().getMostSignificantBits());
+    }
+
+    // --------------------------------------------------------------------------
+    // Caída con un registro a medias: se descarta y el diario continúa tras el último válido
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldContinueAfterTheLastValidRecordOnRestart() throws IOException {
+        when(inventoryRepository.findAll()).thenReturn(List.of(new Inventory(1L, 10)));
+        StockJournal crashed = startJournal(8);
+        crashed.record(1L, -1, 9);
+        crashed.record(1L, -1, 8);
+
+        // Registro 3 interrumpido: solo la secuencia llegó al fichero
+        Path segment = StockJournalReplay.segments(directory).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, 3L), 2L * StockJournalRecord.BYTES);
+        }
+
+        StockJournal restarted = startJournal(8);
+        assertEquals(2, restarted.lastSequence());
+        // El registro a medias se ha descartado al truncar el segmento tras el último válido
+        ByteBuffer torn = ByteBuffer.allocate(Long.BYTES);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            channel.read(torn, 2L * StockJournalRecord.BYTES);
+        }
+        assertEquals(0L, torn.getLong(0));
+
+        restarted.record(1L, 5, 13);
+
+        assertEquals(3, StockJournalReplay.replay(directory).sequence());
+        assertEquals(Map.of(1L, 13), StockJournalReplay.rebuild(List.of(directory)));
+    }
+
+    // --------------------------------------------------------------------------
+    // Varias instancias: una sola línea base (la más antigua) más los deltas de todos los diarios
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldRebuildFromSeveralInstancesWithoutCountingBaselinesTwice() throws Exception {
+        Path first = directory.resolve("instance-1");
+        Path second = directory.resolve("instance-2");
+
+        when(inventoryRepository.findAll()).thenReturn(List.of(new Inventory(1L, 100)));
+        StockJournal firstInstance = startJournal(first, 8);
+        firstInstance.record(1L, -10, 90);
+
+        // La segunda instancia arranca después: su línea base ya incluye el cambio de la primera
+        TimeUnit.MILLISECONDS.sleep(5);
+        when(inventoryRepository.findAll()).thenReturn(List.of(new Inventory(1L, 90)));
+        StockJournal secondInstance = startJournal(second, 8);
+        secondInstance.record(1L, -5, 85);
+        firstInstance.record(1L, -1, 84);
+
+        assertEquals(Map.of(1L, 84), StockJournalReplay.rebuild(List.of(second, first)));
+    }
+
+    // --------------------------------------------------------------------------
+    // Los segmentos cerrados más allá de retained-segments se pliegan en la instantánea
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldFoldOldSegmentsIntoTheSnapshot() throws IOException {
+        when(inventoryRepository.findAll()).thenReturn(List.of());
+        StockJournal journal = startJournal(1);
+        for (int i = 0; i < 35; i++) {
+            journal.record(1L, 1, i + 1);
+        }
+
+        journal.snapshot();
+
+        // Quedan el último segmento cerrado y el actual; el resultado no cambia
+        assertEquals(2, StockJournalReplay.segments(directory).size());
+        assertEquals(20, StockJournalReplay.readSnapshot(directory).sequence());
+        assertEquals(Map.of(1L, 35), StockJournalReplay.replay(directory).deltas());
+
+        journal.stop();
+        StockJournal restarted = startJournal(1);
+        assertEquals(35, restarted.lastSequence());
+    }
+}
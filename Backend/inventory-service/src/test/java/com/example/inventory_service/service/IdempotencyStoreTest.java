@@ -0,0 +1,171 @@
+package com.example.inventory_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import com.example.inventory_service.dto.StockResponseDto;
+import com.example.inventory_service.exception.IdempotencyKeyReusedException;
+import com.example.inventory_service.exception.IdempotentRequestInProgressException;
+import com.example.inventory_service.exception.IdempotentRequestOutcomeUnknownException;
+import com.example.inventory_service.exception.InsufficientStockException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+public class IdempotencyStoreTest {
+
+    private static final Long PRODUCT_ID = 1L;
+    private static final String KEY = "3f1c2a9e-purchase";
+
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private IdempotencyStore newStore(Duration waitTimeout) {
+        return new IdempotencyStore(100, Duration.ofHours(24), waitTimeout, meterRegistry);
+    }
+
+    private StockResponseDto purchase() {
+        executions.incrementAndGet();
+        return StockResponseDto.builder().productId(PRODUCT_ID).quantity(9).productExists(true).build();
+    }
+
+    @Test
+    void shouldReplayTheOriginalResponseWithoutExecutingAgain() {
+        IdempotencyStore store = newStore(Duration.ofSeconds(5));
+
+        IdempotencyStore.Result first = store.execute(KEY, PRODUCT_ID, -1, this::purchase);
+        IdempotencyStore.Result retry = store.execute(KEY, PRODUCT_ID, -1, this::purchase);
+
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertSame(first.response(), retry.response());
+        assertEquals(1, executions.get());
+    }
+
+    // --------------------------------------------------------------------------
+    // Duplicados concurrentes: esperan a la primera ejecución en lugar de competir con ella
+    // --------------------------------------------------------------------------
+    @Test
+    void concurrentDuplicatesShouldWaitForTheFirstExecution() throws Exception {
+        IdempotencyStore store = newStore(Duration.ofSeconds(5));
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(17);
+        try {
+            Future<IdempotencyStore.Result> first = pool.submit(() -> store.execute(KEY, PRODUCT_ID, -1, () -> {
+                firstStarted.countDown();
+                await(releaseFirst);
+                return purchase();
+            }));
+            assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+            List<Future<IdempotencyStore.Result>> duplicates = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                duplicates.add(pool.submit(() -> store.execute(KEY, PRODUCT_ID, -1, this::purchase)));
+            }
+            Thread.sleep(100);
+            releaseFirst.countDown();
+
+            StockResponseDto original = first.get(5, TimeUnit.SECONDS).response();
+            for (Future<IdempotencyStore.Result> duplicate : duplicates) {
+                IdempotencyStore.Result result = duplicate.get(5, TimeUnit.SECONDS);
+                assertTrue(result.replayed());
+                assertSame(original, result.response());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+    }
+
+    // --------------------------------------------------------------------------
+    // Un fallo no se guarda: el reintento vuelve a ejecutar la petición
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldReleaseTheKeyWhenTheExecutionFails() {
+        IdempotencyStore store = newStore(Duration.ofSeconds(5));
+
+        assertThrows(InsufficientStockException.class, () -> store.execute(KEY, PRODUCT_ID, -1, () -> {
+            throw new InsufficientStockException("Stock insuficiente para el producto 1. Stock actual: 0");
+        }));
+        IdempotencyStore.Result retry = store.execute(KEY, PRODUCT_ID, -1, this::purchase);
+
+        assertFalse(retry.replayed());
+        assertEquals(1, executions.get());
+    }
+
+    // --------------------------------------------------------------------------
+    // Un fallo que pudo aplicar el cambio conserva la clave: el reintento se rechaza (409)
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldRejectReplaysWhenTheOutcomeIsUnknown() {
+        IdempotencyStore store = newStore(Duration.ofSeconds(5));
+        UncheckedIOException unsynced = new UncheckedIOException("No se pudo asegurar en disco el cambio", new IOException("disk full"));
+
+        assertSame(unsynced, assertThrows(UncheckedIOException.class, () -> store.execute(KEY, PRODUCT_ID, -1, () -> {
+            throw unsynced;
+        })));
+        IdempotentRequestOutcomeUnknownException retry = assertThrows(IdempotentRequestOutcomeUnknownException.class,
+            () -> store.execute(KEY, PRODUCT_ID, -1, this::purchase));
+
+        assertSame(unsynced, retry.getCause());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void shouldRejectTheSameKeyWithAnotherRequest() {
+        IdempotencyStore store = newStore(Duration.ofSeconds(5));
+        store.execute(KEY, PRODUCT_ID, -1, this::purchase);
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> store.execute(KEY, PRODUCT_ID, -2, this::purchase));
+        assertThrows(IdempotencyKeyReusedException.class, () -> store.execute(KEY, 2L, -1, this::purchase));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void shouldStopWaitingAfterTheTimeout() throws Exception {
+        IdempotencyStore store = newStore(Duration.ofMillis(50));
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            pool.submit(() -> store.execute(KEY, PRODUCT_ID, -1, () -> {
+                firstStarted.countDown();
+                await(releaseFirst);
+                return purchase();
+            }));
+            assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+            assertThrows(IdempotentRequestInProgressException.class, () -> store.execute(KEY, PRODUCT_ID, -1, this::purchase));
+        } finally {
+            releaseFirst.countDown();
+            pool.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
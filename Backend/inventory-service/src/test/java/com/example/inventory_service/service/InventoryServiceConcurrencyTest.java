@@ -0,0 +1,189 @@
+package com.example.inventory_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.inventory_service.cache.ProductCache;
+import com.example.inventory_service.dto.BulkInventoryUpdateDto;
+import com.example.inventory_service.dto.ProductDto;
+import com.example.inventory_service.entity.Inventory;
+import com.example.inventory_service.entity.StockEvent;
+import com.example.inventory_service.exception.InsufficientStockException;
+import com.example.inventory_service.hotstock.HotStockTier;
+import com.example.inventory_service.journal.StockJournal;
+import com.example.inventory_service.mapper.InventoryMapper;
+import com.example.inventory_service.repository.InventoryBatchRepository;
+import com.example.inventory_service.repository.InventoryRepository;
+import com.example.inventory_service.repository.StockEventRepository;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * InventoryServiceConcurrencyTest - Compras y reposiciones concurrentes del mismo producto contra
+ * una base de datos real (H2 en modo PostgreSQL). Cada llamada a updateInventory confirma su propia
+ * transacción, como en producción.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:inventory;MODE=PostgreSQL;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.hikari.maximum-pool-size=16"
+})
+@Import({InventoryService.class, InventoryBatchRepository.class, InventoryMapper.class, HotStockTier.class, StockJournal.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class InventoryServiceConcurrencyTest {
+
+    private static final Long PRODUCT_ID = 1L;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private StockEventRepository stockEventRepository;
+
+    @MockitoBean
+    private ProductCache productCache;
+
+    @BeforeEach
+    void setUp() {
+        when(productCache.getProductById(PRODUCT_ID))
+            .thenReturn(Mono.just(new ProductDto(PRODUCT_ID, "Test Product", "Desc", BigDecimal.TEN, "SKU123")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        inventoryRepository.deleteAll();
+        stockEventRepository.deleteAll();
+    }
+
+    // --------------------------------------------------------------------------
+    // 160 compras de 1 unidad sobre un stock de 50: exactamente 50 se aceptan,
+    // el resto se rechaza y el stock nunca queda negativo.
+    // --------------------------------------------------------------------------
+    @Test
+    void concurrentPurchasesShouldNeverOversell() throws Exception {
+        inventoryRepository.saveAndFlush(new Inventory(PRODUCT_ID, 50));
+
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(5, () -> {
+            try {
+                inventoryService.updateInventory(PRODUCT_ID, -1);
+                accepted.incrementAndGet();
+            } catch (InsufficientStockException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(50, accepted.get());
+        assertEquals(THREADS * 5 - 50, rejected.get());
+        assertEquals(0, inventoryRepository.findByProductId(PRODUCT_ID).orElseThrow().getQuantity());
+    }
+
+    // --------------------------------------------------------------------------
+    // Reposiciones concurrentes: ningún incremento se pierde.
+    // --------------------------------------------------------------------------
+    @Test
+    void concurrentRestocksShouldNotLoseUpdates() throws Exception {
+        inventoryRepository.saveAndFlush(new Inventory(PRODUCT_ID, 0));
+
+        runConcurrently(10, () -> inventoryService.updateInventory(PRODUCT_ID, 1));
+
+        assertEquals(THREADS * 10, inventoryRepository.findByProductId(PRODUCT_ID).orElseThrow().getQuantity());
+
+        // Un evento por cambio y, en orden de id, cada uno continúa donde terminó el anterior
+        List<StockEvent> events = stockEventRepository.findAll(Sort.by("id"));
+        assertEquals(THREADS * 10, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i, events.get(i).getOldQuantity());
+            assertEquals(i + 1, events.get(i).getNewQuantity());
+        }
+    }
+
+    // --------------------------------------------------------------------------
+    // Pedidos masivos concurrentes con los mismos productos en órdenes opuestos:
+    // el orden de bloqueo por productId evita interbloqueos y ningún cambio se pierde.
+    // --------------------------------------------------------------------------
+    @Test
+    void concurrentBulkCheckoutsShouldNotDeadlockOrLoseUpdates() throws Exception {
+        inventoryRepository.saveAndFlush(new Inventory(2L, 1000));
+        inventoryRepository.saveAndFlush(new Inventory(3L, 1000));
+        when(productCache.getProducts(anyCollection())).thenReturn(Mono.just(Map.of(
+            2L, new ProductDto(2L, "Product 2", "Desc", BigDecimal.TEN, "SKU2"),
+            3L, new ProductDto(3L, "Product 3", "Desc", BigDecimal.TEN, "SKU3"))));
+
+        AtomicInteger turn = new AtomicInteger();
+        runConcurrently(5, () -> {
+            boolean forward = turn.incrementAndGet() % 2 == 0;
+            inventoryService.updateInventoryBulk(forward
+                ? List.of(line(2L, -1), line(3L, -2))
+                : List.of(line(3L, -2), line(2L, -1)));
+        });
+
+        assertEquals(1000 - THREADS * 5, inventoryRepository.findByProductId(2L).orElseThrow().getQuantity());
+        assertEquals(1000 - THREADS * 5 * 2, inventoryRepository.findByProductId(3L).orElseThrow().getQuantity());
+    }
+
+    private static BulkInventoryUpdateDto.Item line(Long productId, Integer changeQuantity) {
+        BulkInventoryUpdateDto.Item item = new BulkInventoryUpdateDto.Item();
+        item.setProductId(productId);
+        item.setChangeQuantity(changeQuantity);
+        return item;
+    }
+
+    /**
+     * Lanza THREADS hilos a la vez; cada uno ejecuta la acción 'times' veces.
+     */
+    private void runConcurrently(int times, Runnable action) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < times; i++) {
+                        action.run();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
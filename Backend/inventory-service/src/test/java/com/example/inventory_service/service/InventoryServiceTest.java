@@ -5,23 +5,44 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.LongStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import com.example.inventory_service.client.ProductsClient;
+import com.example.inventory_service.cache.ProductCache;
+import com.example.inventory_service.dto.BulkInventoryUpdateDto;
 import com.example.inventory_service.dto.ProductDto;
 import com.example.inventory_service.dto.StockResponseDto;
 import com.example.inventory_service.entity.Inventory;
+import com.example.inventory_service.entity.StockEvent;
+import com.example.inventory_service.exception.BulkInsufficientStockException;
 import com.example.inventory_service.exception.InsufficientStockException;
+import com.example.inventory_service.exception.InvalidRequestException;
 import com.example.inventory_service.exception.ProductNotFoundException;
+import com.example.inventory_service.exception.ProductsUnavailableException;
+import com.example.inventory_service.hotstock.HotStockTier;
+import com.example.inventory_service.journal.StockJournal;
 import com.example.inventory_service.mapper.InventoryMapper;
+import com.example.inventory_service.repository.InventoryBatchRepository;
 import com.example.inventory_service.repository.InventoryRepository;
+import com.example.inventory_service.repository.StockEventRepository;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import reactor.core.publisher.Mono;
 
 public class InventoryServiceTest {
     // Se mockean todas las dependencias del constructor de InventoryService
@@ -29,11 +50,28 @@ public class InventoryServiceTest {
     private InventoryRepository inventoryRepository;
 
     @Mock
-    private ProductsClient productsClient;
+    private InventoryBatchRepository inventoryBatchRepository;
+
+    @Mock
+    private ProductCache productCache;
 
     @Mock
     private InventoryMapper inventoryMapper;
 
+    @Mock
+    private StockEventRepository stockEventRepository;
+
+    // Sin base de datos: TransactionTemplate ejecuta el callback con un estado nulo
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    // Sin productos de alta demanda: isHot devuelve false y overlay no hace nada
+    @Mock
+    private HotStockTier hotStockTier;
+
+    @Mock
+    private StockJournal stockJournal;
+
     @InjectMocks
     private InventoryService inventoryService;
 
@@ -47,13 +85,13 @@ public class InventoryServiceTest {
     }
 
     /**
-     * Helper para simular que ProductsClient devuelve un producto válido de forma asíncrona.
+     * Helper para simular que ProductCache devuelve un producto válido de forma asíncrona.
      */
     private ProductDto mockProductExists() {
         ProductDto mockProduct = new ProductDto(PRODUCT_ID, "Test Product", "Desc", BigDecimal.TEN, "SKU123");
-        // Devolvemos un CompletableFuture que ya está completado con el DTO
-        when(productsClient.getProductById(PRODUCT_ID))
-            .thenReturn(CompletableFuture.completedFuture(mockProduct));
+        // Devolvemos un Mono que emite directamente el DTO
+        when(productCache.getProductById(PRODUCT_ID))
+            .thenReturn(Mono.just(mockProduct));
         return mockProduct;
     }
 
@@ -76,12 +114,9 @@ public class InventoryServiceTest {
     void shouldDecreaseInventorySuccessfully() {
         ProductDto mockProduct = mockProductExists(); // 1. Simular que el producto existe
 
-        // 2. Simular inventario actual (10)
-        when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(inventory));
-        
-        // 3. Simular que el guardado devuelve el inventario con el nuevo valor
-        // NOTA: El objeto 'inventory' original se modifica en el servicio (cantidad a 5) antes de ser guardado.
-        when(inventoryRepository.save(any(Inventory.class))).thenReturn(inventory); 
+        // 2. Simular que el UPDATE condicionado se aplica (10 - 5) y la lectura del stock resultante
+        when(inventoryRepository.applyDelta(PRODUCT_ID, -5)).thenReturn(1);
+        when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(new Inventory(PRODUCT_ID, 5)));
 
         // 4. Mockear el mapeador para devolver el DTO final con la cantidad actualizada (5)
         StockResponseDto expectedDto = createMockStockResponse(5); 
@@ -95,8 +130,19 @@ public class InventoryServiceTest {
         assertNotNull(updatedDto);
         assertEquals(5, updatedDto.getQuantity()); // 💡 Assertions sobre el DTO
         
-        // Verifica que se llamó al repositorio para guardar el cambio
-        verify(inventoryRepository, times(1)).save(inventory);
+        // Verifica que el cambio se aplicó de forma atómica en la base de datos (sin leer-modificar-guardar)
+        verify(inventoryRepository, times(1)).applyDelta(PRODUCT_ID, -5);
+        verify(inventoryRepository, never()).save(any());
+
+        // El evento de cambio se registra en la outbox (misma transacción)
+        ArgumentCaptor<StockEvent> event = ArgumentCaptor.forClass(StockEvent.class);
+        verify(stockEventRepository).save(event.capture());
+        assertEquals(10, event.getValue().getOldQuantity());
+        assertEquals(5, event.getValue().getNewQuantity());
+        assertEquals(-5, event.getValue().getChangeQuantity());
+
+        // Y, ya confirmado, en el diario local con la cantidad resultante
+        verify(stockJournal).record(PRODUCT_ID, -5, 5);
     }
 
     // --------------------------------------------------------------------------
@@ -105,13 +151,18 @@ public class InventoryServiceTest {
     @Test
     void shouldThrowWhenInventoryNotEnough() {
         mockProductExists(); // 1. Simular que el producto existe
+        // El UPDATE condicionado no afecta filas: 10 - 20 dejaría el stock negativo
+        when(inventoryRepository.applyDelta(PRODUCT_ID, -20)).thenReturn(0);
         when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(inventory)); // Stock 10
 
-        assertThrows(InsufficientStockException.class,
+        InsufficientStockException ex = assertThrows(InsufficientStockException.class,
                 // Llama a updateInventory para disminuir 20 (10 - 20 = -10)
                 () -> inventoryService.updateInventory(PRODUCT_ID, -20));
         
+        assertTrue(ex.getMessage().contains("Stock actual: 10"));
+        verify(inventoryRepository, never()).insertIfAbsent(any());
         verify(inventoryRepository, never()).save(any());
+        verifyNoInteractions(stockJournal);
     }
     
     // --------------------------------------------------------------------------
@@ -119,17 +170,61 @@ public class InventoryServiceTest {
     // --------------------------------------------------------------------------
     @Test
     void shouldThrowWhenProductDoesNotExist() {
-        // 1. Simular que ProductsClient retorna NULL (simula 404 o fallback)
-        when(productsClient.getProductById(PRODUCT_ID))
-            .thenReturn(CompletableFuture.completedFuture(null)); 
+        // 1. Simular que ProductCache retorna un Mono vacío (simula 404)
+        when(productCache.getProductById(PRODUCT_ID))
+            .thenReturn(Mono.empty()); 
 
         assertThrows(ProductNotFoundException.class,
                 // Llama al método para que intente validar el producto
                 () -> inventoryService.updateInventory(PRODUCT_ID, -5)); 
         
+        verify(inventoryRepository, never()).applyDelta(any(), anyInt());
         verify(inventoryRepository, never()).findByProductId(any());
     }
 
+    @Test
+    void shouldValidateProductBeforeOpeningTheTransaction() {
+        mockProductExists();
+        when(inventoryRepository.applyDelta(PRODUCT_ID, -5)).thenReturn(1);
+        when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(new Inventory(PRODUCT_ID, 5)));
+
+        inventoryService.updateInventory(PRODUCT_ID, -5);
+
+        // La llamada remota (posiblemente lenta) no retiene una conexión del pool
+        var inOrder = inOrder(productCache, transactionManager, inventoryRepository);
+        inOrder.verify(productCache).getProductById(PRODUCT_ID);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(inventoryRepository).applyDelta(PRODUCT_ID, -5);
+    }
+
+    @Test
+    void shouldNotOpenTransactionWhenProductDoesNotExist() {
+        when(productCache.getProductById(PRODUCT_ID)).thenReturn(Mono.empty());
+
+        assertThrows(ProductNotFoundException.class, () -> inventoryService.updateInventory(PRODUCT_ID, -5));
+
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    void shouldReportProductsServiceUnavailableInsteadOfNotFound() {
+        // Circuito abierto sin copia stale: no se sabe si el producto existe (503, no 404)
+        CallNotPermittedException open = CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("productsClient"));
+        when(productCache.getProductById(PRODUCT_ID)).thenReturn(Mono.error(open));
+        when(productCache.getProducts(any())).thenReturn(Mono.error(new TimeoutException("timeout")));
+
+        ProductsUnavailableException ex = assertThrows(ProductsUnavailableException.class,
+                () -> inventoryService.updateInventory(PRODUCT_ID, -5));
+        assertSame(open, ex.getCause());
+        assertThrows(ProductsUnavailableException.class, () -> inventoryService.checkStock(PRODUCT_ID));
+        // El TimeoutException (comprobado) llega envuelto por block(): se desenvuelve
+        ProductsUnavailableException batch = assertThrows(ProductsUnavailableException.class,
+                () -> inventoryService.checkStocks(List.of(PRODUCT_ID, 2L)));
+        assertInstanceOf(TimeoutException.class, batch.getCause());
+
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
     // --------------------------------------------------------------------------
     // 4. Prueba de Éxito (Aumento - Reposición)
     // --------------------------------------------------------------------------
@@ -137,9 +232,8 @@ public class InventoryServiceTest {
     void shouldIncreaseInventorySuccessfully() {
         ProductDto mockProduct = mockProductExists(); // Simular que el producto existe
 
-        when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(inventory));
-        // NOTA: El objeto 'inventory' original se modifica en el servicio (cantidad a 30)
-        when(inventoryRepository.save(any(Inventory.class))).thenReturn(inventory);
+        when(inventoryRepository.applyDelta(PRODUCT_ID, 20)).thenReturn(1);
+        when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(new Inventory(PRODUCT_ID, 30)));
 
         // Mockear el mapeador para devolver el DTO final con la cantidad actualizada (30)
         StockResponseDto expectedDto = createMockStockResponse(30); 
@@ -151,6 +245,193 @@ public class InventoryServiceTest {
 
         assertNotNull(updatedDto);
         assertEquals(30, updatedDto.getQuantity()); // 10 + 20 = 30
-        verify(inventoryRepository, times(1)).save(inventory);
+        verify(inventoryRepository, times(1)).applyDelta(PRODUCT_ID, 20);
+        verify(inventoryRepository, never()).insertIfAbsent(any());
+    }
+
+    // --------------------------------------------------------------------------
+    // 5. Prueba de Éxito (Primera reposición - Sin fila de inventario)
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldCreateInventoryRowOnFirstRestock() {
+        mockProductExists();
+
+        // Sin fila: el primer UPDATE no afecta filas; tras insertarla, el reintento sí
+        when(inventoryRepository.applyDelta(PRODUCT_ID, 7)).thenReturn(0, 1);
+        when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(new Inventory(PRODUCT_ID, 7)));
+        when(inventoryMapper.toStockResponseDto(any(Inventory.class), any(ProductDto.class), eq(true)))
+            .thenReturn(createMockStockResponse(7));
+
+        StockResponseDto updatedDto = inventoryService.updateInventory(PRODUCT_ID, 7);
+
+        assertEquals(7, updatedDto.getQuantity());
+        verify(inventoryRepository, times(1)).insertIfAbsent(PRODUCT_ID);
+        verify(inventoryRepository, times(2)).applyDelta(PRODUCT_ID, 7);
+    }
+
+    // --------------------------------------------------------------------------
+    // 6. Prueba de Fallo (Compra sin inventario inicial)
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldThrowWhenPurchasingWithoutInventoryRow() {
+        mockProductExists();
+        when(inventoryRepository.applyDelta(PRODUCT_ID, -1)).thenReturn(0);
+        when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.empty());
+
+        InsufficientStockException ex = assertThrows(InsufficientStockException.class,
+                () -> inventoryService.updateInventory(PRODUCT_ID, -1));
+
+        assertTrue(ex.getMessage().contains("no tiene inventario inicial"));
+        verify(inventoryRepository, never()).insertIfAbsent(any());
+    }
+
+    private static BulkInventoryUpdateDto.Item line(Long productId, Integer changeQuantity) {
+        BulkInventoryUpdateDto.Item item = new BulkInventoryUpdateDto.Item();
+        item.setProductId(productId);
+        item.setChangeQuantity(changeQuantity);
+        return item;
+    }
+
+    private void mockProductsExist(Long... productIds) {
+        Map<Long, ProductDto> products = new HashMap<>();
+        for (Long productId : productIds) {
+            products.put(productId, new ProductDto(productId, "Product " + productId, "Desc", BigDecimal.TEN, "SKU" + productId));
+        }
+        when(productCache.getProducts(anyCollection())).thenReturn(Mono.just(products));
+    }
+
+    // --------------------------------------------------------------------------
+    // 7. Actualización masiva: una sola validación en lote y un único lote de cambios,
+    //    con las líneas del mismo producto agrupadas y ordenadas por productId.
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldApplyBulkUpdateInOneBatch() {
+        mockProductsExist(2L, 3L);
+        when(inventoryBatchRepository.applyDeltas(anyMap())).thenReturn(new int[] {1, 1});
+        when(inventoryRepository.findByProductIdIn(anyCollection()))
+            .thenReturn(List.of(new Inventory(2L, 7), new Inventory(3L, 1)));
+        when(inventoryMapper.toStockResponseDto(any(Inventory.class), any(ProductDto.class), eq(true)))
+            .thenAnswer(invocation -> createMockStockResponse(invocation.<Inventory>getArgument(0).getQuantity()));
+
+        List<StockResponseDto> stocks = inventoryService.updateInventoryBulk(List.of(line(3L, -1), line(2L, -2), line(3L, -1)));
+
+        assertEquals(List.of(7, 1), stocks.stream().map(StockResponseDto::getQuantity).toList());
+        verify(productCache, times(1)).getProducts(anyCollection());
+        verify(inventoryBatchRepository).applyDeltas(Map.of(2L, -2, 3L, -2));
+        verify(inventoryBatchRepository).insertIfAbsent(List.of());
+        verify(inventoryRepository, never()).applyDelta(any(), anyInt());
+    }
+
+    // --------------------------------------------------------------------------
+    // 8. Actualización masiva con stock insuficiente: un error por línea rechazada
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldReportEveryRejectedLineInBulkUpdate() {
+        mockProductsExist(1L, 2L, 3L);
+        when(inventoryBatchRepository.applyDeltas(anyMap())).thenReturn(new int[] {0, 1, 0});
+        when(inventoryRepository.findByProductIdIn(anyCollection()))
+            .thenReturn(List.of(new Inventory(1L, 2), new Inventory(2L, 4)));
+
+        BulkInsufficientStockException ex = assertThrows(BulkInsufficientStockException.class,
+                () -> inventoryService.updateInventoryBulk(List.of(line(1L, -5), line(2L, -1), line(3L, -1))));
+
+        assertEquals(2, ex.getLineErrors().size());
+        assertTrue(ex.getLineErrors().get(0).contains("Stock actual: 2"));
+        assertTrue(ex.getLineErrors().get(1).contains("no tiene inventario inicial"));
+        verifyNoInteractions(inventoryMapper);
+    }
+
+    // --------------------------------------------------------------------------
+    // 9. Actualización masiva con productos inexistentes: no se toca la base de datos
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldRejectBulkUpdateWithUnknownProducts() {
+        mockProductsExist(1L);
+
+        ProductNotFoundException ex = assertThrows(ProductNotFoundException.class,
+                () -> inventoryService.updateInventoryBulk(List.of(line(1L, -1), line(9L, -1))));
+
+        assertTrue(ex.getMessage().contains("[9]"));
+        verifyNoInteractions(inventoryBatchRepository);
+    }
+
+    // --------------------------------------------------------------------------
+    // 10. Consulta masiva: una consulta al repositorio y una en lote de productos
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldCheckStocksWithOneQueryAndOneBatchLookup() {
+        mockProductsExist(1L, 2L);
+        when(inventoryRepository.findByProductIdIn(anyCollection())).thenReturn(List.of(new Inventory(1L, 4)));
+        when(inventoryMapper.toStockResponseDto(any(Inventory.class), any(), anyBoolean()))
+            .thenAnswer(invocation -> StockResponseDto.builder()
+                .productId(invocation.<Inventory>getArgument(0).getProductId())
+                .quantity(invocation.<Inventory>getArgument(0).getQuantity())
+                .productExists(invocation.<Boolean>getArgument(2))
+                .build());
+
+        List<StockResponseDto> stocks = inventoryService.checkStocks(List.of(2L, 1L, 9L, 2L));
+
+        assertEquals(List.of(2L, 1L, 9L), stocks.stream().map(StockResponseDto::getProductId).toList());
+        assertEquals(List.of(0, 4, 0), stocks.stream().map(StockResponseDto::getQuantity).toList());
+        assertFalse(stocks.get(2).isProductExists());
+        verify(inventoryRepository, times(1)).findByProductIdIn(List.of(2L, 1L, 9L));
+        verify(productCache, times(1)).getProducts(List.of(2L, 1L, 9L));
+        verify(productCache, never()).getProductById(any());
+    }
+
+    @Test
+    void shouldRejectTooManyProductIds() {
+        List<Long> ids = LongStream.rangeClosed(1, InventoryService.MAX_BATCH_IDS + 1).boxed().toList();
+
+        assertThrows(InvalidRequestException.class, () -> inventoryService.checkStocks(ids));
+        verifyNoInteractions(inventoryRepository, productCache);
+    }
+
+    @Test
+    void shouldRejectEmptyOrBlankProductIds() {
+        // "?productIds=1,,2" llega con un null en la lista
+        List<Long> withBlank = Arrays.asList(1L, null, 2L);
+
+        assertThrows(InvalidRequestException.class, () -> inventoryService.checkStocks(List.of()));
+        assertThrows(InvalidRequestException.class, () -> inventoryService.checkStocks(withBlank));
+        verifyNoInteractions(inventoryRepository, productCache);
+    }
+
+    // --------------------------------------------------------------------------
+    // 11. Modo ligero (fields[inventory]=quantity): sin llamada al Products Service
+    // --------------------------------------------------------------------------
+    @Test
+    void shouldAnswerQuantityOnlyReadsWithoutProductsService() {
+        when(productCache.cachedExistence(PRODUCT_ID)).thenReturn(Optional.empty());
+        when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(inventory));
+
+        StockResponseDto stock = inventoryService.checkStock(PRODUCT_ID, Set.of("quantity"));
+
+        assertEquals(10, stock.getQuantity());
+        assertTrue(stock.isProductExists());
+        assertNull(stock.getName());
+        verify(productCache, never()).getProductById(any());
+        verifyNoInteractions(inventoryMapper);
+    }
+
+    @Test
+    void shouldHonourCachedNotFoundInQuantityOnlyReads() {
+        when(productCache.cachedExistence(PRODUCT_ID)).thenReturn(Optional.of(false));
+        when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(inventory));
+
+        assertThrows(ProductNotFoundException.class, () -> inventoryService.checkStock(PRODUCT_ID, Set.of("quantity")));
+        verify(productCache, never()).getProductById(any());
+    }
+
+    @Test
+    void shouldFetchMetadataWhenOtherFieldsAreRequested() {
+        ProductDto mockProduct = mockProductExists();
+        when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(inventory));
+        when(inventoryMapper.toStockResponseDto(inventory, mockProduct, true)).thenReturn(createMockStockResponse(10));
+
+        StockResponseDto stock = inventoryService.checkStock(PRODUCT_ID, Set.of("quantity", "name"));
+
+        assertEquals("Test Product", stock.getName());
+        verify(productCache, times(1)).getProductById(PRODUCT_ID);
     }
 }
@@ -0,0 +1,177 @@
+package com.example.inventory_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.inventory_service.dto.ReservationResponseDto;
+import com.example.inventory_service.dto.StockResponseDto;
+import com.example.inventory_service.entity.Inventory;
+import com.example.inventory_service.entity.StockReservation;
+import com.example.inventory_service.exception.InsufficientStockException;
+import com.example.inventory_service.exception.ReservationNotFoundException;
+import com.example.inventory_service.hotstock.HotStockTier;
+import com.example.inventory_service.journal.StockJournal;
+import com.example.inventory_service.repository.InventoryBatchRepository;
+import com.example.inventory_service.repository.InventoryRepository;
+import com.example.inventory_service.repository.StockEventRepository;
+import com.example.inventory_service.repository.StockReservationRepository;
+
+/**
+ * ReservationServiceConcurrencyTest - Reservas concurrentes, confirmación, liberación y barrido de
+ * expiradas contra una base de datos real (H2 en modo PostgreSQL).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:reservations;MODE=PostgreSQL;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.hikari.maximum-pool-size=16"
+})
+@Import({ReservationService.class, ReservationSweeper.class, InventoryBatchRepository.class, HotStockTier.class, StockJournal.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReservationServiceConcurrencyTest {
+
+    private static final Long PRODUCT_ID = 1L;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationSweeper reservationSweeper;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private StockEventRepository stockEventRepository;
+
+    @AfterEach
+    void tearDown() {
+        reservationRepository.deleteAll();
+        inventoryRepository.deleteAll();
+        stockEventRepository.deleteAll();
+    }
+
+    // --------------------------------------------------------------------------
+    // 160 reservas de 1 unidad sobre un stock de 50: exactamente 50 se aceptan y
+    // el stock total no cambia hasta confirmarlas.
+    // --------------------------------------------------------------------------
+    @Test
+    void concurrentReservationsShouldNeverOverbook() throws Exception {
+        inventoryRepository.saveAndFlush(new Inventory(PRODUCT_ID, 50));
+
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(5, () -> {
+            try {
+                reservationService.reserve(PRODUCT_ID, 1, null);
+                accepted.incrementAndGet();
+            } catch (InsufficientStockException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(50, accepted.get());
+        assertEquals(THREADS * 5 - 50, rejected.get());
+        Inventory inventory = inventoryRepository.findByProductId(PRODUCT_ID).orElseThrow();
+        assertEquals(50, inventory.getQuantity());
+        assertEquals(50, inventory.getReserved());
+        assertEquals(50, reservationRepository.count());
+    }
+
+    // --------------------------------------------------------------------------
+    // Confirmar descuenta del stock; liberar devuelve al disponible; una reserva
+    // solo se puede resolver una vez.
+    // --------------------------------------------------------------------------
+    @Test
+    void confirmAndReleaseShouldResolveEachReservationOnce() {
+        inventoryRepository.saveAndFlush(new Inventory(PRODUCT_ID, 10));
+
+        ReservationResponseDto confirmed = reservationService.reserve(PRODUCT_ID, 3, null);
+        ReservationResponseDto released = reservationService.reserve(PRODUCT_ID, 2, null);
+        assertThrows(InsufficientStockException.class, () -> reservationService.reserve(PRODUCT_ID, 6, null));
+
+        StockResponseDto stock = reservationService.confirm(confirmed.getReservationId());
+        assertEquals(7, stock.getQuantity());
+        assertEquals(5, stock.getAvailable());
+        assertEquals(1, stockEventRepository.count());
+
+        reservationService.release(released.getReservationId());
+
+        Inventory inventory = inventoryRepository.findByProductId(PRODUCT_ID).orElseThrow();
+        assertEquals(7, inventory.getQuantity());
+        assertEquals(0, inventory.getReserved());
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.confirm(confirmed.getReservationId()));
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.release(released.getReservationId()));
+    }
+
+    // --------------------------------------------------------------------------
+    // El barrido libera las reservas expiradas, que ya no se pueden confirmar.
+    // --------------------------------------------------------------------------
+    @Test
+    void sweeperShouldReleaseExpiredReservations() {
+        inventoryRepository.saveAndFlush(new Inventory(PRODUCT_ID, 10));
+        ReservationResponseDto expired = reservationService.reserve(PRODUCT_ID, 4, null);
+        reservationService.reserve(PRODUCT_ID, 1, null);
+
+        StockReservation reservation = reservationRepository.findById(expired.getReservationId()).orElseThrow();
+        reservation.setExpiresAt(Instant.now().minusSeconds(1));
+        reservationRepository.saveAndFlush(reservation);
+
+        assertEquals(1, reservationSweeper.expireBatch());
+
+        Inventory inventory = inventoryRepository.findByProductId(PRODUCT_ID).orElseThrow();
+        assertEquals(10, inventory.getQuantity());
+        assertEquals(1, inventory.getReserved());
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.confirm(expired.getReservationId()));
+    }
+
+    /**
+     * Lanza THREADS hilos a la vez; cada uno ejecuta la acción 'times' veces.
+     */
+    private void runConcurrently(int times, Runnable action) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < times; i++) {
+                        action.run();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.inventory_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.inventory_service.dto.StockLevelDto;
+import com.example.inventory_service.entity.StockEvent;
+import com.example.inventory_service.exception.InvalidRequestException;
+import com.example.inventory_service.exception.StockHistoryNotFoundException;
+import com.example.inventory_service.repository.StockHistoryRepository;
+
+/**
+ * StockHistoryServiceTest - Historial y resúmenes horarios de stock contra H2 (modo PostgreSQL).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:history;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver"
+})
+@Import({StockHistoryService.class, StockHistoryRepository.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StockHistoryServiceTest {
+
+    private static final Long PRODUCT_ID = 1L;
+
+    // Anteayer a las 08:00 UTC: todas las horas consultadas están en el pasado
+    private final Instant day = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(Duration.ofDays(2));
+    private final Instant h0 = day.plus(Duration.ofHours(8));
+
+    @Autowired
+    private StockHistoryService stockHistoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM stock_history");
+        jdbcTemplate.update("DELETE FROM stock_level_hourly");
+    }
+
+    /**
+     * 08:10 100 -> 90, 08:20 90 -> 95, 08:50 95 -> 80, (09:00 sin cambios), 10:05 80 -> 120.
+     * Se registran en dos lotes, y el segundo se repite.
+     */
+    private void recordChanges() {
+        StockEvent first = event(1, 10, 100, 90);
+        StockEvent second = event(2, 20, 90, 95);
+        StockEvent third = event(3, 50, 95, 80);
+        StockEvent fourth = event(4, 125, 80, 120);
+
+        stockHistoryService.record(List.of(first, second));
+        stockHistoryService.record(List.of(third, fourth));
+        stockHistoryService.record(List.of(third, fourth));
+    }
+
+    @Test
+    void shouldServeHourlyLevelsFromRollups() {
+        recordChanges();
+
+        List<StockLevelDto> levels = stockHistoryService.levels(PRODUCT_ID, h0, h0.plus(Duration.ofHours(3)), StockHistoryService.Resolution.HOUR);
+
+        assertEquals(3, levels.size());
+        assertLevel(levels.get(0), h0, 100, 80, 100, 80, 3);
+        // Hora sin cambios: repite el cierre anterior
+        assertLevel(levels.get(1), h0.plus(Duration.ofHours(1)), 80, 80, 80, 80, 0);
+        assertLevel(levels.get(2), h0.plus(Duration.ofHours(2)), 80, 80, 120, 120, 1);
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_history", Integer.class));
+    }
+
+    @Test
+    void shouldAggregateDailyLevelsFromHours() {
+        recordChanges();
+
+        List<StockLevelDto> levels = stockHistoryService.levels(PRODUCT_ID, day, day.plus(Duration.ofDays(2)), StockHistoryService.Resolution.DAY);
+
+        assertEquals(2, levels.size());
+        assertLevel(levels.get(0), day, 100, 80, 120, 120, 4);
+        assertLevel(levels.get(1), day.plus(Duration.ofDays(1)), 120, 120, 120, 120, 0);
+    }
+
+    @Test
+    void shouldAnswerStockAtAPointInTime() {
+        recordChanges();
+
+        assertEquals(100, stockHistoryService.levelAt(PRODUCT_ID, h0.plus(Duration.ofMinutes(5))).getQuantity());
+        assertEquals(95, stockHistoryService.levelAt(PRODUCT_ID, h0.plus(Duration.ofMinutes(30))).getQuantity());
+        assertEquals(80, stockHistoryService.levelAt(PRODUCT_ID, h0.plus(Duration.ofMinutes(90))).getQuantity());
+        assertEquals(120, stockHistoryService.levelAt(PRODUCT_ID, h0.plus(Duration.ofHours(5))).getQuantity());
+        assertThrows(StockHistoryNotFoundException.class,
+            () -> stockHistoryService.levelAt(PRODUCT_ID, h0.minus(Duration.ofMinutes(1))));
+    }
+
+    @Test
+    void shouldCountEventsThatArriveAfterHigherIds() {
+        // El evento 6 se confirma antes que el 5 (ids asignados en otro orden que el commit)
+        stockHistoryService.record(List.of(event(6, 40, 80, 70)));
+        stockHistoryService.record(List.of(event(5, 30, 100, 80)));
+        stockHistoryService.record(List.of(event(5, 30, 100, 80)));
+
+        List<StockLevelDto> levels = stockHistoryService.levels(PRODUCT_ID, h0, h0.plus(Duration.ofHours(1)), StockHistoryService.Resolution.HOUR);
+
+        // La apertura pasa a ser la anterior al evento 5, el primero de la hora
+        assertEquals(1, levels.size());
+        assertLevel(levels.get(0), h0, 100, 70, 100, 70, 2);
+    }
+
+    @Test
+    void shouldRejectRangesBeyondTheResolutionLimit() {
+        assertThrows(InvalidRequestException.class,
+            () -> stockHistoryService.levels(PRODUCT_ID, day.minus(Duration.ofDays(60)), day, StockHistoryService.Resolution.HOUR));
+        assertThrows(InvalidRequestException.class,
+            () -> stockHistoryService.levels(PRODUCT_ID, day, day, StockHistoryService.Resolution.DAY));
+    }
+
+    private StockEvent event(long id, int minutesAfterH0, int oldQuantity, int newQuantity) {
+        StockEvent event = new StockEvent(PRODUCT_ID, oldQuantity, newQuantity, newQuantity - oldQuantity, h0.plus(Duration.ofMinutes(minutesAfterH0)));
+        event.setId(id);
+        return event;
+    }
+
+    private static void assertLevel(StockLevelDto level, Instant from, int open, int min, int max, int close, int changes) {
+        assertEquals(from, level.getFrom());
+        assertEquals(open, level.getOpenQuantity());
+        assertEquals(min, level.getMinQuantity());
+        assertEquals(max, level.getMaxQuantity());
+        assertEquals(close, level.getCloseQuantity());
+        assertEquals(changes, level.getChanges());
+    }
+}
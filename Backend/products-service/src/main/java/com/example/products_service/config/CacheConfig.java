@@ -0,0 +1,41 @@
+package com.example.products_service.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * CacheConfig - Caché en memoria (Caffeine) de las lecturas de productos.
+ * - "products": id -> ProductResponseDto; "productsBySku": sku -> ProductResponseDto.
+ * - Acotadas por tamaño y con expiración como red de seguridad; la invalidación la hace ProductService.
+ * - Transaccionales (TransactionAwareCacheManagerProxy): los put/evict dentro de una transacción
+ *   se aplican tras el commit, así una lectura concurrente no puede volver a cachear el valor anterior.
+ * - Se registran estadísticas; Actuator las publica como métricas cache.* (nombre de caché).
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCTS_BY_SKU = "productsBySku";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${products.cache.max-size:10000}") long maxSize,
+                                     @Value("${products.cache.ttl:10m}") Duration ttl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(PRODUCTS, PRODUCTS_BY_SKU);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.products_service.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,12 +19,25 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.example.products_service.dto.ProductDto;
+import com.example.products_service.dto.ProductImportResultDto;
 import com.example.products_service.dto.ProductResponseDto;
+import com.example.products_service.event.ProductChangeStream;
+import com.example.products_service.exception.InvalidRequestException;
+import com.example.products_service.service.ProductImportService;
 import com.example.products_service.service.ProductService;
+import com.example.products_service.util.JsonApiCollection;
+import com.example.products_service.util.JsonApiNdjsonWriter;
 import com.example.products_service.util.JsonApiUtil;
+import com.example.products_service.util.ProductCursor;
+import com.example.products_service.util.ProductETag;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 // Importaciones de Swagger/OpenAPI (para documentación)
 import io.swagger.v3.oas.annotations.Operation;
@@ -37,6 +55,9 @@ public class ProductController {
     
     // Inyección de dependencias por constructor (gestionada por Lombok)
     private final ProductService service;
+    private final ProductImportService importService;
+    private final ObjectMapper objectMapper;
+    private final ProductChangeStream changeStream;
     
     /**
      * Crea un nuevo producto.
@@ -56,12 +77,48 @@ public class ProductController {
         return ResponseEntity.status(201).body(JsonApiUtil.single(responseDto.getId(), "products", responseDto));
     }
 
+    /**
+     * Importa productos en bloque desde un array JSON (insertando o actualizando por sku).
+     *
+     * @param body Cuerpo de la petición: [{"name", "description", "price", "sku"}, ...], leído en streaming.
+     * @return El resumen de la importación (filas leídas, escritas y rechazadas con sus errores).
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+        summary = "Importar Productos (JSON)",
+        description = "Inserta o actualiza por SKU los productos de un array JSON. Las filas inválidas se descartan y se informan en 'meta.errors'."
+    )
+    @ApiResponse(responseCode = "200", description = "Importación completada (ver el resumen en 'meta').")
+    @ApiResponse(responseCode = "400", description = "La entrada no es un array JSON válido.")
+    public ResponseEntity<Map<String, Object>> importJson(InputStream body) throws IOException {
+        ProductImportResultDto result = importService.importJson(body);
+        return ResponseEntity.ok(JsonApiUtil.meta(result));
+    }
+
+    /**
+     * Importa productos en bloque desde un CSV con cabecera (insertando o actualizando por sku).
+     *
+     * @param body Cuerpo de la petición: CSV con columnas name, description, price y sku, leído en streaming.
+     * @return El resumen de la importación (filas leídas, escritas y rechazadas con sus errores).
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @Operation(
+        summary = "Importar Productos (CSV)",
+        description = "Inserta o actualiza por SKU los productos de un CSV con cabecera (name, description, price, sku). Las filas inválidas se descartan y se informan en 'meta.errors'."
+    )
+    @ApiResponse(responseCode = "200", description = "Importación completada (ver el resumen en 'meta').")
+    @ApiResponse(responseCode = "400", description = "Falta la cabecera o alguna columna obligatoria.")
+    public ResponseEntity<Map<String, Object>> importCsv(InputStream body) throws IOException {
+        ProductImportResultDto result = importService.importCsv(body);
+        return ResponseEntity.ok(JsonApiUtil.meta(result));
+    }
+
     /**
      * Obtiene todos los productos con paginación.
      *
      * @param pageable Información de la paginación de los productos disponibles en la base de datos.
      *  Utiliza parámetros 'page', 'size', 'sort(campos a ordenar en 'sort')' y 'direction'.
-     * @return Una colección de productos paginados.
+     * @return Una colección de productos paginados, con ETag (304 si coincide con If-None-Match).
      */
     @GetMapping
     @Operation(
@@ -69,18 +126,167 @@ public class ProductController {
         description = "Recupera una lista paginada de todos los productos disponibles. Utiliza parámetros 'page', 'size'"
     )
     @ApiResponse(responseCode = "200", description = "Lista de productos devuelta con éxito.")
-    public ResponseEntity<Map<String, Object>> getAllProducts(
+    @ApiResponse(responseCode = "304", description = "La página no ha cambiado respecto al ETag de If-None-Match.")
+    public ResponseEntity<JsonApiCollection<ProductResponseDto>> getAllProducts(
         @PageableDefault(page = 0, size = 10, sort = "id", direction = Sort.Direction.ASC) Pageable pageable) {
         
         Page<ProductResponseDto> products = service.getAllProducts(pageable);
-        return ResponseEntity.ok(JsonApiUtil.collection(products.getContent(), "products", products));
+        // Si el ETag coincide con If-None-Match, Spring responde 304 sin serializar el cuerpo
+        return ResponseEntity.ok()
+            .eTag(ProductETag.of(products.getContent(), products.getTotalElements(), products.getTotalPages(),
+                products.getNumber(), products.getSize()))
+            .body(JsonApiUtil.collection(products.getContent(), ProductResponseDto::getId, "products", products));
+    }
+
+    /**
+     * Obtiene productos con paginación por cursor (keyset): ?page[size]=20&sort=-price&page[after]=...
+     * Cada página cuesta lo mismo aunque sea profunda (sin OFFSET) y no ejecuta count(*) salvo que se pida.
+     *
+     * @param size Tamaño de la página (máximo 100).
+     * @param after Cursor opaco devuelto en 'meta.next-cursor' / 'links.next' de la página anterior.
+     * @param sort Orden JSON:API: id, name, sku o price; con '-' delante para descendente.
+     * @param total Totales en 'meta': none (por defecto), estimate (estadísticas de PostgreSQL) o exact (count(*)).
+     * @return Una colección de productos con el cursor de la página siguiente, con ETag.
+     */
+    @GetMapping(params = "page[size]")
+    @Operation(
+        summary = "Obtener Productos con Paginación por Cursor",
+        description = "Recupera una página de productos a continuación del cursor 'page[after]'. El coste por página es constante; "
+            + "el total solo se calcula si se pide con 'page[total]' (estimate o exact)."
+    )
+    @ApiResponse(responseCode = "200", description = "Página de productos devuelta con éxito.")
+    @ApiResponse(responseCode = "304", description = "La página no ha cambiado respecto al ETag de If-None-Match.")
+    @ApiResponse(responseCode = "400", description = "Cursor, orden, tamaño de página o 'page[total]' inválidos.")
+    public ResponseEntity<JsonApiCollection<ProductResponseDto>> scrollProducts(
+        @Parameter(description = "Tamaño de la página (1-100)", required = true)
+        @RequestParam(name = "page[size]") int size,
+        @Parameter(description = "Cursor opaco de la página anterior (omitir en la primera página)")
+        @RequestParam(name = "page[after]", required = false) String after,
+        @Parameter(description = "Campo de orden: id, name, sku o price ('-' para descendente)")
+        @RequestParam(name = "sort", defaultValue = "id") String sort,
+        @Parameter(description = "Totales en 'meta': none, estimate o exact")
+        @RequestParam(name = "page[total]", defaultValue = "none") String total) {
+
+        Map<String, Object> totals = switch (total) {
+            case "none" -> Map.of();
+            case "estimate" -> Map.of("total-elements-estimate", service.estimateProductCount());
+            case "exact" -> Map.of("total-elements", service.countProducts());
+            default -> throw new InvalidRequestException("page[total] must be one of: none, estimate, exact");
+        };
+
+        Window<ProductResponseDto> window = service.scrollProducts(sort, after, size);
+
+        String nextCursor = null;
+        String nextLink = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            nextCursor = ProductCursor.encode(sort, window.getContent().get(window.size() - 1));
+            nextLink = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("page[after]", nextCursor)
+                .build()
+                .toUriString();
+        }
+
+        return ResponseEntity.ok()
+            .eTag(ProductETag.of(window.getContent(), window.hasNext(), nextLink, totals))
+            .body(JsonApiUtil.cursorCollection(window.getContent(), ProductResponseDto::getId, "products",
+                window, nextCursor, nextLink, totals));
+    }
+
+    /**
+     * Exporta el catálogo completo como NDJSON: un recurso JSON:API por línea, ordenado por id.
+     * Las filas se escriben en la respuesta a medida que se leen (una sola transacción y sin count(*)),
+     * con memoria constante. Si la exportación falla a mitad, la respuesta queda truncada.
+     *
+     * @return El flujo NDJSON de productos.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+        summary = "Exportar Catálogo Completo (NDJSON)",
+        description = "Devuelve todos los productos en streaming, un recurso JSON:API por línea. Pensado para indexadores y conciliaciones."
+    )
+    @ApiResponse(responseCode = "200", description = "Catálogo exportado en streaming.")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = out -> {
+            try (JsonApiNdjsonWriter<ProductResponseDto> writer =
+                     new JsonApiNdjsonWriter<>(objectMapper, out, ProductResponseDto::getId, "products")) {
+                service.exportProducts(writer::write);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Flujo de cambios de producto (Server-Sent Events) para invalidar cachés de otros servicios.
+     * Eventos: 'connected' al suscribirse y 'product-changed' ({ "type", "productId" }) tras cada commit.
+     *
+     * @return El emisor SSE de la suscripción.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Suscribirse a Cambios de Productos (SSE)",
+        description = "Notifica en tiempo real las altas, modificaciones y bajas de productos. Tras 'connected' el suscriptor "
+            + "debe invalidar su caché completa; 'productId' nulo (tipo RESET) indica que pudo cambiar cualquier producto."
+    )
+    @ApiResponse(responseCode = "200", description = "Flujo de eventos abierto.")
+    public SseEmitter changes() {
+        return changeStream.subscribe();
+    }
+
+    /**
+     * Obtiene varios productos por sus IDs en una sola petición (ej: ?ids=1,2,3).
+     * Evita que los consumidores (inventory-service) hagan una llamada por producto.
+     *
+     * @param ids IDs de los productos a buscar.
+     * @return Una colección con los productos encontrados (los IDs inexistentes se omiten).
+     *  Cada recurso lleva su ETag en 'meta.etag', el mismo que devuelve GET /api/products/{id}.
+     */
+    @GetMapping(params = "ids")
+    @Operation(
+        summary = "Buscar Productos por Lote de IDs",
+        description = "Recupera en una sola consulta los productos cuyos IDs se indican en el parámetro 'ids' (máximo 100)."
+    )
+    @ApiResponse(responseCode = "200", description = "Productos encontrados (los IDs inexistentes se omiten).")
+    @ApiResponse(responseCode = "400", description = "Se solicitaron más IDs de los permitidos.")
+    public ResponseEntity<JsonApiCollection<ProductResponseDto>> getByIds(
+        @Parameter(description = "IDs de los productos separados por coma", required = true)
+        @RequestParam List<Long> ids) {
+
+        List<ProductResponseDto> products = service.findAllByIds(ids);
+        return ResponseEntity.ok()
+            .eTag(ProductETag.of(products))
+            .body(JsonApiUtil.collection(products, ProductResponseDto::getId, "products").withResourceEtags(ProductETag::of));
+    }
+
+    /**
+     * Busca un producto por su SKU (ej: ?sku=XPS13).
+     *
+     * @param sku SKU del producto a buscar.
+     * @return El DTO del producto encontrado.
+     */
+    @GetMapping(params = "sku")
+    @Operation(
+        summary = "Buscar Producto por SKU",
+        description = "Busca y recupera un producto específico usando su SKU."
+    )
+    @ApiResponse(responseCode = "200", description = "Producto encontrado.")
+    @ApiResponse(responseCode = "304", description = "El producto no ha cambiado respecto al ETag de If-None-Match.")
+    @ApiResponse(responseCode = "404", description = "Producto no encontrado para el SKU proporcionado.")
+    public ResponseEntity<?> getBySku(
+        @Parameter(description = "SKU del producto a buscar", required = true)
+        @RequestParam String sku) {
+
+        ProductResponseDto responseDto = service.findBySku(sku);
+        return ResponseEntity.ok()
+            .eTag(ProductETag.of(responseDto))
+            .body(JsonApiUtil.single(responseDto.getId(), "products", responseDto));
     }
 
     /**
      * Busca un producto por su ID.
      *
      * @param id ID del producto a buscar.
-     * @return El DTO del producto encontrado.
+     * @return El DTO del producto encontrado, con su ETag. Con If-None-Match y el mismo ETag
+     *  la respuesta es 304 Not Modified, sin cuerpo.
      */
     @GetMapping("/{id}")
     @Operation(
@@ -88,13 +294,16 @@ public class ProductController {
         description = "Busca y recupera un producto específico usando su ID."
     )
     @ApiResponse(responseCode = "200", description = "Producto encontrado.")
+    @ApiResponse(responseCode = "304", description = "El producto no ha cambiado respecto al ETag de If-None-Match.")
     @ApiResponse(responseCode = "404", description = "Producto no encontrado para el ID proporcionado.")
     public ResponseEntity<?> getById(
         @Parameter(description = "ID del producto a buscar", required = true)
         @PathVariable Long id) {
         
         ProductResponseDto responseDto = service.findById(id);
-        return ResponseEntity.ok(JsonApiUtil.single(responseDto.getId(), "products", responseDto));
+        return ResponseEntity.ok()
+            .eTag(ProductETag.of(responseDto))
+            .body(JsonApiUtil.single(responseDto.getId(), "products", responseDto));
     }
 
     /**
@@ -114,7 +323,9 @@ public class ProductController {
     @ApiResponse(responseCode = "400", description = "Datos de actualización inválidos.")
     public ResponseEntity<?> update(@PathVariable Long id, @Valid @RequestBody ProductDto dto) {
         ProductResponseDto responseDto = service.update(id, dto);
-        return ResponseEntity.ok(JsonApiUtil.single(responseDto.getId(), "products", responseDto));
+        return ResponseEntity.ok()
+            .eTag(ProductETag.of(responseDto))
+            .body(JsonApiUtil.single(responseDto.getId(), "products", responseDto));
     }
 
     /**
@@ -0,0 +1,17 @@
+package com.example.products_service.dto;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * ProductImportResultDto - Resumen de una importación masiva de productos.
+ * 'errors' incluye como máximo los primeros ProductImportService.MAX_REPORTED_ERRORS rechazos.
+ */
+@Value
+public class ProductImportResultDto {
+    private long received;  // Filas leídas
+    private long upserted;  // Productos insertados o actualizados (por sku)
+    private long rejected;  // Filas descartadas por formato o validación
+    private List<String> errors;
+}
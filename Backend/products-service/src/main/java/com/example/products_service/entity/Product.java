@@ -7,6 +7,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
 /**
@@ -14,7 +15,11 @@ import jakarta.persistence.Table;
  * representa la informacion de un producto en la base de datos mediante JPA
  */
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+    // Índices para la paginación por keyset (clave de orden, id); sku ya es único
+    @Index(name = "idx_products_name_id", columnList = "name, id"),
+    @Index(name = "idx_products_price_id", columnList = "price, id")
+})
 public class Product {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -0,0 +1,156 @@
+package com.example.products_service.event;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * ProductChangeStream - Difunde los cambios de producto por Server-Sent Events
+ * (GET /api/products/changes) a los servicios que cachean productos (inventory-service).
+ * - Los eventos se envían tras el commit de la transacción que los produjo, nunca antes.
+ * - Al suscribirse se envía un evento 'connected': el suscriptor debe invalidar entonces todo lo
+ *   cacheado, porque pudo perder cambios mientras estaba desconectado.
+ * - Cada products.changes.heartbeat se envía un comentario para mantener viva la conexión y que
+ *   el suscriptor detecte una conexión caída.
+ * - Cada suscriptor tiene su propia cola de eventos pendientes, que vacía un hilo virtual: el hilo
+ *   que confirma el cambio solo encola, y un suscriptor lento no retrasa a los demás. Un suscriptor
+ *   con más de products.changes.max-pending eventos sin enviar se desconecta (al reconectarse recibe
+ *   'connected' e invalida su caché, así que no pierde cambios).
+ * - La difusión es en memoria: cada instancia solo notifica los cambios hechos en ella misma.
+ */
+@Component
+public class ProductChangeStream {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeStream.class);
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final long emitterTimeoutMillis;
+    private final int maxPending;
+    private final ScheduledExecutorService heartbeats;
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("product-changes-sender-", 0).factory());
+
+    public ProductChangeStream(@Value("${products.changes.emitter-timeout:30m}") Duration emitterTimeout,
+                               @Value("${products.changes.heartbeat:15s}") Duration heartbeat,
+                               @Value("${products.changes.max-pending:256}") int maxPending) {
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.maxPending = maxPending;
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-changes-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeats.scheduleAtFixedRate(this::sendHeartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registra un nuevo suscriptor. Al expirar el emisor la respuesta se cierra y el suscriptor
+     * vuelve a conectarse.
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(maxPending));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        enqueue(subscriber, SseEmitter.event().name("connected").data("{}", MediaType.APPLICATION_JSON));
+        log.info("Nuevo suscriptor de cambios de producto ({} activos)", subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * Encola el cambio para todos los suscriptores, tras el commit (o de inmediato si no hay transacción).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, SseEmitter.event().name("product-changed").data(event, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void sendHeartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (!subscriber.pending().offer(event)) {
+            log.warn("Suscriptor de cambios de producto con {} eventos sin enviar; se desconecta", maxPending);
+            drop(subscriber, null);
+            return;
+        }
+        if (subscriber.draining().compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    /**
+     * Envía los eventos pendientes del suscriptor, en orden. Solo un hilo vacía cada cola a la vez.
+     */
+    private void drain(Subscriber subscriber) {
+        do {
+            SseEmitter.SseEventBuilder event;
+            while ((event = subscriber.pending().poll()) != null) {
+                try {
+                    subscriber.emitter().send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // Conexión cerrada por el suscriptor
+                    drop(subscriber, e);
+                    return;
+                }
+            }
+            subscriber.draining().set(false);
+            // Un evento encolado justo antes de liberar la marca no programó otro envío
+        } while (!subscriber.pending().isEmpty() && subscriber.draining().compareAndSet(false, true));
+    }
+
+    private void drop(Subscriber subscriber, Exception cause) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.pending().clear();
+            if (cause != null) {
+                subscriber.emitter().completeWithError(cause);
+            } else {
+                subscriber.emitter().complete();
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeats.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+    }
+
+    private record Subscriber(SseEmitter emitter, BlockingQueue<SseEmitter.SseEventBuilder> pending, AtomicBoolean draining) {
+
+        private Subscriber(SseEmitter emitter, BlockingQueue<SseEmitter.SseEventBuilder> pending) {
+            this(emitter, pending, new AtomicBoolean());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.products_service.event;
+
+import lombok.Value;
+
+/**
+ * ProductChangedEvent - Notificación de cambio de producto, publicada por ProductService e
+ * importaciones y difundida tras el commit por ProductChangeStream.
+ * productId nulo (tipo RESET) indica que pudo cambiar cualquier producto (ej: importación masiva).
+ */
+@Value
+public class ProductChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED, RESET }
+
+    Type type;
+    Long productId;
+
+    public static ProductChangedEvent created(Long productId) {
+        return new ProductChangedEvent(Type.CREATED, productId);
+    }
+
+    public static ProductChangedEvent updated(Long productId) {
+        return new ProductChangedEvent(Type.UPDATED, productId);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(Type.DELETED, productId);
+    }
+
+    public static ProductChangedEvent reset() {
+        return new ProductChangedEvent(Type.RESET, null);
+    }
+}
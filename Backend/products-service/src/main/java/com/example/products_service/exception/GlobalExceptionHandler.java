@@ -25,6 +25,17 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(JsonApiUtil.error("404","Not Found", ex.getMessage()));
     }
 
+    /**
+     * handleBadRequest - Maneja peticiones inválidas (ej: demasiados ids en una consulta por lote).
+     * Solo InvalidRequestException: un IllegalArgumentException interno sigue siendo un error 500
+     * @param ex Excepcion a manejar de tipo InvalidRequestException
+     * @return Un objeto JsonApi con el error correspondiente
+     */
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<?> handleBadRequest(InvalidRequestException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(JsonApiUtil.error("400","Bad Request", ex.getMessage()));
+    }
+
     /**
      * handleAll - Maneja todas las demas excepciones no manejadas
      * @param ex Excepcion a manejar de cualquier tipo
@@ -0,0 +1,16 @@
+package com.example.products_service.exception;
+
+/**
+ * InvalidRequestException - Excepcion personalizada para indicar que una petición del cliente
+ * no es válida (ej: demasiados ids, cursor mal formado o importación con formato incorrecto)
+ */
+public class InvalidRequestException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message Mensaje detallado del error, se devuelve al cliente.
+     */
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.products_service.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.products_service.dto.ProductDto;
+
+/**
+ * ProductBatchRepository - Escrituras masivas de productos con sentencias JDBC por lotes.
+ * Con reWriteBatchedInserts=true en la URL de PostgreSQL, el driver agrupa cada lote en
+ * INSERTs multi-fila (una ida y vuelta por cada ~128 filas en lugar de una por fila).
+ */
+@Repository
+public class ProductBatchRepository {
+
+    private static final String UPSERT_BY_SKU =
+        "INSERT INTO products (name, description, price, sku) VALUES (?, ?, ?, ?) "
+        + "ON CONFLICT (sku) DO UPDATE SET name = EXCLUDED.name, description = EXCLUDED.description, price = EXCLUDED.price";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserta o actualiza (por sku) los productos en un único lote.
+     * Los sku deben ser únicos dentro del lote: PostgreSQL no permite que un mismo
+     * INSERT ... ON CONFLICT actualice dos veces la misma fila.
+     * @return Número de productos escritos.
+     */
+    public int upsertAll(List<ProductDto> products) {
+        if (products.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_BY_SKU, products, products.size(), (ps, product) -> {
+            ps.setString(1, product.getName());
+            ps.setString(2, product.getDescription());
+            ps.setBigDecimal(3, product.getPrice());
+            ps.setString(4, product.getSku());
+        });
+        return products.size();
+    }
+}
@@ -1,11 +1,22 @@
 package com.example.products_service.repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.products_service.entity.Product;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * ProductRepository - Repositorio de productos
  * hace la comunicación con la base de datos mediante JPA, y se encarga de realizar las operaciones CRUD
@@ -13,4 +24,20 @@ import com.example.products_service.entity.Product;
  */
 public interface ProductRepository  extends JpaRepository<Product, Long>{
     Optional<Product> findBySku(String sku); // Busca un producto por su SKU(stock)
+
+    // Paginación por keyset: WHERE (clave, id) > (última clave, último id) ORDER BY clave, id LIMIT n (sin OFFSET ni count)
+    Window<Product> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    // Recorrido completo del catálogo con cursor de servidor (lotes de 500 filas); requiere una transacción abierta
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAllByOrderById();
+
+    // Número aproximado de filas según las estadísticas de PostgreSQL (-1 si la tabla nunca se analizó)
+    @Query(value = "SELECT CAST(reltuples AS bigint) FROM pg_class WHERE oid = CAST('products' AS regclass)", nativeQuery = true)
+    long estimateCount();
 }
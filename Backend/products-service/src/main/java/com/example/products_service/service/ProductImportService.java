@@ -0,0 +1,250 @@
+package com.example.products_service.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.products_service.config.CacheConfig;
+import com.example.products_service.dto.ProductDto;
+import com.example.products_service.dto.ProductImportResultDto;
+import com.example.products_service.event.ProductChangedEvent;
+import com.example.products_service.exception.InvalidRequestException;
+import com.example.products_service.repository.ProductBatchRepository;
+import com.example.products_service.util.ProductCsvReader;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * ProductImportService - Importación masiva de productos (array JSON o CSV).
+ * La entrada se lee en streaming, fila a fila; cada fila se valida con las mismas reglas que
+ * ProductDto y las válidas se escriben por bloques de 'chunk-size' con un upsert JDBC por lotes
+ * sobre el sku, cada bloque en su propia transacción.
+ * Las filas inválidas se descartan y se informan; si la entrada se corta o está mal formada,
+ * los bloques ya confirmados se mantienen (reimportar el mismo fichero es idempotente).
+ * Tras cada bloque se vacían las cachés de productos (CacheConfig) y se notifica un cambio
+ * general (ProductChangedEvent RESET) a los servicios que cachean productos.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    // Máximo de errores de fila devueltos en el resumen
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final List<String> CSV_COLUMNS = List.of("name", "description", "price", "sku");
+
+    private final ProductBatchRepository batchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public ProductImportService(ProductBatchRepository batchRepository,
+                                PlatformTransactionManager transactionManager,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                CacheManager cacheManager,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${products.import.chunk-size:1000}") int chunkSize) {
+        this.batchRepository = batchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Importa un array JSON de productos: [{"name": ..., "description": ..., "price": ..., "sku": ...}, ...]
+     * @throws InvalidRequestException Si la entrada no es un array JSON o está mal formada.
+     */
+    public ProductImportResultDto importJson(InputStream in) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidRequestException("The JSON import must be an array of products");
+            }
+            return importRows(() -> {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.END_ARRAY || token == null) {
+                    return null;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    // Se salta el valor completo para seguir con el siguiente elemento
+                    parser.skipChildren();
+                    return Row.error("Expected a JSON object");
+                }
+                JsonNode node = parser.readValueAsTree();
+                try {
+                    return Row.of(objectMapper.treeToValue(node, ProductDto.class));
+                } catch (JsonProcessingException e) {
+                    return Row.error(e.getOriginalMessage());
+                }
+            });
+        } catch (JsonProcessingException e) {
+            throw new InvalidRequestException("Malformed JSON import: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Importa un CSV con cabecera. Columnas (en cualquier orden): name, description, price, sku.
+     * @throws InvalidRequestException Si falta la cabecera o alguna columna.
+     */
+    public ProductImportResultDto importCsv(InputStream in) throws IOException {
+        try (ProductCsvReader csv = new ProductCsvReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<String> header = csv.readRecord();
+            if (header == null) {
+                throw new InvalidRequestException("The CSV import is empty");
+            }
+
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(), i);
+            }
+            List<String> missing = CSV_COLUMNS.stream().filter(column -> !columns.containsKey(column)).toList();
+            if (!missing.isEmpty()) {
+                throw new InvalidRequestException("The CSV header is missing columns: " + missing);
+            }
+
+            return importRows(() -> {
+                List<String> record = csv.readRecord();
+                if (record == null) {
+                    return null;
+                }
+                String price = column(record, columns, "price");
+                try {
+                    return Row.of(new ProductDto(
+                        column(record, columns, "name"),
+                        column(record, columns, "description"),
+                        price == null ? null : new BigDecimal(price),
+                        column(record, columns, "sku")));
+                } catch (NumberFormatException e) {
+                    return Row.error("Invalid price '" + price + "'");
+                }
+            });
+        }
+    }
+
+    /**
+     * Valida las filas a medida que llegan y escribe las válidas por bloques.
+     */
+    private ProductImportResultDto importRows(RowReader reader) throws IOException {
+        long received = 0;
+        long upserted = 0;
+        long rejected = 0;
+        List<String> errors = new ArrayList<>();
+        // sku -> producto: dentro de un bloque gana la última aparición de cada sku
+        Map<String, ProductDto> chunk = new LinkedHashMap<>();
+
+        for (Row row = reader.next(); row != null; row = reader.next()) {
+            received++;
+
+            String error = row.error() != null ? row.error() : violations(row.product());
+            if (error != null) {
+                rejected++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("Row " + received + ": " + error);
+                }
+                continue;
+            }
+
+            chunk.remove(row.product().getSku());
+            chunk.put(row.product().getSku(), row.product());
+            if (chunk.size() >= chunkSize) {
+                upserted += writeChunk(chunk);
+            }
+        }
+        upserted += writeChunk(chunk);
+
+        log.info("Importación de productos: {} filas leídas, {} productos escritos, {} filas rechazadas", received, upserted, rejected);
+        return new ProductImportResultDto(received, upserted, rejected, errors);
+    }
+
+    private int writeChunk(Map<String, ProductDto> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        List<ProductDto> products = List.copyOf(chunk.values());
+        chunk.clear();
+        Integer written = transactionTemplate.execute(status -> batchRepository.upsertAll(products));
+        // El upsert no pasa por ProductService: se vacían las cachés de productos tras cada bloque confirmado
+        for (String cacheName : List.of(CacheConfig.PRODUCTS, CacheConfig.PRODUCTS_BY_SKU)) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        // El upsert no devuelve qué ids cambiaron: los suscriptores invalidan todo
+        eventPublisher.publishEvent(ProductChangedEvent.reset());
+        return written != null ? written : 0;
+    }
+
+    private String violations(ProductDto product) {
+        Set<ConstraintViolation<ProductDto>> violations = validator.validate(product);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(ConstraintViolation::getMessage)
+            .sorted()
+            .collect(Collectors.joining(", "));
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        int index = columns.get(name);
+        if (index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Fila leída: un producto o el motivo por el que no se pudo convertir.
+     */
+    private record Row(ProductDto product, String error) {
+        static Row of(ProductDto product) {
+            return new Row(product, null);
+        }
+
+        static Row error(String error) {
+            return new Row(null, error);
+        }
+    }
+
+    /**
+     * Fuente de filas en streaming; devuelve null al final de la entrada.
+     */
+    @FunctionalInterface
+    private interface RowReader {
+        Row next() throws IOException;
+    }
+}
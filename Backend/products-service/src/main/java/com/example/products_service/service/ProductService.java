@@ -1,29 +1,68 @@
 package com.example.products_service.service;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.products_service.config.CacheConfig;
 import com.example.products_service.dto.ProductDto;
 import com.example.products_service.dto.ProductResponseDto;
 import com.example.products_service.entity.Product;
+import com.example.products_service.event.ProductChangedEvent;
+import com.example.products_service.exception.InvalidRequestException;
 import com.example.products_service.exception.ResourceNotFoundException;
 import com.example.products_service.repository.ProductRepository;
+import com.example.products_service.util.ProductCursor;
 import com.example.products_service.util.ProductMapper;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 
 /**
  * ProductService - Servicio de productos.
  * Utiliza transacciones de solo lectura por defecto y DTOs para el desacoplamiento.
+ * Las lecturas por id y por sku se sirven desde la caché (ver CacheConfig); update y delete
+ * la actualizan o invalidan tras el commit.
+ * create, update y delete publican un ProductChangedEvent que ProductChangeStream difunde
+ * tras el commit a los servicios que cachean productos.
  */
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class ProductService {
+    // Máximo de ids aceptados en una consulta por lote.
+    public static final int MAX_BATCH_IDS = 100;
+    // Máximo de productos por página en la paginación por cursor.
+    public static final int MAX_PAGE_SIZE = 100;
+
     // Lombok genera el constructor para este campo final.
     private final ProductRepository repo;
+    private final EntityManager entityManager;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Destino de la exportación del catálogo (ej: un JsonApiNdjsonWriter sobre la respuesta HTTP).
+     */
+    @FunctionalInterface
+    public interface ExportSink {
+        void accept(ProductResponseDto product) throws IOException;
+    }
 
     /**
      * Crea un nuevo producto en la base de datos.
@@ -34,6 +73,8 @@ public class ProductService {
     public ProductResponseDto create(ProductDto dto){
         Product p = new Product(dto.getName(), dto.getDescription(), dto.getPrice(), dto.getSku());
         Product savedProduct = repo.save(p);
+        // Un 404 cacheado para este id deja de ser válido
+        eventPublisher.publishEvent(ProductChangedEvent.created(savedProduct.getId()));
         
         return ProductMapper.toResponseDto(savedProduct);
     }
@@ -47,6 +88,77 @@ public class ProductService {
         return repo.findAll(pageable).map(ProductMapper::toResponseDto);
     }
 
+    /**
+     * Obtiene una página de productos por keyset (cursor), sin OFFSET ni consulta count(*):
+     * el coste por página es constante aunque la página sea profunda.
+     * @param sort Orden JSON:API ('name', '-price', ...); ver ProductCursor.SORT_FIELDS.
+     * @param after Cursor page[after] de la página anterior; null para la primera página.
+     * @param size Tamaño de la página (1..MAX_PAGE_SIZE).
+     * @return Ventana de DTOs; hasNext() indica si hay más productos después del último.
+     * @throws InvalidRequestException Si el orden, el cursor o el tamaño no son válidos.
+     */
+    public Window<ProductResponseDto> scrollProducts(String sort, String after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException(String.format("page[size] must be between 1 and %d", MAX_PAGE_SIZE));
+        }
+        return repo.findAllBy(ProductCursor.decode(after, sort), ProductCursor.toSort(sort), Limit.of(size))
+            .map(ProductMapper::toResponseDto);
+    }
+
+    /**
+     * Exporta todo el catálogo, ordenado por id, en una sola transacción de solo lectura.
+     * Las filas se leen con un cursor de servidor (fetch size) y cada producto se entrega al destino
+     * y se separa del contexto de persistencia en cuanto se escribe: el consumo de memoria es
+     * constante sea cual sea el tamaño del catálogo.
+     * @param sink Destino de cada producto.
+     * @return Número de productos exportados.
+     * @throws IOException Si falla la escritura (ej: el cliente cerró la conexión).
+     */
+    public long exportProducts(ExportSink sink) throws IOException {
+        long exported = 0;
+        try (Stream<Product> products = repo.streamAllByOrderById()) {
+            Iterator<Product> it = products.iterator();
+            while (it.hasNext()) {
+                Product product = it.next();
+                sink.accept(ProductMapper.toResponseDto(product));
+                entityManager.detach(product);
+                exported++;
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * Número total de productos (consulta count(*) exacta).
+     */
+    public long countProducts() {
+        return repo.count();
+    }
+
+    /**
+     * Número aproximado de productos según las estadísticas de PostgreSQL (sin recorrer la tabla).
+     */
+    public long estimateProductCount() {
+        return Math.max(0, repo.estimateCount());
+    }
+
+    /**
+     * Obtiene varios productos por sus ids en una sola consulta (findAllById).
+     * Los ids que no existen simplemente no aparecen en el resultado.
+     * @param ids Ids de los productos a buscar (máximo MAX_BATCH_IDS).
+     * @return Lista de DTOs de los productos encontrados, ordenada por id.
+     * @throws InvalidRequestException Si se solicitan más de MAX_BATCH_IDS ids.
+     */
+    public List<ProductResponseDto> findAllByIds(Collection<Long> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new InvalidRequestException(String.format("A maximum of %d ids can be requested at once", MAX_BATCH_IDS));
+        }
+        return repo.findAllById(ids).stream()
+            .map(ProductMapper::toResponseDto)
+            .sorted(Comparator.comparing(ProductResponseDto::getId))
+            .toList();
+    }
+
     /**
      * Actualiza un producto en la base de datos.
      * @param id Id del producto a actualizar.
@@ -55,10 +167,13 @@ public class ProductService {
      * @throws ResourceNotFoundException Si el producto no se encuentra.
      */
     @Transactional
+    @CachePut(cacheNames = CacheConfig.PRODUCTS, key = "#id")
     public ProductResponseDto update(Long id, ProductDto dto) {
         Product p = repo.findById(id).orElseThrow(
             () -> new ResourceNotFoundException(String.format("Product with id %d not found", id))
         );
+        // El sku puede cambiar: se invalida la entrada del sku anterior
+        evictSku(p.getSku());
         
         if(dto.getName() != null) p.setName(dto.getName());
         if(dto.getDescription() != null) p.setDescription(dto.getDescription());
@@ -67,6 +182,7 @@ public class ProductService {
         
         // Spring JPA aplica automáticamente los cambios en una transacción activa.
         Product updatedProduct = repo.save(p);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(id));
         
         return ProductMapper.toResponseDto(updatedProduct);
     }
@@ -77,6 +193,7 @@ public class ProductService {
      * @return El DTO del producto encontrado.
      * @throws ResourceNotFoundException Si el producto no se encuentra.
      */
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS, key = "#id")
     public ProductResponseDto findById(Long id) {
         Product p = repo.findById(id).orElseThrow(
             () -> new ResourceNotFoundException(String.format("Product with id %d not found", id))
@@ -84,18 +201,44 @@ public class ProductService {
         return ProductMapper.toResponseDto(p);
     }
 
+    /**
+     * Busca un producto en la base de datos por su sku.
+     * @param sku Sku del producto a buscar.
+     * @return El DTO del producto encontrado.
+     * @throws ResourceNotFoundException Si el producto no se encuentra.
+     */
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS_BY_SKU, key = "#sku")
+    public ProductResponseDto findBySku(String sku) {
+        Product p = repo.findBySku(sku).orElseThrow(
+            () -> new ResourceNotFoundException(String.format("Product with sku %s not found", sku))
+        );
+        return ProductMapper.toResponseDto(p);
+    }
+
     /**
      * Elimina un producto de la base de datos con su id.
      * @param id Id del producto a eliminar en la base de datos.
      * @throws ResourceNotFoundException Si el producto no se encuentra.
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTS, key = "#id")
     public void delete(Long id) {
-        // 8. Mejora: Verificar existencia antes de borrar para lanzar ResourceNotFoundException.
-        if (!repo.existsById(id)) {
-            throw new ResourceNotFoundException(String.format("Product with id %d not found", id));
+        // Se carga el producto para lanzar ResourceNotFoundException y conocer su sku (caché por sku).
+        Product p = repo.findById(id).orElseThrow(
+            () -> new ResourceNotFoundException(String.format("Product with id %d not found", id))
+        );
+        evictSku(p.getSku());
+        repo.delete(p);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
+    }
+
+    /**
+     * Invalida la entrada de un sku en la caché por sku (tras el commit de la transacción en curso).
+     */
+    private void evictSku(String sku) {
+        var cache = cacheManager.getCache(CacheConfig.PRODUCTS_BY_SKU);
+        if (cache != null && sku != null) {
+            cache.evict(sku);
         }
-        // Uso directo de deleteById, más eficiente.
-        repo.deleteById(id);
     }
 }
@@ -0,0 +1,65 @@
+package com.example.products_service.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JsonApiNdjsonWriter - Escribe recursos JSON:API como NDJSON (un objeto por línea) directamente
+ * en el flujo de la respuesta: {"id":"1","type":"products","attributes":{...}}\n
+ * No acumula nada en memoria; vuelca el búfer cada FLUSH_EVERY recursos para que el cliente
+ * empiece a recibir datos mientras se sigue leyendo de la base de datos.
+ */
+public class JsonApiNdjsonWriter<T> implements Closeable {
+
+    private static final int FLUSH_EVERY = 500;
+
+    private final JsonGenerator gen;
+    private final Function<? super T, ?> idAccessor;
+    private final String type;
+    private long count;
+
+    public JsonApiNdjsonWriter(ObjectMapper objectMapper, OutputStream out, Function<? super T, ?> idAccessor, String type) throws IOException {
+        this.gen = objectMapper.getFactory().createGenerator(out);
+        // El flujo de la respuesta lo cierra el contenedor, no el generador
+        this.gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.gen.setRootValueSeparator(new SerializedString("\n"));
+        this.idAccessor = idAccessor;
+        this.type = type;
+    }
+
+    public void write(T attributes) throws IOException {
+        gen.writeStartObject();
+        Object id = idAccessor.apply(attributes);
+        if (id == null) {
+            gen.writeNullField("id");
+        } else {
+            gen.writeStringField("id", String.valueOf(id));
+        }
+        gen.writeStringField("type", type);
+        gen.writeObjectField("attributes", attributes);
+        gen.writeEndObject();
+
+        if (++count % FLUSH_EVERY == 0) {
+            gen.flush();
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Salto de línea final del último recurso (NDJSON) y volcado del búfer
+        if (count > 0) {
+            gen.writeRaw('\n');
+        }
+        gen.close();
+    }
+}
@@ -1,11 +1,13 @@
 package com.example.products_service.util;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Window;
 
 /**
  * JsonApiUtil - Utilidades para crear documentos JSON:API.
@@ -32,47 +34,72 @@ public class JsonApiUtil {
     }
 
     /**
-     * collection - Crea un objeto JsonApi de una colección de recursos con metadatos de paginación.
+     * collection - Crea un documento JsonApi de una colección de recursos con metadatos de paginación.
      * @param items - Lista de DTOs (los atributos).
+     * @param idAccessor - Accesor del id de cada DTO (ej: ProductResponseDto::getId).
      * @param type - Tipo del recurso (ej: "products").
      * @param page - Objeto Page de Spring Data JPA para extraer metadatos.
-     * @return Un objeto Map que representa el documento JSON:API de una colección con 'meta'.
+     * @return Un JsonApiCollection que se serializa en streaming como documento JSON:API con 'meta'.
      */
-    public static Map<String, Object> collection(List<?> items, String type, Page<?> page) {
-        
-        // 1. Construir la lista de recursos ('data' array)
-        List<Map<String, Object>> dataList = items.stream()
-            .map(attributes -> {
-                Long id = null;
-                try {
-                    // Intenta obtener el ID si es un DTO con un campo Long id.
-                    id = (Long) attributes.getClass().getMethod("getId").invoke(attributes);
-                } catch (Exception e) {
-                    // Si no tiene getId(), lo ignoramos, pero el JSON:API lo requiere!
-                }
-
-                Map<String, Object> resource = new HashMap<>();
-                resource.put("id", id != null ? String.valueOf(id) : null);
-                resource.put("type", type);
-                resource.put("attributes", attributes);
-                return resource;
-            })
-            .collect(Collectors.toList());
-
-        // 2. Construir los metadatos de paginación ('meta' block)
-        Map<String, Object> meta = new HashMap<>();
+    public static <T> JsonApiCollection<T> collection(List<T> items, Function<? super T, ?> idAccessor, String type, Page<?> page) {
+        // Metadatos de paginación ('meta' block)
+        Map<String, Object> meta = new LinkedHashMap<>();
         meta.put("total-elements", page.getTotalElements());
         meta.put("total-pages", page.getTotalPages());
         meta.put("page-number", page.getNumber());
         meta.put("page-size", page.getSize());
-        
-        // 3. Construir la respuesta raíz
+
+        return new JsonApiCollection<>(items, idAccessor, type, meta);
+    }
+
+    /**
+     * cursorCollection - Crea un documento JsonApi de una página obtenida por cursor (keyset).
+     * No incluye totales salvo que se pasen en 'totals' (ej: "total-elements-estimate").
+     * @param items - Lista de DTOs (los atributos).
+     * @param idAccessor - Accesor del id de cada DTO (ej: ProductResponseDto::getId).
+     * @param type - Tipo del recurso (ej: "products").
+     * @param window - Ventana de Spring Data, para saber si hay una página siguiente.
+     * @param nextCursor - Cursor page[after] de la página siguiente (null si no hay más).
+     * @param nextLink - URL de la página siguiente (null si no hay más).
+     * @param totals - Totales opcionales a añadir en 'meta' (puede estar vacío).
+     * @return Un JsonApiCollection con 'meta' (page-size, has-next, next-cursor) y 'links' (next).
+     */
+    public static <T> JsonApiCollection<T> cursorCollection(List<T> items, Function<? super T, ?> idAccessor, String type,
+            Window<?> window, String nextCursor, String nextLink, Map<String, Object> totals) {
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("page-size", window.size());
+        meta.put("has-next", window.hasNext());
+        if (nextCursor != null) {
+            meta.put("next-cursor", nextCursor);
+        }
+        meta.putAll(totals);
+
+        Map<String, String> links = nextLink != null ? Map.of("next", nextLink) : Map.of();
+        return new JsonApiCollection<>(items, idAccessor, type, meta, links);
+    }
+
+    /**
+     * collection - Crea un documento JsonApi de una colección de recursos sin paginación.
+     * @param items - Lista de DTOs (los atributos).
+     * @param idAccessor - Accesor del id de cada DTO (ej: ProductResponseDto::getId).
+     * @param type - Tipo del recurso (ej: "products").
+     * @return Un JsonApiCollection que se serializa en streaming como documento JSON:API con 'meta' (count).
+     */
+    public static <T> JsonApiCollection<T> collection(List<T> items, Function<? super T, ?> idAccessor, String type) {
+        return new JsonApiCollection<>(items, idAccessor, type, Map.<String, Object>of("count", items.size()));
+    }
+
+    /**
+     * meta - Crea un documento JsonApi que solo contiene metadatos (ej: el resumen de una importación).
+     * @param meta - Objeto con los metadatos.
+     * @return Un objeto Map que representa el documento JSON:API con el bloque 'meta'.
+     */
+    public static Map<String, Object> meta(Object meta) {
         Map<String, Object> root = new HashMap<>();
-        root.put("data", dataList); // Lista de recursos
-        root.put("meta", meta);     // Metadatos de paginación
-        
+        root.put("meta", meta);
         return root;
     }
+
     /**
      * error - Crea un objeto JsonApi de un error.
      * @param status - Código de estado HTTP del error (String).
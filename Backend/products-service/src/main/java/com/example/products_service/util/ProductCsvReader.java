@@ -0,0 +1,89 @@
+package com.example.products_service.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.products_service.exception.InvalidRequestException;
+
+/**
+ * ProductCsvReader - Lector CSV (RFC 4180) en streaming: devuelve un registro cada vez,
+ * sin cargar el fichero en memoria.
+ * Soporta campos entre comillas con comas, saltos de línea y comillas escapadas (""),
+ * finales de línea LF o CRLF, y omite las líneas vacías.
+ */
+public class ProductCsvReader implements Closeable {
+
+    private final BufferedReader reader;
+    private boolean firstRecord = true;
+
+    public ProductCsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+    }
+
+    /**
+     * Lee el siguiente registro.
+     * @return Los campos del registro; null al final del fichero.
+     * @throws InvalidRequestException Si un campo entre comillas no se cierra.
+     */
+    public List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (firstRecord && c == '\uFEFF') {
+                continue; // BOM de UTF-8
+            }
+            firstRecord = false;
+
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> { quoted = true; any = true; }
+                case ',' -> { fields.add(field.toString()); field.setLength(0); any = true; }
+                case '\r' -> { } // CRLF: el '\n' cierra el registro
+                case '\n' -> {
+                    if (!any && field.isEmpty()) {
+                        continue; // Línea vacía
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                }
+                default -> { field.append((char) c); any = true; }
+            }
+        }
+
+        if (quoted) {
+            throw new InvalidRequestException("Unterminated quoted field at end of CSV input");
+        }
+        if (!any && field.isEmpty()) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.products_service.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import com.example.products_service.dto.ProductResponseDto;
+import com.example.products_service.exception.InvalidRequestException;
+
+/**
+ * ProductCursor - Cursores opacos (page[after]) de la paginación por keyset de productos.
+ * Un cursor codifica en Base64 URL-safe el criterio de orden y los valores (clave de orden, id)
+ * del último producto de la página. Al decodificarlo, cada valor recupera su tipo (Long, String,
+ * BigDecimal) para que la consulta compare con el tipo de la columna.
+ * El orden sigue la convención JSON:API: 'name' ascendente, '-name' descendente.
+ */
+public final class ProductCursor {
+
+    // Campos por los que se puede ordenar en modo cursor (todos NOT NULL)
+    public static final List<String> SORT_FIELDS = List.of("id", "name", "sku", "price");
+
+    private static final String SEPARATOR = "\n";
+
+    private ProductCursor() {}
+
+    /**
+     * Valida el parámetro 'sort' y lo convierte en un Sort de Spring Data, con el id como desempate.
+     * @throws InvalidRequestException Si el campo no está permitido.
+     */
+    public static Sort toSort(String sort) {
+        boolean descending = sort.startsWith("-");
+        String field = descending ? sort.substring(1) : sort;
+        if (!SORT_FIELDS.contains(field)) {
+            throw new InvalidRequestException(String.format("Sort field '%s' is not supported. Allowed: %s", field, SORT_FIELDS));
+        }
+
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort byField = Sort.by(direction, field);
+        return "id".equals(field) ? byField : byField.and(Sort.by(direction, "id"));
+    }
+
+    /**
+     * Crea el cursor que apunta justo después del producto indicado.
+     */
+    public static String encode(String sort, ProductResponseDto last) {
+        String raw = sort + SEPARATOR + last.getId() + SEPARATOR + sortValue(field(sort), last);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Convierte un cursor en la posición de keyset desde la que continuar.
+     * @param after Cursor recibido en page[after]; null o vacío para la primera página.
+     * @param sort Orden de la petición; debe coincidir con el del cursor.
+     * @throws InvalidRequestException Si el cursor está mal formado o se creó con otro orden.
+     */
+    public static ScrollPosition decode(String after, String sort) {
+        if (after == null || after.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8).split(SEPARATOR, 3);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid page[after] cursor");
+        }
+        if (parts.length != 3) {
+            throw new InvalidRequestException("Invalid page[after] cursor");
+        }
+        if (!parts[0].equals(sort)) {
+            throw new InvalidRequestException(String.format("The page[after] cursor was created for sort '%s', not '%s'", parts[0], sort));
+        }
+
+        String field = field(sort);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            Long id = Long.valueOf(parts[1]);
+            switch (field) {
+                case "price" -> keys.put(field, new BigDecimal(parts[2]));
+                case "name", "sku" -> keys.put(field, parts[2]);
+                default -> { } // 'id' no tiene clave adicional
+            }
+            keys.put("id", id);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Invalid page[after] cursor");
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    private static String field(String sort) {
+        return sort.startsWith("-") ? sort.substring(1) : sort;
+    }
+
+    private static String sortValue(String field, ProductResponseDto product) {
+        return switch (field) {
+            case "name" -> product.getName();
+            case "sku" -> product.getSku();
+            case "price" -> product.getPrice().toPlainString();
+            default -> "";
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.products_service.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import com.example.products_service.dto.ProductResponseDto;
+
+/**
+ * ProductETag - ETags fuertes de los recursos de producto, calculados como hash (SHA-256,
+ * truncado a 128 bits) del contenido que se serializa. Dos respuestas con el mismo ETag
+ * tienen exactamente los mismos atributos, así que el cliente puede reutilizar su copia
+ * cuando el servidor responde 304 Not Modified.
+ * Cada campo se escribe con su longitud delante, para que ("ab", "c") y ("a", "bc") no coincidan.
+ */
+public final class ProductETag {
+
+    private static final int ETAG_BYTES = 16;
+
+    private ProductETag() {}
+
+    /**
+     * ETag de un producto, ej: "9f86d081884c7d659a2feaa0c55ad015" (con comillas).
+     */
+    public static String of(ProductResponseDto product) {
+        MessageDigest digest = newDigest();
+        update(digest, product);
+        return format(digest);
+    }
+
+    /**
+     * ETag de una colección: depende de cada producto, de su orden y de los metadatos indicados
+     * (ej: número de página y total de elementos), que también forman parte de la respuesta.
+     */
+    public static String of(List<ProductResponseDto> products, Object... meta) {
+        MessageDigest digest = newDigest();
+        update(digest, String.valueOf(products.size()));
+        for (ProductResponseDto product : products) {
+            update(digest, product);
+        }
+        for (Object value : meta) {
+            update(digest, value == null ? null : String.valueOf(value));
+        }
+        return format(digest);
+    }
+
+    private static void update(MessageDigest digest, ProductResponseDto product) {
+        update(digest, String.valueOf(product.getId()));
+        update(digest, product.getName());
+        update(digest, product.getDescription());
+        // toString conserva la escala (1200.50), igual que la serialización JSON del precio
+        update(digest, product.getPrice() == null ? null : product.getPrice().toString());
+        update(digest, product.getSku());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(-1).array());
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static String format(MessageDigest digest) {
+        return "\"" + HexFormat.of().formatHex(digest.digest(), 0, ETAG_BYTES) + "\"";
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Todo JRE está obligado a incluir SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
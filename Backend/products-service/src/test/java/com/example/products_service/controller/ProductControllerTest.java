@@ -11,27 +11,50 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.example.products_service.config.SecurityConfig;
 import com.example.products_service.dto.ProductResponseDto;
 import com.example.products_service.entity.Product;
+import com.example.products_service.event.ProductChangeStream;
+import com.example.products_service.exception.InvalidRequestException;
+import com.example.products_service.service.ProductImportService;
 import com.example.products_service.service.ProductService;
+import com.example.products_service.service.ProductService.ExportSink;
+import com.example.products_service.util.ProductETag;
 
 /**
  * ProductControllerTest - Clase de prueba para el controlador de productos
  */
 @WebMvcTest(ProductController.class)
+@Import(SecurityConfig.class)
+@TestPropertySource(properties = "app.security.internal-api-key=" + ProductControllerTest.API_KEY)
 public class ProductControllerTest {
+    static final String API_KEY = "test-api-key";
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockBean
     private ProductService productService;
 
+    @MockBean
+    private ProductImportService productImportService;
+
+    @MockBean
+    private ProductChangeStream productChangeStream;
+
     @Test
     void shouldListProductsWithPagination() throws Exception {
         
@@ -55,12 +78,119 @@ public class ProductControllerTest {
 
         // 3. Mockear el servicio.
         Page<ProductResponseDto> page = new PageImpl<>(List.of(productDto));
-        Mockito.when(productService.getAllProducts(PageRequest.of(0, 10))).thenReturn(page);
+        Mockito.when(productService.getAllProducts(PageRequest.of(0, 10, Sort.by("id")))).thenReturn(page);
 
         // 4. Ejecutar y verificar la petición.
-        mockMvc.perform(get("/api/products?page=0&size=10")
+        mockMvc.perform(get("/api/products?page=0&size=10").header("X-API-KEY", API_KEY)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.data[0].attributes.name").value("Laptop"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldListProductsByIds() throws Exception {
+        ProductResponseDto first = new ProductResponseDto(1L, "Laptop", "Dell XPS", BigDecimal.valueOf(1200), "XPS13");
+        ProductResponseDto second = new ProductResponseDto(2L, "Mouse", "Logitech", BigDecimal.valueOf(25), "MX3");
+
+        Mockito.when(productService.findAllByIds(List.of(1L, 2L, 3L))).thenReturn(List.of(first, second));
+
+        mockMvc.perform(get("/api/products?ids=1,2,3").header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[1].id").value("2"))
+                .andExpect(jsonPath("$.data[1].attributes.sku").value("MX3"))
+                .andExpect(jsonPath("$.meta.count").value(2))
+                .andExpect(jsonPath("$.data[1].meta.etag").value(ProductETag.of(second)));
+    }
+
+    @Test
+    void shouldAnswerBadRequestOnlyForInvalidRequests() throws Exception {
+        Mockito.when(productService.findAllByIds(List.of(1L))).thenThrow(new InvalidRequestException("A maximum of 100 ids can be requested at once"));
+        Mockito.when(productService.findAllByIds(List.of(2L))).thenThrow(new IllegalArgumentException("internal"));
+
+        mockMvc.perform(get("/api/products?ids=1").header("X-API-KEY", API_KEY))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0].status").value("400"));
+        // Un IllegalArgumentException interno no es culpa del cliente
+        mockMvc.perform(get("/api/products?ids=2").header("X-API-KEY", API_KEY))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void shouldReturnProductWithStrongETag() throws Exception {
+        ProductResponseDto product = new ProductResponseDto(1L, "Laptop", "Dell XPS", BigDecimal.valueOf(1200), "XPS13");
+        Mockito.when(productService.findById(1L)).thenReturn(product);
+
+        mockMvc.perform(get("/api/products/1").header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ProductETag.of(product)))
+                .andExpect(jsonPath("$.data.attributes.sku").value("XPS13"));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithoutBodyWhenETagMatches() throws Exception {
+        ProductResponseDto product = new ProductResponseDto(1L, "Laptop", "Dell XPS", BigDecimal.valueOf(1200), "XPS13");
+        Mockito.when(productService.findById(1L)).thenReturn(product);
+
+        mockMvc.perform(get("/api/products/1").header("X-API-KEY", API_KEY).header(HttpHeaders.IF_NONE_MATCH, ProductETag.of(product)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ProductETag.of(product)))
+                .andExpect(content().string(""));
+
+        // Un cambio en cualquier atributo cambia el ETag: la copia del cliente ya no vale
+        ProductResponseDto updated = new ProductResponseDto(1L, "Laptop", "Dell XPS", new BigDecimal("1199.99"), "XPS13");
+        Mockito.when(productService.findById(1L)).thenReturn(updated);
+
+        mockMvc.perform(get("/api/products/1").header("X-API-KEY", API_KEY).header(HttpHeaders.IF_NONE_MATCH, ProductETag.of(product)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.attributes.price").value(1199.99));
+    }
+
+    @Test
+    void shouldListProductsWithCursorPaginationWithoutCounting() throws Exception {
+        ProductResponseDto first = new ProductResponseDto(1L, "Laptop", "Dell XPS", BigDecimal.valueOf(1200), "XPS13");
+        ProductResponseDto second = new ProductResponseDto(2L, "Mouse", "Logitech", BigDecimal.valueOf(25), "MX3");
+
+        Mockito.when(productService.scrollProducts("name", null, 2))
+            .thenReturn(Window.from(List.of(first, second), ScrollPosition::offset, true));
+
+        mockMvc.perform(get("/api/products").header("X-API-KEY", API_KEY)
+                        .param("page[size]", "2")
+                        .param("sort", "name")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.meta.has-next").value(true))
+                .andExpect(jsonPath("$.meta.next-cursor").isNotEmpty())
+                .andExpect(jsonPath("$.meta.total-elements").doesNotExist())
+                .andExpect(jsonPath("$.links.next").isNotEmpty());
+
+        Mockito.verify(productService, Mockito.never()).countProducts();
+        Mockito.verify(productService, Mockito.never()).getAllProducts(Mockito.any());
+    }
+
+    @Test
+    void shouldExportCatalogAsNdjson() throws Exception {
+        ProductResponseDto first = new ProductResponseDto(1L, "Laptop", "Dell XPS", BigDecimal.valueOf(1200), "XPS13");
+        ProductResponseDto second = new ProductResponseDto(2L, "Mouse", "Logitech", BigDecimal.valueOf(25), "MX3");
+
+        Mockito.when(productService.exportProducts(Mockito.any())).thenAnswer(invocation -> {
+            ExportSink sink = invocation.getArgument(0);
+            sink.accept(first);
+            sink.accept(second);
+            return 2L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/products/export").header("X-API-KEY", API_KEY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                    "{\"id\":\"1\",\"type\":\"products\",\"attributes\":{\"id\":1,\"name\":\"Laptop\",\"description\":\"Dell XPS\",\"price\":1200,\"sku\":\"XPS13\"}}\n"
+                  + "{\"id\":\"2\",\"type\":\"products\",\"attributes\":{\"id\":2,\"name\":\"Mouse\",\"description\":\"Logitech\",\"price\":25,\"sku\":\"MX3\"}}\n"));
+    }
+}
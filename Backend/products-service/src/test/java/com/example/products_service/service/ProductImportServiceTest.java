@@ -0,0 +1,117 @@
+package com.example.products_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.products_service.dto.ProductDto;
+import com.example.products_service.dto.ProductImportResultDto;
+import com.example.products_service.event.ProductChangedEvent;
+import com.example.products_service.exception.InvalidRequestException;
+import com.example.products_service.repository.ProductBatchRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validation;
+
+/**
+ * ProductImportServiceTest - Importación en streaming por bloques (JSON y CSV).
+ */
+public class ProductImportServiceTest {
+
+    @Mock
+    private ProductBatchRepository batchRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ProductImportService importService;
+    private final List<List<ProductDto>> chunks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(batchRepository.upsertAll(anyList())).thenAnswer(invocation -> {
+            List<ProductDto> chunk = invocation.getArgument(0);
+            chunks.add(chunk);
+            return chunk.size();
+        });
+        // Bloques de 2 filas
+        importService = new ProductImportService(batchRepository, transactionManager,
+            Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), new ConcurrentMapCacheManager(), eventPublisher, 2);
+    }
+
+    private static InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldImportJsonInChunksAndReportInvalidRows() throws Exception {
+        ProductImportResultDto result = importService.importJson(input("""
+            [
+              {"name": "Laptop", "description": "Dell XPS", "price": 1200, "sku": "XPS13"},
+              {"name": "", "description": "Sin nombre", "price": 5, "sku": "NONAME"},
+              {"name": "Mouse", "description": "Logitech", "price": "abc", "sku": "MX3"},
+              {"name": "Mouse", "description": "Logitech", "price": 25, "sku": "MX3"},
+              42,
+              {"name": "Teclado", "description": "Keychron", "price": 90, "sku": "K2"}
+            ]
+            """));
+
+        assertEquals(6, result.getReceived());
+        assertEquals(3, result.getUpserted());
+        assertEquals(3, result.getRejected());
+        assertTrue(result.getErrors().get(0).startsWith("Row 2: Product name is required"));
+        assertTrue(result.getErrors().get(1).startsWith("Row 3:"));
+        assertEquals("Row 5: Expected a JSON object", result.getErrors().get(2));
+
+        // Un lote por bloque de 2 productos válidos, cada uno en su transacción
+        assertEquals(List.of(List.of("XPS13", "MX3"), List.of("K2")),
+            chunks.stream().map(chunk -> chunk.stream().map(ProductDto::getSku).toList()).toList());
+        verify(transactionManager, times(2)).commit(any());
+        // Cada bloque confirmado se notifica a los suscriptores como cambio general
+        verify(eventPublisher, times(2)).publishEvent(ProductChangedEvent.reset());
+    }
+
+    @Test
+    void shouldImportQuotedCsvAndKeepLastRowPerSku() throws Exception {
+        ProductImportResultDto result = importService.importCsv(input(
+            "sku,name,price,description\r\n"
+          + "XPS13,Laptop,1200,\"Dell XPS, 16GB\"\r\n"
+          + "\r\n"
+          + "XPS13,Laptop,1100,\"Precio \"\"rebajado\"\"\nen dos líneas\"\r\n"
+          + "MX3,Mouse,gratis,Logitech\r\n"));
+
+        assertEquals(3, result.getReceived());
+        assertEquals(1, result.getUpserted());
+        assertEquals(List.of("Row 3: Invalid price 'gratis'"), result.getErrors());
+
+        ProductDto imported = chunks.get(0).get(0);
+        assertEquals("1100", imported.getPrice().toPlainString());
+        assertEquals("Precio \"rebajado\"\nen dos líneas", imported.getDescription());
+    }
+
+    @Test
+    void shouldRejectInputsThatAreNotImports() {
+        assertThrows(InvalidRequestException.class, () -> importService.importJson(input("{\"name\": \"Laptop\"}")));
+        assertThrows(InvalidRequestException.class, () -> importService.importJson(input("[{\"name\": ")));
+        assertThrows(InvalidRequestException.class, () -> importService.importCsv(input("name,price\nLaptop,10\n")));
+        verifyNoInteractions(batchRepository);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.products_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import com.example.products_service.config.CacheConfig;
+import com.example.products_service.dto.ProductDto;
+import com.example.products_service.entity.Product;
+import com.example.products_service.event.ProductChangedEvent;
+import com.example.products_service.exception.ResourceNotFoundException;
+import com.example.products_service.repository.ProductRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * ProductServiceCacheTest - Lecturas cacheadas por id y por sku, e invalidación en update/delete
+ * (local y, mediante ProductChangedEvent, en los servicios suscritos).
+ */
+@SpringBootTest(classes = {CacheConfig.class, ProductService.class})
+@RecordApplicationEvents
+public class ProductServiceCacheTest {
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private ProductRepository repo;
+
+    @MockBean
+    private EntityManager entityManager;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+
+        product = new Product("Laptop", "Dell XPS", BigDecimal.valueOf(1200), "XPS13");
+        product.setId(1L);
+        when(repo.findById(1L)).thenReturn(Optional.of(product));
+        when(repo.findBySku("XPS13")).thenReturn(Optional.of(product));
+        when(repo.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void shouldServeRepeatedReadsFromMemory() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Laptop", productService.findById(1L).getName());
+            assertEquals(1L, productService.findBySku("XPS13").getId());
+        }
+
+        verify(repo, times(1)).findById(1L);
+        verify(repo, times(1)).findBySku("XPS13");
+    }
+
+    @Test
+    void shouldNotCacheMissingProducts() {
+        when(repo.findById(9L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> productService.findById(9L));
+        assertThrows(ResourceNotFoundException.class, () -> productService.findById(9L));
+
+        verify(repo, times(2)).findById(9L);
+    }
+
+    @Test
+    void shouldRefreshByIdAndEvictOldSkuOnUpdate() {
+        productService.findById(1L);
+        productService.findBySku("XPS13");
+
+        productService.update(1L, new ProductDto(null, null, BigDecimal.valueOf(999), "XPS15"));
+
+        // La entrada por id se reemplaza con el valor actualizado (sin volver a la base de datos)
+        assertEquals(BigDecimal.valueOf(999), productService.findById(1L).getPrice());
+        // El sku anterior ya no resuelve desde la caché
+        assertNull(cacheManager.getCache(CacheConfig.PRODUCTS_BY_SKU).get("XPS13"));
+        assertEquals(List.of(ProductChangedEvent.updated(1L)), events.stream(ProductChangedEvent.class).toList());
+    }
+
+    @Test
+    void shouldEvictOnDelete() {
+        productService.findById(1L);
+        productService.findBySku("XPS13");
+
+        productService.delete(1L);
+
+        assertNull(cacheManager.getCache(CacheConfig.PRODUCTS).get(1L));
+        assertNull(cacheManager.getCache(CacheConfig.PRODUCTS_BY_SKU).get("XPS13"));
+        assertEquals(List.of(ProductChangedEvent.deleted(1L)), events.stream(ProductChangedEvent.class).toList());
+    }
+}
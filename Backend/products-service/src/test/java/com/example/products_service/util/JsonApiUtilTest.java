@@ -0,0 +1,127 @@
+package com.example.products_service.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.products_service.dto.ProductResponseDto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JsonApiUtilTest - Comprueba el documento de colección en streaming y lo compara con la
+ * construcción anterior (reflexión getId() + HashMap por recurso) para páginas de 10, 100 y 1000.
+ */
+public class JsonApiUtilTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static List<ProductResponseDto> products(int size) {
+        return LongStream.rangeClosed(1, size)
+            .mapToObj(id -> new ProductResponseDto(id, "Product " + id, "Description " + id, BigDecimal.valueOf(id), "SKU-" + id))
+            .toList();
+    }
+
+    @Test
+    void shouldWriteJsonApiCollectionWithPaginationMeta() throws Exception {
+        List<ProductResponseDto> items = products(2);
+        Page<ProductResponseDto> page = new PageImpl<>(items, PageRequest.of(0, 10), 2);
+
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsBytes(
+            JsonApiUtil.collection(items, ProductResponseDto::getId, "products", page)));
+
+        assertEquals("2", json.at("/data/1/id").asText());
+        assertEquals("products", json.at("/data/1/type").asText());
+        assertEquals("SKU-2", json.at("/data/1/attributes/sku").asText());
+        assertEquals(2, json.at("/meta/total-elements").asLong());
+        assertEquals(10, json.at("/meta/page-size").asInt());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 1000})
+    void streamingCollectionShouldProduceSameJsonWithLessAllocation(int pageSize) throws Exception {
+        List<ProductResponseDto> items = products(pageSize);
+        Page<ProductResponseDto> page = new PageImpl<>(items, PageRequest.of(0, pageSize), pageSize);
+
+        // Mismo documento JSON que la versión anterior
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(reflectiveCollection(items, "products", page))),
+            objectMapper.readTree(objectMapper.writeValueAsBytes(JsonApiUtil.collection(items, ProductResponseDto::getId, "products", page))));
+
+        int iterations = Math.max(20, 20_000 / pageSize);
+        long reflective = allocatedPerCall(iterations, () -> reflectiveCollection(items, "products", page));
+        long streaming = allocatedPerCall(iterations, () -> JsonApiUtil.collection(items, ProductResponseDto::getId, "products", page));
+
+        System.out.printf("Página de %d: reflexión + HashMap = %d B/llamada, streaming = %d B/llamada%n", pageSize, reflective, streaming);
+        assertTrue(streaming < reflective);
+    }
+
+    /**
+     * Mide los bytes asignados por el hilo actual al construir y serializar el documento.
+     */
+    private long allocatedPerCall(int iterations, DocumentFactory factory) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < iterations; i++) {
+            objectMapper.writeValue(OutputStream.nullOutputStream(), factory.create());
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            objectMapper.writeValue(OutputStream.nullOutputStream(), factory.create());
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / iterations;
+    }
+
+    @FunctionalInterface
+    private interface DocumentFactory {
+        Object create();
+    }
+
+    /**
+     * Implementación anterior de JsonApiUtil.collection, conservada como referencia.
+     */
+    private static Map<String, Object> reflectiveCollection(List<?> items, String type, Page<?> page) {
+        List<Map<String, Object>> dataList = items.stream()
+            .map(attributes -> {
+                Long id = null;
+                try {
+                    id = (Long) attributes.getClass().getMethod("getId").invoke(attributes);
+                } catch (Exception e) {
+                    // Sin getId(): id nulo
+                }
+
+                Map<String, Object> resource = new HashMap<>();
+                resource.put("id", id != null ? String.valueOf(id) : null);
+                resource.put("type", type);
+                resource.put("attributes", attributes);
+                return resource;
+            })
+            .collect(Collectors.toList());
+
+        Map<String, Object> meta = new HashMap<>();
+        meta.put("total-elements", page.getTotalElements());
+        meta.put("total-pages", page.getTotalPages());
+        meta.put("page-number", page.getNumber());
+        meta.put("page-size", page.getSize());
+
+        Map<String, Object> root = new HashMap<>();
+        root.put("data", dataList);
+        root.put("meta", meta);
+        return root;
+    }
+}
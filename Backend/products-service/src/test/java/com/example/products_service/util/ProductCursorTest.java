@@ -0,0 +1,55 @@
+package com.example.products_service.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import com.example.products_service.dto.ProductResponseDto;
+import com.example.products_service.exception.InvalidRequestException;
+
+/**
+ * ProductCursorTest - Codificación y decodificación tipada de los cursores page[after].
+ */
+public class ProductCursorTest {
+
+    private final ProductResponseDto last = new ProductResponseDto(42L, "Mouse: inalámbrico", "Logitech", new BigDecimal("19.90"), "MX3");
+
+    @Test
+    void shouldRoundTripTypedKeysetValues() {
+        KeysetScrollPosition byPrice = (KeysetScrollPosition) ProductCursor.decode(ProductCursor.encode("-price", last), "-price");
+        assertEquals(new BigDecimal("19.90"), byPrice.getKeys().get("price"));
+        assertEquals(42L, byPrice.getKeys().get("id"));
+
+        KeysetScrollPosition byName = (KeysetScrollPosition) ProductCursor.decode(ProductCursor.encode("name", last), "name");
+        assertEquals("Mouse: inalámbrico", byName.getKeys().get("name"));
+
+        KeysetScrollPosition byId = (KeysetScrollPosition) ProductCursor.decode(ProductCursor.encode("id", last), "id");
+        assertEquals(1, byId.getKeys().size());
+        assertEquals(42L, byId.getKeys().get("id"));
+    }
+
+    @Test
+    void shouldStartFromTheBeginningWithoutCursor() {
+        assertTrue(ProductCursor.decode(null, "name").isInitial());
+    }
+
+    @Test
+    void shouldRejectTamperedOrMismatchedCursors() {
+        String cursor = ProductCursor.encode("name", last);
+
+        assertThrows(InvalidRequestException.class, () -> ProductCursor.decode(cursor, "-name"));
+        assertThrows(InvalidRequestException.class, () -> ProductCursor.decode("not a cursor!", "name"));
+        assertThrows(InvalidRequestException.class, () -> ProductCursor.decode("bmFtZQ", "name"));
+    }
+
+    @Test
+    void shouldBreakTiesByIdInTheSameDirection() {
+        assertEquals(Sort.by(Sort.Direction.DESC, "price", "id"), ProductCursor.toSort("-price"));
+        assertEquals(Sort.by(Sort.Direction.ASC, "id"), ProductCursor.toSort("id"));
+        assertThrows(InvalidRequestException.class, () -> ProductCursor.toSort("description"));
+    }
+}
@@ -66,13 +66,14 @@ describe('ProductList', () => {
         },
         });
 
-        mockInventoryService.getStock.mockImplementation((productId: number) =>
+        mockInventoryService.getStocks.mockImplementation((productIds: number[]) =>
         Promise.resolve({
-            data: {
+            data: productIds.map(productId => ({
             id: productId.toString(),
             type: 'inventory',
             attributes: mockInventory[productId as keyof typeof mockInventory],
-            },
+            })),
+            meta: { count: productIds.length },
         })
         );
 
@@ -95,6 +96,16 @@ describe('ProductList', () => {
         });
     });
 
+    it('loads inventory for the whole page in a single request', async () => {
+        render(<ProductList onViewDetails={onViewDetails} onUpdateStock={onUpdateStock} />);
+
+        await waitFor(() => {
+        expect(mockInventoryService.getStocks).toHaveBeenCalledTimes(1);
+        expect(mockInventoryService.getStocks).toHaveBeenCalledWith([1, 2]);
+        });
+        expect(mockInventoryService.getStock).not.toHaveBeenCalled();
+    });
+
     it('shows loading state', () => {
         mockUseAppStore.mockReturnValue({
         ...mockUseAppStore(),
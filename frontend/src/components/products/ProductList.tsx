@@ -81,36 +81,24 @@ export const ProductList: React.FC<ProductListProps> = ({
         }
     };
 
-    // Cargar inventario para productos
+    // Cargar inventario para productos (una petición por bloque de ids, ver inventoryService.getStocks)
     const loadInventoryForProducts = async (products: Product[]) => {
+        if (products.length === 0) {
+        return;
+        }
+
         try {
         setInventoryLoading(true);
 
-        const inventoryPromises = products.map(product =>
-            inventoryService
-            .getStock(product.id)
-            .then(response => {
-                const { productId: _ignoredProductId, ...attrs } = response.data.attributes;
-                return {
-                productId: product.id,
-                inventory: {
-                    productId: parseInt(response.data.id),
-                    ...attrs,
-                } as Inventory,
-                };
-            })
-            .catch(err => {
-                console.error(`Error loading inventory for product ${product.id}:`, err);
-                return null;
-            })
-        );
+        const response = await inventoryService.getStocks(products.map(product => product.id));
 
-        const inventoryResults = await Promise.all(inventoryPromises);
-
-        inventoryResults.forEach(result => {
-            if (result) {
-            setInventory(result.productId, result.inventory);
-            }
+        response.data.forEach(resource => {
+            const { productId: _ignoredProductId, ...attrs } = resource.attributes;
+            const productId = parseInt(resource.id);
+            setInventory(productId, {
+            productId,
+            ...attrs,
+            } as Inventory);
         });
         } catch (error: unknown) {
         console.error('Error loading inventory:', error);
@@ -94,22 +94,25 @@ export const useInventory = (productId?: number) => {
     }, [setInventory]);
 
     /**
-     * Cargar inventario para múltiples productos
+     * Cargar inventario para múltiples productos (inventoryService.getStocks agrupa los ids en bloques)
      */
     const loadMultipleInventory = useCallback(async (productIds: number[]) => {
+        if (productIds.length === 0) {
+        return;
+        }
+
         try {
         setInventoryLoading(true);
 
-        const promises = productIds.map((id) => loadInventory(id));
-        const results = await Promise.allSettled(promises);
-
-        const successfulLoads = results.filter(
-            (result) => result.status === 'fulfilled'
-        ).length;
+        const response = await inventoryService.getStocks(productIds);
+        response.data.forEach((resource) => {
+            const id = parseInt(resource.id);
+            setInventory(id, { ...resource.attributes, productId: id });
+        });
 
         if (process.env.NODE_ENV === 'development') {
             console.log(
-            `✅ Cargado inventario para ${successfulLoads}/${productIds.length} productos`
+            `✅ Cargado inventario para ${response.data.length}/${productIds.length} productos`
             );
         }
         } catch (error) {
@@ -117,7 +120,7 @@ export const useInventory = (productId?: number) => {
         } finally {
         setInventoryLoading(false);
         }
-    }, [loadInventory, setInventoryLoading]);
+    }, [setInventory, setInventoryLoading]);
 
     /**
      * Verificar si un producto tiene stock suficiente
@@ -1,9 +1,12 @@
 import {
+    InventoryListResponse,
     InventoryResponse,
     InventoryUpdateRequest,
     ProductFormData,
     ProductsResponse
 } from '@/types';
+import { API_CONFIG } from '@/utils/constants';
+import { chunk } from '@/utils/helpers';
 import axios, { AxiosError } from "axios";
 
 // Configuración de APIs
@@ -150,6 +153,22 @@ export const inventoryService = {
         .then(res => res.data);
     },
 
+    /**
+     * Obtener stock de varios productos, en una petición por cada bloque de
+     * API_CONFIG.INVENTORY.MAX_BATCH_IDS ids (el máximo que acepta el backend)
+     */
+    getStocks: async (productIds: number[]): Promise<InventoryListResponse> => {
+        const responses = await Promise.all(
+        chunk(productIds, API_CONFIG.INVENTORY.MAX_BATCH_IDS).map(ids =>
+            inventoryApi
+            .get<InventoryListResponse>('/api/inventory', { params: { productIds: ids.join(',') } })
+            .then(res => res.data)
+        )
+        );
+        const data = responses.flatMap(response => response.data);
+        return { data, meta: { count: data.length } };
+    },
+
     /**
      * Actualizar stock de un producto
      */
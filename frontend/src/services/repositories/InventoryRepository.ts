@@ -1,6 +1,8 @@
 import { inventoryApi } from "../api";
 import { BaseRepository } from "./BaseRepository";
-import { Inventory, InventoryUpdateRequest, InventoryResponse } from "@/types";
+import { Inventory, InventoryUpdateRequest, InventoryResponse, InventoryListResponse } from "@/types";
+import { API_CONFIG } from "@/utils/constants";
+import { chunk } from "@/utils/helpers";
 
 /**
  * Repositorio específico para inventario
@@ -47,15 +49,24 @@ export class InventoryRepository extends BaseRepository<
     }
 
     /**
-     * Obtener múltiples stocks a la vez
+     * Obtener múltiples stocks a la vez (GET /inventory?productIds=1,2,3), en una petición por
+     * cada bloque de API_CONFIG.INVENTORY.MAX_BATCH_IDS ids
      */
     async getMultipleStocks(productIds: number[]): Promise<Inventory[]> {
-        const promises = productIds.map((id) => this.getByProductId(id));
-        const results = await Promise.allSettled(promises);
+        const responses = await Promise.all(
+        chunk(productIds, API_CONFIG.INVENTORY.MAX_BATCH_IDS).map((ids) =>
+            this.api.get<InventoryListResponse>(this.basePath, {
+            params: { productIds: ids.join(",") },
+            })
+        )
+        );
 
-        return results
-        .filter((result): result is PromiseFulfilledResult<Inventory> => result.status === "fulfilled")
-        .map((result) => result.value);
+        return responses.flatMap((response) =>
+        response.data.data.map((resource) => ({
+            ...resource.attributes,
+            productId: parseInt(resource.id, 10),
+        }))
+        );
     }
 
     /**
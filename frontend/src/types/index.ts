@@ -80,6 +80,25 @@ export interface InventoryResponse {
     };
 }
 
+/**
+ * Interfaz para la respuesta de stock de varios productos
+ * @constant data - Datos de la respuesta (uno por producto, en el orden solicitado)
+ * @constant data[].id - ID del producto
+ * @constant data[].type - Tipo de recurso
+ * @constant data[].attributes - Atributos del inventario
+ * @constant meta.count - Cantidad de elementos devueltos
+ */
+export interface InventoryListResponse {
+    data: Array<{
+        id: string;
+        type: string;
+        attributes: Inventory;
+    }>;
+    meta: {
+        count: number;
+    };
+}
+
 /**
  * Interfaz para la respuesta de error de la API
  * @constant errors - Array de errores
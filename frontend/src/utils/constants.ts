@@ -16,6 +16,8 @@ export const API_CONFIG = {
         STOCK: '/api/inventory/{productId}',
         UPDATE_STOCK: '/api/inventory/{productId}/update',
         },
+        // Máximo de ids por petición en GET /api/inventory?productIds= (MAX_BATCH_IDS del backend)
+        MAX_BATCH_IDS: 100,
     },
 } as const;
 
@@ -97,4 +97,17 @@ export const validateProduct = (product: Partial<Product>): string[] => {
     }
     
     return errors;
-};
\ No newline at end of file
+};
+/**
+ * Función para dividir un arreglo en bloques de un tamaño máximo
+ * @param items Arreglo a dividir
+ * @param size Tamaño máximo de cada bloque
+ * @returns Arreglo de bloques, en el mismo orden que el original
+ */
+export const chunk = <T>(items: T[], size: number): T[][] => {
+    const chunks: T[][] = [];
+    for (let i = 0; i < items.length; i += size) {
+        chunks.push(items.slice(i, i + size));
+    }
+    return chunks;
+};